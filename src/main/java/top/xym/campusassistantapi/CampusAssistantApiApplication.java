@@ -4,18 +4,26 @@ import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import top.xym.starter.common.annotation.EnableMqxuCommon;
 import org.springframework.core.env.Environment;
 
 @SpringBootApplication
 @EnableMqxuCommon
-@MapperScan({"top.xym.campusassistantapi.module.agent.mapper", "top.xym.campusassistantapi.module.user.mapper", "top.xym.campusassistantapi.module.message.mapper","top.xym.campusassistantapi.module.session.mapper"})
+@EnableScheduling
+@MapperScan({"top.xym.campusassistantapi.module.agent.mapper", "top.xym.campusassistantapi.module.user.mapper", "top.xym.campusassistantapi.module.message.mapper","top.xym.campusassistantapi.module.session.mapper", "top.xym.campusassistantapi.module.usage.mapper"})
 public class CampusAssistantApiApplication {
 
+    private static final int STARTUP_BUFFER_CAPACITY = 8192;
+
     public static void main(String[] args) {
-        SpringApplication.run(CampusAssistantApiApplication.class, args);
+        SpringApplication application = new SpringApplication(CampusAssistantApiApplication.class);
+        // 记录启动过程各步骤耗时，供启动报告与 actuator startup 端点使用
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_BUFFER_CAPACITY));
+        application.run(args);
         System.out.println("Campus Assistant API 启动成功!");
         System.out.println("Knife4j 接口文档地址: http://localhost:6060/doc.html");
     }
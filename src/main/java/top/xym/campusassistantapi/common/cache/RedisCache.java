@@ -2,8 +2,10 @@ package top.xym.campusassistantapi.common.cache;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -13,6 +15,20 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class RedisCache {
 
+    /**
+     * 值相同才删除，避免误删已过期后被其他持有者重新设置的键
+     */
+    private static final DefaultRedisScript<Long> DELETE_IF_EQUALS = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /**
+     * 值相同才续期，避免续期已过期后被其他持有者重新设置的键
+     */
+    private static final DefaultRedisScript<Long> EXPIRE_IF_EQUALS = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
     private final RedisTemplate<String, Object> redisTemplate;
 
     /**
@@ -59,6 +75,32 @@ public class RedisCache {
         redisTemplate.delete(key);
     }
 
+    /**
+     * 键不存在时设置（带过期时间），用作简单的分布式锁
+     *
+     * @return 是否设置成功
+     */
+    public boolean setIfAbsent(String key, Object value, long timeout, TimeUnit unit) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, value, timeout, unit));
+    }
 
+    /**
+     * 当前值等于给定值时删除（释放 {@link #setIfAbsent} 获得的锁）
+     *
+     * @return 是否删除
+     */
+    public boolean deleteIfEquals(String key, Object value) {
+        Long deleted = redisTemplate.execute(DELETE_IF_EQUALS, List.of(key), value);
+        return deleted != null && deleted > 0;
+    }
 
+    /**
+     * 当前值等于给定值时重设过期时间（续期 {@link #setIfAbsent} 获得的锁）
+     *
+     * @return 是否续期
+     */
+    public boolean expireIfEquals(String key, Object value, long timeout, TimeUnit unit) {
+        Long renewed = redisTemplate.execute(EXPIRE_IF_EQUALS, List.of(key), value, unit.toMillis(timeout));
+        return renewed != null && renewed > 0;
+    }
 }
@@ -18,4 +18,39 @@ public class RedisKeys {
     public static String getUserTokenKey(Long userId) {
         return "user:token:" + userId;
     }
+
+    /**
+     * 智能体会话状态 Key
+     */
+    public static String getAgentSessionKey(Long userId, Long sessionId) {
+        return "agent:session:" + userId + ":" + sessionId;
+    }
+
+    /**
+     * 智能体会话单轮执行锁 Key
+     */
+    public static String getAgentTurnLockKey(Long userId, Long sessionId) {
+        return "agent:turn:lock:" + userId + ":" + sessionId;
+    }
+
+    /**
+     * 单实例定时任务租约 Key
+     */
+    public static String getJobLeaseKey(String jobName) {
+        return "job:lease:" + jobName;
+    }
+
+    /**
+     * 单实例定时任务进度 Key（与租约配套，接手的实例从这里继续）
+     */
+    public static String getJobProgressKey(String jobName) {
+        return "job:progress:" + jobName;
+    }
+
+    /**
+     * 会话元数据 Key
+     */
+    public static String getSessionMetaKey(Long sessionId) {
+        return "session:meta:" + sessionId;
+    }
 }
@@ -0,0 +1,39 @@
+package top.xym.campusassistantapi.common.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import top.xym.campusassistantapi.infrastructure.llm.LlmOverloadedException;
+import top.xym.starter.common.result.Result;
+
+import java.io.IOException;
+
+/**
+ * 大模型限流异常处理器：返回 HTTP 429 并携带 Retry-After
+ * 直接写响应，兼容 text/event-stream 等非 JSON 接口
+ */
+@RestControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class LlmOverloadedExceptionHandler {
+
+    private final ObjectMapper objectMapper;
+
+    @ExceptionHandler(LlmOverloadedException.class)
+    public void handleOverloaded(LlmOverloadedException e, HttpServletResponse response) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+        response.resetBuffer();
+        response.setStatus(LlmOverloadedException.TOO_MANY_REQUESTS);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        response.setContentType("application/json;charset=UTF-8");
+        Result<String> result = Result.error(LlmOverloadedException.TOO_MANY_REQUESTS, e.getMessage());
+        response.getWriter().write(objectMapper.writeValueAsString(result));
+    }
+}
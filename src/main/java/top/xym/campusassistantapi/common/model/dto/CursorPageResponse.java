@@ -0,0 +1,25 @@
+package top.xym.campusassistantapi.common.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@Schema(description = "游标分页响应DTO（按 创建时间+ID 定位，不做 OFFSET 扫描）")
+public class CursorPageResponse<T> {
+
+    @Schema(description = "当前页数据列表")
+    private List<T> records;
+
+    @Schema(description = "继续向后翻页（更早的数据）的游标，没有更多数据时为空")
+    private String nextCursor;
+
+    @Schema(description = "向前翻页（更新的数据）的游标，已在最新一页时为空")
+    private String prevCursor;
+
+    @Schema(description = "总记录数（仅在请求 withTotal=true 时返回）")
+    private Long total;
+}
@@ -3,11 +3,13 @@ package top.xym.campusassistantapi.common.utils;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
 import com.aliyun.oss.model.GeneratePresignedUrlRequest;
+import com.aliyun.oss.model.ObjectMetadata;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.net.URL;
 import java.util.Date;
 import java.util.UUID;
@@ -45,4 +47,41 @@ public class OssUtil {
         // 返回临时URL（前端仅能在有效期内访问）
         return presignedUrl.toString();
     }
+
+    /**
+     * 按指定对象名上传字节数据（同名对象直接覆盖），返回临时访问URL
+     */
+    public String uploadBytes(String objectName, byte[] data, String contentType) {
+        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+        try {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(data.length);
+            if (contentType != null) {
+                metadata.setContentType(contentType);
+            }
+            ossClient.putObject(bucketName, objectName, new ByteArrayInputStream(data), metadata);
+            return presignedUrl(ossClient, objectName);
+        } finally {
+            ossClient.shutdown();
+        }
+    }
+
+    /**
+     * 为已上传的对象重新生成临时访问URL
+     */
+    public String presignedUrl(String objectName) {
+        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+        try {
+            return presignedUrl(ossClient, objectName);
+        } finally {
+            ossClient.shutdown();
+        }
+    }
+
+    private String presignedUrl(OSS ossClient, String objectName) {
+        Date expireDate = new Date(System.currentTimeMillis() + urlExpire * 1000L);
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucketName, objectName);
+        request.setExpiration(expireDate);
+        return ossClient.generatePresignedUrl(request).toString();
+    }
 }
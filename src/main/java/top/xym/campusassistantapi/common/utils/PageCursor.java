@@ -0,0 +1,50 @@
+package top.xym.campusassistantapi.common.utils;
+
+import top.xym.campusassistantapi.common.exception.ServerException;
+import top.xym.campusassistantapi.common.result.ResultCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页的定位点：(创建时间, ID)
+ * 对外以不透明字符串传递（URL 安全的 Base64），客户端只需原样带回
+ *
+ * @param createTime 定位记录的创建时间
+ * @param id         定位记录的ID（创建时间相同时用于排序）
+ */
+public record PageCursor(LocalDateTime createTime, Long id) {
+
+    /**
+     * 翻页方向：next 继续向更早的数据翻，prev 向更新的数据翻
+     */
+    public enum Direction {
+        NEXT, PREV;
+
+        public static Direction of(String value) {
+            return "prev".equalsIgnoreCase(value) ? PREV : NEXT;
+        }
+    }
+
+    public String encode() {
+        String raw = createTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，为空返回 null（从最新一页开始）
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ServerException(ResultCode.PARAM_ERROR.getCode(), "分页游标无效");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * 受并发隔离保护的 ChatModel 装饰器（用于无法在调用点加保护的场景，如 ReactAgent）
+ */
+public class BulkheadChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final LlmBulkhead bulkhead;
+
+    public BulkheadChatModel(ChatModel delegate, LlmBulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return bulkhead.call(LlmBulkhead.currentUserKey(), () -> delegate.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return bulkhead.stream(LlmBulkhead.currentUserKey(), () -> delegate.stream(prompt));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
@@ -0,0 +1,295 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 大模型同步调用对冲（hedged request）
+ * - 等待到最近时延的指定分位数仍无结果时，再发起一次相同的请求，取先返回的结果
+ * - 对冲次数受预算限制（占总请求数的比例），避免上游变慢时请求量翻倍
+ * - 任一请求成功即返回；两个都失败时抛出首个请求的异常
+ * 落后的请求无法中止：同步 HTTP 调用不响应中断，它会执行到上游返回为止，照常计费并一直占用自己的并发许可。
+ * 因此并发隔离的容量需按 maxConcurrent x (1 + budgetRatio) 预留余量；许可不足时对冲请求被拒绝，只等待首个请求
+ * 对冲线程用尽时同样不发起对冲（计为 pool_exhausted），不会在调用方线程上同步执行第二次调用
+ * 仅适用于幂等、无副作用、无会话状态的调用（有状态的调用对冲一次就是多执行一轮）
+ */
+@Slf4j
+@Component
+public class HedgedCaller {
+
+    private final LlmHedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * 对冲预算：每次请求累积 budgetRatio，每次对冲消耗 1
+     */
+    private double budget;
+
+    public HedgedCaller(LlmHedgingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, Math.max(2, properties.getMaxThreads()), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "llm-hedge-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 线程用尽时拒绝提交，由调用方决定退化方式
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 执行可对冲的同步调用
+     *
+     * @param scope    调用场景（时延统计与指标按场景区分）
+     * @param upstream 实际的上游调用（需幂等）
+     */
+    public <T> T call(String scope, Supplier<T> upstream) {
+        long start = System.nanoTime();
+        if (!properties.isEnabled()) {
+            T result = upstream.get();
+            record(scope, start, false);
+            return result;
+        }
+        addBudget();
+        Attempt<T> primary;
+        try {
+            primary = new Attempt<>(scope, upstream);
+        } catch (RejectedExecutionException e) {
+            // 线程用尽：在调用方线程直接执行，不对冲
+            counter(scope, "pool_exhausted");
+            T result = upstream.get();
+            record(scope, start, false);
+            return result;
+        }
+        long delayMillis = hedgeDelayMillis(scope);
+        try {
+            T result = primary.result.get(delayMillis, TimeUnit.MILLISECONDS);
+            record(scope, start, false);
+            return result;
+        } catch (TimeoutException e) {
+            // 超过分位数仍未返回，进入对冲流程
+        } catch (ExecutionException e) {
+            record(scope, start, false);
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            primary.abandon();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("大模型调用被中断", e);
+        }
+
+        if (!tryConsumeBudget()) {
+            counter(scope, "budget_exhausted");
+            T result = await(primary.result);
+            record(scope, start, false);
+            return result;
+        }
+        Attempt<T> hedge;
+        try {
+            hedge = new Attempt<>(scope, upstream);
+        } catch (RejectedExecutionException e) {
+            // 线程用尽：退还预算，只等待首个请求
+            refundBudget();
+            counter(scope, "pool_exhausted");
+            T result = await(primary.result);
+            record(scope, start, false);
+            return result;
+        }
+        counter(scope, "hedged");
+        AtomicBoolean hedgeWon = new AtomicBoolean(false);
+        try {
+            T result = firstSuccess(primary.result, hedge.result, hedgeWon).join();
+            counter(scope, hedgeWon.get() ? "hedge_won" : "primary_won");
+            record(scope, start, true);
+            return result;
+        } catch (CompletionException e) {
+            record(scope, start, true);
+            throw unwrap(e.getCause());
+        } finally {
+            primary.abandon();
+            hedge.abandon();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 任一成功即完成；都失败时以首个请求的异常结束
+     */
+    private <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> primary, CompletableFuture<T> hedge,
+                                                  AtomicBoolean hedgeWon) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(error);
+            }
+        });
+        hedge.whenComplete((value, error) -> {
+            if (error == null) {
+                if (result.complete(value)) {
+                    hedgeWon.set(true);
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                // 以首个请求的异常为准
+                primary.whenComplete((ignored, primaryError) ->
+                        result.completeExceptionally(primaryError != null ? primaryError : error));
+            }
+        });
+        return result;
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private long hedgeDelayMillis(String scope) {
+        long min = properties.getMinDelay().toMillis();
+        long max = properties.getMaxDelay().toMillis();
+        long percentile = window(scope).percentileMillis(properties.getPercentile(), properties.getMinSamples());
+        if (percentile < 0) {
+            return max;
+        }
+        return Math.max(min, Math.min(max, percentile));
+    }
+
+    private synchronized void addBudget() {
+        // 预算上限 10 次，防止长时间空闲后集中对冲
+        budget = Math.min(10, budget + properties.getBudgetRatio());
+    }
+
+    private synchronized void refundBudget() {
+        budget = Math.min(10, budget + 1);
+    }
+
+    private synchronized boolean tryConsumeBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    private void record(String scope, long startNanos, boolean hedged) {
+        long elapsed = System.nanoTime() - startNanos;
+        window(scope).add(TimeUnit.NANOSECONDS.toMillis(elapsed));
+        Timer.builder("llm.hedge.latency")
+                .tag("scope", scope)
+                .tag("hedged", String.valueOf(hedged))
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    private void counter(String scope, String result) {
+        meterRegistry.counter("llm.hedge.requests", "scope", scope, "result", result).increment();
+    }
+
+    private LatencyWindow window(String scope) {
+        return windows.computeIfAbsent(scope, s -> new LatencyWindow(Math.max(1, properties.getWindowSize())));
+    }
+
+    private RuntimeException unwrap(Throwable throwable) {
+        if (throwable instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new IllegalStateException(throwable);
+    }
+
+    /**
+     * 单次上游调用：在线程池中执行
+     * 放弃后尚未开始的调用不再执行；已开始的调用会执行到上游返回（不中断线程，中断不能结束阻塞的 HTTP 调用），
+     * 其完成次数记为 abandoned_completed，用于核对对冲带来的额外 Token 消耗
+     */
+    private final class Attempt<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicBoolean abandoned = new AtomicBoolean(false);
+        private final Future<?> task;
+
+        Attempt(String scope, Supplier<T> upstream) {
+            this.task = executor.submit(() -> {
+                try {
+                    result.complete(upstream.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    if (abandoned.get()) {
+                        counter(scope, "abandoned_completed");
+                    }
+                }
+            });
+        }
+
+        void abandon() {
+            if (result.isDone()) {
+                return;
+            }
+            abandoned.set(true);
+            task.cancel(false);
+            result.cancel(false);
+        }
+    }
+
+    /**
+     * 最近 N 次调用时延的环形窗口
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized long percentileMillis(double percentile, int minSamples) {
+            if (size < Math.max(1, minSamples)) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import top.xym.campusassistantapi.common.utils.SecurityUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 大模型调用并发隔离（bulkhead）
+ * - 全局许可池：限制本节点同时进行的大模型调用数
+ * - 用户级限制：单个用户的并发调用数，超出立即拒绝
+ * - 有界等待队列：全局许可用尽时排队等待，队列满或等待超时即快速拒绝（HTTP 429 + Retry-After）
+ */
+@Slf4j
+@Component
+public class LlmBulkhead {
+
+    private final LlmBulkheadProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore globalPermits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Map<String, Integer> userInFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 许可持有时长的指数移动平均（毫秒），用于估算 Retry-After
+     */
+    private volatile double holdMillisEwma = 2000;
+
+    public LlmBulkhead(LlmBulkheadProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.globalPermits = new Semaphore(properties.getMaxConcurrent(), true);
+        Gauge.builder("llm.bulkhead.queue.depth", waiting, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("llm.bulkhead.active", globalPermits,
+                s -> properties.getMaxConcurrent() - s.availablePermits()).register(meterRegistry);
+    }
+
+    /**
+     * 当前登录用户的隔离键，未登录返回 null（仅受全局许可池限制）
+     */
+    public static String currentUserKey() {
+        Authentication authentication = SecurityUtils.getCurrentAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Long userId)) {
+            return null;
+        }
+        return String.valueOf(userId);
+    }
+
+    /**
+     * 获取调用许可（阻塞至多 maxWait），失败抛出 {@link LlmOverloadedException}
+     *
+     * @param userKey 用户隔离键，为 null 时不做用户级限制
+     */
+    public Permit acquire(String userKey) {
+        if (!properties.isEnabled()) {
+            return new Permit(null, false);
+        }
+        if (userKey != null && !tryAcquireUser(userKey)) {
+            throw reject("user", "您有其他回答正在生成，请稍后再试");
+        }
+        boolean acquired = globalPermits.tryAcquire();
+        if (!acquired) {
+            if (waiting.incrementAndGet() > properties.getMaxQueueDepth()) {
+                waiting.decrementAndGet();
+                releaseUser(userKey);
+                throw reject("queue_full", "当前提问人数过多，请稍后再试");
+            }
+            try {
+                acquired = globalPermits.tryAcquire(properties.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (!acquired) {
+                releaseUser(userKey);
+                throw reject("timeout", "当前提问人数过多，请稍后再试");
+            }
+        }
+        return new Permit(userKey, true);
+    }
+
+    /**
+     * 在许可保护下执行同步调用
+     */
+    public <T> T call(String userKey, Supplier<T> upstream) {
+        try (Permit ignored = acquire(userKey)) {
+            return upstream.get();
+        }
+    }
+
+    /**
+     * 在许可保护下执行流式调用：调用时（响应提交之前）立即获取许可，被限流时直接抛出
+     * {@link LlmOverloadedException}，由全局异常处理返回 429 + Retry-After；流结束/出错/取消时释放
+     * 返回的 Flux 必须被订阅，否则许可不会释放（调用方都在返回前或由框架立即订阅）
+     */
+    public <T> Flux<T> stream(String userKey, Supplier<Flux<T>> upstream) {
+        Permit permit = acquire(userKey);
+        try {
+            return upstream.get().doFinally(signal -> permit.close());
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    private boolean tryAcquireUser(String userKey) {
+        AtomicBoolean granted = new AtomicBoolean(false);
+        userInFlight.compute(userKey, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= properties.getMaxConcurrentPerUser()) {
+                return count;
+            }
+            granted.set(true);
+            return current + 1;
+        });
+        return granted.get();
+    }
+
+    private void releaseUser(String userKey) {
+        if (userKey != null) {
+            userInFlight.computeIfPresent(userKey, (key, count) -> count <= 1 ? null : count - 1);
+        }
+    }
+
+    private LlmOverloadedException reject(String reason, String message) {
+        meterRegistry.counter("llm.bulkhead.rejections", "reason", reason).increment();
+        // 预计等待时间 ≈ 平均持有时长 × (排队数 + 1) / 并发上限
+        double seconds = holdMillisEwma / 1000 * (waiting.get() + 1) / Math.max(1, properties.getMaxConcurrent());
+        int retryAfter = (int) Math.min(properties.getMaxRetryAfterSeconds(), Math.max(1, Math.ceil(seconds)));
+        log.warn("大模型调用被限流，原因：{}，建议 {} 秒后重试", reason, retryAfter);
+        return new LlmOverloadedException(message, retryAfter);
+    }
+
+    /**
+     * 调用许可，关闭即释放（可重复关闭）
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String userKey;
+        private final AtomicBoolean held;
+        private final long acquiredAt = System.currentTimeMillis();
+
+        private Permit(String userKey, boolean held) {
+            this.userKey = userKey;
+            this.held = new AtomicBoolean(held);
+        }
+
+        @Override
+        public void close() {
+            if (!held.compareAndSet(true, false)) {
+                return;
+            }
+            holdMillisEwma = holdMillisEwma * 0.9 + (System.currentTimeMillis() - acquiredAt) * 0.1;
+            globalPermits.release();
+            releaseUser(userKey);
+        }
+    }
+}
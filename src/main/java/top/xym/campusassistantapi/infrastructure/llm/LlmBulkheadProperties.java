@@ -0,0 +1,40 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 大模型调用并发隔离配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.bulkhead")
+public class LlmBulkheadProperties {
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+    /**
+     * 全局并发上限（本节点同时进行的大模型调用数）
+     */
+    private int maxConcurrent = 64;
+    /**
+     * 单个用户的并发上限
+     */
+    private int maxConcurrentPerUser = 2;
+    /**
+     * 等待队列长度上限，超出直接拒绝
+     */
+    private int maxQueueDepth = 128;
+    /**
+     * 排队等待的最长时间
+     */
+    private Duration maxWait = Duration.ofSeconds(3);
+    /**
+     * Retry-After 提示的上限（秒）
+     */
+    private int maxRetryAfterSeconds = 30;
+}
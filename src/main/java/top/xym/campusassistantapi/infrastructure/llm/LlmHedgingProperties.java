@@ -0,0 +1,48 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 大模型同步调用对冲（hedged request）配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.hedging")
+public class LlmHedgingProperties {
+    /**
+     * 是否启用对冲（会额外消耗 Token，默认关闭）
+     */
+    private boolean enabled = false;
+    /**
+     * 等待到最近时延的该分位数仍无结果时发起对冲请求
+     */
+    private double percentile = 0.95;
+    /**
+     * 对冲等待时间下限
+     */
+    private Duration minDelay = Duration.ofMillis(500);
+    /**
+     * 对冲等待时间上限（样本不足时也使用该值）
+     */
+    private Duration maxDelay = Duration.ofSeconds(10);
+    /**
+     * 对冲请求占总请求数的比例上限（落后的请求不会被中止，并发隔离容量需按该比例预留余量）
+     */
+    private double budgetRatio = 0.05;
+    /**
+     * 每个场景保留的最近时延样本数
+     */
+    private int windowSize = 200;
+    /**
+     * 样本数达到该值后才按分位数计算等待时间
+     */
+    private int minSamples = 20;
+    /**
+     * 执行调用的最大线程数
+     */
+    private int maxThreads = 64;
+}
@@ -0,0 +1,28 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import lombok.Getter;
+import top.xym.campusassistantapi.common.exception.ServerException;
+
+import java.io.Serial;
+
+/**
+ * 大模型调用被限流（并发已满或排队超时），对应 HTTP 429
+ */
+@Getter
+public class LlmOverloadedException extends ServerException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * 建议客户端重试的等待秒数
+     */
+    private final int retryAfterSeconds;
+
+    public LlmOverloadedException(String message, int retryAfterSeconds) {
+        super(TOO_MANY_REQUESTS, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,210 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 大模型请求合并（single-flight）
+ * 同一时刻相同的提示词只发起一次上游调用，其余请求共享结果：
+ * - 同步调用：后到的请求等待首个请求的结果
+ * - 流式调用：多个订阅者共享同一个 Flux，后加入者先回放已产生的片段再跟随实时输出
+ */
+@Component
+public class LlmRequestCoalescer {
+
+    private final Map<String, CompletableFuture<Object>> inFlightCalls = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Flux<?>>> inFlightStreams = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public LlmRequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("llm.coalesce.in_flight", inFlightCalls, Map::size)
+                .tag("type", "call")
+                .register(meterRegistry);
+        Gauge.builder("llm.coalesce.in_flight", inFlightStreams, Map::size)
+                .tag("type", "stream")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 合并同步调用
+     *
+     * @param scope    调用场景（如 qna.ask），不同场景之间不合并
+     * @param key      合并键（通常为完整提示词）
+     * @param upstream 实际的上游调用
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T call(String scope, String key, Supplier<T> upstream) {
+        String flightKey = scope + ":" + key;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlightCalls.putIfAbsent(flightKey, mine);
+        if (existing != null) {
+            counter(scope, "saved").increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        counter(scope, "upstream").increment();
+        try {
+            T result = upstream.get();
+            mine.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Error 同样要通知等待者，否则它们会一直阻塞在 join 上
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(flightKey, mine);
+        }
+    }
+
+    /**
+     * 合并流式调用
+     * 首个请求在调用线程上立即执行 upstream 的组装（如获取并发许可），组装失败时异常直接抛给调用方并移出合并表；
+     * 组装在合并表的锁之外进行，期间到达的相同请求等组装完成后加入。
+     * 后加入的请求共享已有的流；所有订阅者都取消后上游订阅随之取消；上游结束后自动移出合并表。
+     * 上游只连接一次：全部取消后才订阅的请求重新走合并流程（重新获取许可），不会无许可地再次调用上游
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> stream(String scope, String key, Supplier<Flux<T>> upstream) {
+        String flightKey = scope + ":" + key;
+        CompletableFuture<Flux<?>> mine = new CompletableFuture<>();
+        CompletableFuture<Flux<?>> existing = inFlightStreams.putIfAbsent(flightKey, mine);
+        if (existing != null) {
+            counter(scope, "saved").increment();
+            Flux<?> ready = existing.getNow(null);
+            if (ready != null) {
+                return (Flux<T>) ready;
+            }
+            // 首个请求仍在组装：不阻塞，组装完成后再订阅（取消时不影响其他等待者）
+            return Mono.fromFuture(existing, true).flatMapMany(flux -> (Flux<T>) flux);
+        }
+
+        counter(scope, "upstream").increment();
+        try {
+            Flux<T> source = upstream.get()
+                    .doFinally(signal -> inFlightStreams.remove(flightKey, mine));
+            Flux<T> shared = new SharedFlight<>(source, () -> {
+                inFlightStreams.remove(flightKey, mine);
+                return stream(scope, key, upstream);
+            }).flux();
+            mine.complete(shared);
+            return shared;
+        } catch (Throwable e) {
+            inFlightStreams.remove(flightKey, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Counter counter(String scope, String result) {
+        return meterRegistry.counter("llm.coalesce.calls", "scope", scope, "result", result);
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (e.getCause() instanceof Error error) {
+            throw error;
+        }
+        return e;
+    }
+
+    /**
+     * 一次共享的上游连接
+     * 与 replay().refCount() 不同，上游最多只连接一次：refCount 在订阅者全部取消后再次订阅会重新连接上游，
+     * 而上游的并发许可是首个请求组装时获取的、已随第一次结束释放，重连的调用就没有许可。
+     * - replay：后加入的订阅者先收到已发出的片段；上游结束后再订阅，回放缓存的完整结果
+     * - 订阅者全部取消（上游未结束）时断开上游；此后再订阅的请求通过 rejoin 重新走合并流程
+     */
+    private static final class SharedFlight<T> {
+
+        private final ConnectableFlux<T> replay;
+        private final Supplier<Flux<T>> rejoin;
+        private int subscribers;
+        private boolean connected;
+        private boolean terminated;
+        private boolean disconnected;
+        private Disposable connection;
+
+        SharedFlight(Flux<T> source, Supplier<Flux<T>> rejoin) {
+            this.replay = source.doFinally(this::onSourceFinally).replay();
+            this.rejoin = rejoin;
+        }
+
+        Flux<T> flux() {
+            return Flux.defer(() -> {
+                boolean rejoining;
+                synchronized (this) {
+                    rejoining = disconnected;
+                    if (!rejoining) {
+                        subscribers++;
+                    }
+                }
+                if (rejoining) {
+                    return rejoin.get();
+                }
+                return replay.doOnSubscribe(subscription -> connect()).doFinally(this::release);
+            });
+        }
+
+        private void connect() {
+            synchronized (this) {
+                if (connected) {
+                    return;
+                }
+                connected = true;
+            }
+            replay.connect(disposable -> {
+                boolean dispose;
+                synchronized (this) {
+                    connection = disposable;
+                    dispose = disconnected;
+                }
+                if (dispose) {
+                    disposable.dispose();
+                }
+            });
+        }
+
+        private void release(SignalType signal) {
+            Disposable toDispose;
+            synchronized (this) {
+                subscribers--;
+                if (subscribers > 0 || signal != SignalType.CANCEL || terminated || disconnected) {
+                    return;
+                }
+                disconnected = true;
+                toDispose = connection;
+            }
+            if (toDispose != null) {
+                toDispose.dispose();
+            }
+        }
+
+        private void onSourceFinally(SignalType signal) {
+            if (signal != SignalType.CANCEL) {
+                synchronized (this) {
+                    terminated = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package top.xym.campusassistantapi.infrastructure.llm.routing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模型路由决策
+ * 1. 按请求特征（提问长度、是否带图、是否需要工具）选择满足条件的最低成本档位
+ * 2. 档位模型的滚动时延超出 SLO 或错误率超限时，转移到配置的 fallback 模型
+ * 3. 转移期间按间隔放行探测请求，主模型恢复后自动切回
+ */
+@Slf4j
+@Component
+public class ModelRouter {
+
+    private final ModelRoutingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ModelStats> stats = new ConcurrentHashMap<>();
+
+    public ModelRouter(ModelRoutingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 选择模型
+     *
+     * @param inputChars  本轮提问字符数
+     * @param needsImages 是否包含图片
+     * @param needsTools  是否需要工具调用
+     * @return 模型名称，无匹配档位时返回 null（沿用请求原有模型）
+     */
+    public String route(int inputChars, boolean needsImages, boolean needsTools) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        ModelRoutingProperties.ModelTier tier = null;
+        for (ModelRoutingProperties.ModelTier candidate : properties.getTiers()) {
+            if (matches(candidate, inputChars, needsImages, needsTools)) {
+                tier = candidate;
+                break;
+            }
+        }
+        if (tier == null) {
+            return null;
+        }
+        ModelStats primary = statsOf(tier.getModel());
+        if (primary.isHealthy(tier, properties.getMinSamples())) {
+            count(tier.getModel(), "primary");
+            return tier.getModel();
+        }
+        ModelRoutingProperties.ModelTier fallback = tierOf(tier.getFallback());
+        boolean fallbackUsable = tier.getFallback() != null
+                && (fallback == null || matches(fallback, 0, needsImages, needsTools));
+        if (!fallbackUsable || primary.tryProbe(properties.getProbeInterval().toMillis())) {
+            count(tier.getModel(), fallbackUsable ? "probe" : "degraded");
+            return tier.getModel();
+        }
+        count(tier.getFallback(), "failover");
+        log.debug("模型{}超出时延目标或错误率过高（{}ms，{}），转移到{}",
+                tier.getModel(), (long) primary.latencyMillis(), primary.errorRate(), tier.getFallback());
+        return tier.getFallback();
+    }
+
+    /**
+     * 调用失败（未产生任何输出）时可立即重试的模型，没有则返回 null
+     */
+    public String fallbackOf(String model) {
+        ModelRoutingProperties.ModelTier tier = tierOf(model);
+        return tier == null ? null : tier.getFallback();
+    }
+
+    public void recordSuccess(String model, long latencyMillis) {
+        if (model != null) {
+            statsOf(model).recordSuccess(latencyMillis);
+        }
+    }
+
+    public void recordFailure(String model) {
+        if (model != null) {
+            statsOf(model).recordFailure();
+        }
+    }
+
+    private boolean matches(ModelRoutingProperties.ModelTier tier, int inputChars, boolean needsImages, boolean needsTools) {
+        return (tier.getMaxInputChars() <= 0 || inputChars <= tier.getMaxInputChars())
+                && (!needsImages || tier.isSupportsImages())
+                && (!needsTools || tier.isSupportsTools());
+    }
+
+    private ModelRoutingProperties.ModelTier tierOf(String model) {
+        if (model == null) {
+            return null;
+        }
+        for (ModelRoutingProperties.ModelTier tier : properties.getTiers()) {
+            if (model.equals(tier.getModel())) {
+                return tier;
+            }
+        }
+        return null;
+    }
+
+    private ModelStats statsOf(String model) {
+        return stats.computeIfAbsent(model, name -> {
+            ModelStats modelStats = new ModelStats(properties.getEwmaAlpha());
+            Gauge.builder("llm.route.latency", modelStats, ModelStats::latencyMillis)
+                    .tag("model", name)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("llm.route.error.rate", modelStats, ModelStats::errorRate)
+                    .tag("model", name)
+                    .register(meterRegistry);
+            return modelStats;
+        });
+    }
+
+    private void count(String model, String reason) {
+        meterRegistry.counter("llm.route.decisions", "model", model, "reason", reason).increment();
+    }
+}
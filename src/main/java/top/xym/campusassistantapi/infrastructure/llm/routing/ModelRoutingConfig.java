@@ -0,0 +1,26 @@
+package top.xym.campusassistantapi.infrastructure.llm.routing;
+
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatModel;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import top.xym.campusassistantapi.infrastructure.llm.sim.SimulatedChatModel;
+
+/**
+ * 多模型路由装配：以路由装饰后的 ChatModel 作为首选实现，
+ * ChatClient、MessageService 与 ReactAgent 注入的 ChatModel 均经过路由
+ */
+@Configuration
+@Profile("!" + SimulatedChatModel.PROFILE)
+@ConditionalOnProperty(prefix = "campus.ai.routing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ModelRoutingConfig {
+
+    @Bean
+    @Primary
+    public ChatModel routingChatModel(DashScopeChatModel dashScopeChatModel, ModelRouter modelRouter) {
+        return new RoutingChatModel(dashScopeChatModel, modelRouter);
+    }
+}
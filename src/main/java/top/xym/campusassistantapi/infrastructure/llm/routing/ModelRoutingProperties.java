@@ -0,0 +1,71 @@
+package top.xym.campusassistantapi.infrastructure.llm.routing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多模型路由配置
+ * 档位按成本从低到高排列，每次请求选择第一个满足条件的档位
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.routing")
+public class ModelRoutingProperties {
+    /**
+     * 是否启用路由（未配置档位时不改写模型）
+     */
+    private boolean enabled = true;
+    /**
+     * 模型档位列表
+     */
+    private List<ModelTier> tiers = new ArrayList<>();
+    /**
+     * 时延/错误率统计的平滑系数（越大越敏感）
+     */
+    private double ewmaAlpha = 0.2;
+    /**
+     * 统计样本少于该值时不判定为不健康
+     */
+    private int minSamples = 5;
+    /**
+     * 故障转移期间每隔多久放行一次请求探测主模型是否恢复
+     */
+    private Duration probeInterval = Duration.ofSeconds(10);
+
+    @Data
+    public static class ModelTier {
+        /**
+         * 模型名称（如 qwen-turbo、qwen-plus、qwen-vl-plus）
+         */
+        private String model;
+        /**
+         * 可处理的最长提问字符数，0 表示不限
+         */
+        private int maxInputChars;
+        /**
+         * 是否支持图片
+         */
+        private boolean supportsImages;
+        /**
+         * 是否支持工具调用
+         */
+        private boolean supportsTools = true;
+        /**
+         * 时延目标（流式为首包时延，同步为整体耗时），超出后转移到 fallback
+         */
+        private Duration latencySlo = Duration.ofSeconds(5);
+        /**
+         * 错误率上限，超出后转移到 fallback
+         */
+        private double maxErrorRate = 0.2;
+        /**
+         * 故障转移目标模型（为空表示不转移）
+         */
+        private String fallback;
+    }
+}
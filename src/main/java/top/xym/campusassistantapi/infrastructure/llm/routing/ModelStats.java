@@ -0,0 +1,55 @@
+package top.xym.campusassistantapi.infrastructure.llm.routing;
+
+/**
+ * 单个模型的滚动统计（指数移动平均）
+ */
+class ModelStats {
+
+    private final double alpha;
+    private double latencyMillis = -1;
+    private double errorRate;
+    private long samples;
+    private long lastProbeMillis;
+
+    ModelStats(double alpha) {
+        this.alpha = alpha;
+    }
+
+    synchronized void recordSuccess(long latencyMillis) {
+        this.latencyMillis = this.latencyMillis < 0 ? latencyMillis : this.latencyMillis * (1 - alpha) + latencyMillis * alpha;
+        this.errorRate = errorRate * (1 - alpha);
+        samples++;
+    }
+
+    synchronized void recordFailure() {
+        this.errorRate = errorRate * (1 - alpha) + alpha;
+        samples++;
+    }
+
+    synchronized boolean isHealthy(ModelRoutingProperties.ModelTier tier, int minSamples) {
+        if (samples < minSamples) {
+            return true;
+        }
+        return latencyMillis <= tier.getLatencySlo().toMillis() && errorRate <= tier.getMaxErrorRate();
+    }
+
+    /**
+     * 故障转移期间按间隔放行一次探测请求
+     */
+    synchronized boolean tryProbe(long intervalMillis) {
+        long now = System.currentTimeMillis();
+        if (now - lastProbeMillis < intervalMillis) {
+            return false;
+        }
+        lastProbeMillis = now;
+        return true;
+    }
+
+    synchronized double latencyMillis() {
+        return Math.max(0, latencyMillis);
+    }
+
+    synchronized double errorRate() {
+        return errorRate;
+    }
+}
@@ -0,0 +1,131 @@
+package top.xym.campusassistantapi.infrastructure.llm.routing;
+
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按请求特征路由到不同模型的 ChatModel 装饰器
+ * 改写 Prompt 中 DashScopeChatOptions 的 model 字段，调用失败且尚未产生输出时在 fallback 模型上重试一次
+ */
+public class RoutingChatModel implements ChatModel {
+
+    /**
+     * 用户消息元数据中的图片标记（图片以 URL 文本形式拼进提示词时由调用方设置）
+     */
+    public static final String IMAGES_HINT = "campus.routing.images";
+
+    private final ChatModel delegate;
+    private final ModelRouter router;
+
+    public RoutingChatModel(ChatModel delegate, ModelRouter router) {
+        this.delegate = delegate;
+        this.router = router;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String model = route(prompt);
+        try {
+            return callOn(prompt, model);
+        } catch (RuntimeException e) {
+            String fallback = router.fallbackOf(model);
+            if (fallback == null) {
+                throw e;
+            }
+            return callOn(prompt, fallback);
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> streamOn(prompt, route(prompt), true));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private ChatResponse callOn(Prompt prompt, String model) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = delegate.call(withModel(prompt, model));
+            router.recordSuccess(model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return response;
+        } catch (RuntimeException e) {
+            router.recordFailure(model);
+            throw e;
+        }
+    }
+
+    /**
+     * 流式调用：以首包时延作为时延样本
+     */
+    private Flux<ChatResponse> streamOn(Prompt prompt, String model, boolean allowFallback) {
+        long start = System.nanoTime();
+        AtomicBoolean emitted = new AtomicBoolean(false);
+        return delegate.stream(withModel(prompt, model))
+                .doOnNext(response -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        router.recordSuccess(model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                })
+                .onErrorResume(error -> {
+                    router.recordFailure(model);
+                    String fallback = router.fallbackOf(model);
+                    // 已向下游输出过内容时不能重试，否则会出现重复片段
+                    if (!allowFallback || emitted.get() || fallback == null) {
+                        return Flux.error(error);
+                    }
+                    return streamOn(prompt, fallback, false);
+                });
+    }
+
+    private String route(Prompt prompt) {
+        List<Message> instructions = prompt.getInstructions();
+        UserMessage lastUser = null;
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            if (instructions.get(i) instanceof UserMessage userMessage) {
+                lastUser = userMessage;
+                break;
+            }
+        }
+        int inputChars = lastUser == null || lastUser.getText() == null ? 0 : lastUser.getText().length();
+        boolean needsImages = lastUser != null
+                && (!lastUser.getMedia().isEmpty() || Boolean.TRUE.equals(lastUser.getMetadata().get(IMAGES_HINT)));
+        boolean needsTools = prompt.getOptions() instanceof ToolCallingChatOptions toolOptions
+                && (!toolOptions.getToolCallbacks().isEmpty() || !toolOptions.getToolNames().isEmpty());
+        return router.route(inputChars, needsImages, needsTools);
+    }
+
+    /**
+     * 复制选项并替换模型，只处理 DashScope 选项（其他类型原样透传）
+     */
+    private Prompt withModel(Prompt prompt, String model) {
+        if (model == null) {
+            return prompt;
+        }
+        ChatOptions options = prompt.getOptions();
+        DashScopeChatOptions routed;
+        if (options == null) {
+            routed = DashScopeChatOptions.builder().withModel(model).build();
+        } else if (options instanceof DashScopeChatOptions dashScopeOptions) {
+            routed = DashScopeChatOptions.fromOptions(dashScopeOptions);
+            routed.setModel(model);
+        } else {
+            return prompt;
+        }
+        return new Prompt(prompt.getInstructions(), routed);
+    }
+}
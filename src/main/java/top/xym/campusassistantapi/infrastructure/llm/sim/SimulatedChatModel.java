@@ -0,0 +1,268 @@
+package top.xym.campusassistantapi.infrastructure.llm.sim;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import top.xym.campusassistantapi.module.message.history.TokenEstimator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 本地模拟大模型（spring.profiles.active=llm-sim 时替换通义千问）
+ * - 输出完全由种子和提示词决定，可重复压测
+ * - 可配置首 Token 时延、输出速度、抖动，以及出错/卡住的概率
+ * - 按关键词脚本返回工具调用，用于驱动 ReactAgent 的工具链路
+ * 不消耗 DashScope 额度，用于离线测量流式链路的吞吐与时延
+ */
+@Slf4j
+@Primary
+@Component
+@Profile(SimulatedChatModel.PROFILE)
+public class SimulatedChatModel implements ChatModel {
+
+    public static final String PROFILE = "llm-sim";
+
+    private static final String MODEL_NAME = "campus-simulator";
+
+    /**
+     * 输出语料：按随机长度切分成 Token 循环使用
+     */
+    private static final String CORPUS = "同学你好，这是模拟回答。根据校园信息系统的数据，相关事项可以在教务处、图书馆或学生服务中心办理，"
+            + "具体时间请以学校最新通知为准。如果还有其他问题，可以继续提问，我会尽力为你解答。"
+            + "Simulated answer for load testing, streaming tokens at a configured pace. ";
+
+    private final SimulatedChatModelProperties properties;
+
+    public SimulatedChatModel(SimulatedChatModelProperties properties) {
+        this.properties = properties;
+        log.warn("已启用本地模拟大模型（{}），所有模型调用不会访问 DashScope", PROFILE);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        Script script = script(prompt);
+        sleep(script.firstDelay);
+        if (script.toolCall != null) {
+            return toolCallResponse(script);
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < script.tokens.size(); i++) {
+            if (i == script.failAt) {
+                throw new SimulatedModelException("模拟模型调用失败（第 " + i + " 个 Token）");
+            }
+            if (i == script.stallAt) {
+                sleep(properties.getStallDuration());
+                throw new SimulatedModelException("模拟模型调用超时", new TimeoutException());
+            }
+            text.append(script.tokens.get(i));
+            sleep(script.gaps[i]);
+        }
+        return textResponse(text.toString(), script, script.tokens.size());
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            Script script = script(prompt);
+            if (script.toolCall != null) {
+                return Mono.delay(script.firstDelay).map(tick -> toolCallResponse(script)).flux();
+            }
+            Flux<ChatResponse> tokens = Flux.range(0, script.tokens.size())
+                    .concatMap(i -> {
+                        if (i == script.failAt) {
+                            return Mono.error(new SimulatedModelException("模拟模型调用失败（第 " + i + " 个 Token）"));
+                        }
+                        if (i == script.stallAt) {
+                            return Mono.delay(properties.getStallDuration())
+                                    .then(Mono.error(new SimulatedModelException("模拟模型调用超时", new TimeoutException())));
+                        }
+                        Duration delay = i == 0 ? script.firstDelay : script.gaps[i - 1];
+                        return Mono.delay(delay).map(tick -> textResponse(script.tokens.get(i), script, i + 1));
+                    });
+            return tokens;
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().model(MODEL_NAME).build();
+    }
+
+    /**
+     * 根据提示词生成本次调用的完整脚本（Token、时延、故障点）
+     */
+    private Script script(Prompt prompt) {
+        List<Message> instructions = prompt.getInstructions();
+        String promptText = promptText(instructions);
+        Random random = new Random(properties.getSeed() * 31 + promptText.hashCode());
+
+        Script script = new Script();
+        script.promptTokens = TokenEstimator.estimate(promptText);
+        script.firstDelay = jittered(properties.getTimeToFirstToken().toNanos(), random);
+        script.toolCall = scriptedToolCall(instructions);
+        if (script.toolCall != null) {
+            return script;
+        }
+
+        int min = Math.max(1, properties.getMinResponseTokens());
+        int count = min + random.nextInt(Math.max(1, properties.getMaxResponseTokens() - min + 1));
+        String prefix = toolResultPrefix(instructions);
+        script.tokens = tokenize(prefix, count, random);
+        long gapNanos = (long) (1_000_000_000L / Math.max(0.1, properties.getTokensPerSecond()));
+        script.gaps = new Duration[script.tokens.size()];
+        for (int i = 0; i < script.gaps.length; i++) {
+            script.gaps[i] = jittered(gapNanos, random);
+        }
+        if (random.nextDouble() < properties.getErrorRate()) {
+            script.failAt = random.nextInt(script.tokens.size());
+        } else if (random.nextDouble() < properties.getTimeoutRate()) {
+            script.stallAt = random.nextInt(script.tokens.size());
+        }
+        return script;
+    }
+
+    /**
+     * 最后一条用户消息命中脚本关键词，且其后还没有工具结果时返回工具调用
+     */
+    private AssistantMessage.ToolCall scriptedToolCall(List<Message> instructions) {
+        String lastUserText = null;
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            Message message = instructions.get(i);
+            if (message.getMessageType() == MessageType.TOOL) {
+                return null;
+            }
+            if (message.getMessageType() == MessageType.USER) {
+                lastUserText = message.getText();
+                break;
+            }
+        }
+        if (lastUserText == null) {
+            return null;
+        }
+        for (SimulatedChatModelProperties.ToolScript toolScript : properties.getToolScripts()) {
+            if (toolScript.getKeyword() != null && lastUserText.contains(toolScript.getKeyword())) {
+                String id = "sim-" + Integer.toHexString((lastUserText + toolScript.getTool()).hashCode());
+                return new AssistantMessage.ToolCall(id, "function", toolScript.getTool(), toolScript.getArguments());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 工具调用之后的回答以工具结果开头，便于核对工具链路是否打通
+     */
+    private String toolResultPrefix(List<Message> instructions) {
+        Message last = instructions.isEmpty() ? null : instructions.get(instructions.size() - 1);
+        if (!(last instanceof ToolResponseMessage toolResponse) || toolResponse.getResponses().isEmpty()) {
+            return "";
+        }
+        String data = toolResponse.getResponses().get(0).responseData();
+        return "根据查询结果：" + (data.length() > 60 ? data.substring(0, 60) + "…" : data) + "\n";
+    }
+
+    private List<String> tokenize(String prefix, int count, Random random) {
+        List<String> tokens = new ArrayList<>(count + prefix.length() / 2);
+        for (int i = 0; i < prefix.length(); i += 2) {
+            tokens.add(prefix.substring(i, Math.min(prefix.length(), i + 2)));
+        }
+        int offset = random.nextInt(CORPUS.length());
+        for (int i = 0; i < count; i++) {
+            // 每个 Token 1~3 个字符，近似中文分词粒度
+            int length = 1 + random.nextInt(3);
+            StringBuilder token = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                token.append(CORPUS.charAt(offset));
+                offset = (offset + 1) % CORPUS.length();
+            }
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private ChatResponse textResponse(String text, Script script, int completionTokens) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata(script, completionTokens));
+    }
+
+    private ChatResponse toolCallResponse(Script script) {
+        AssistantMessage message = AssistantMessage.builder().content("").toolCalls(List.of(script.toolCall)).build();
+        return new ChatResponse(List.of(new Generation(message)), metadata(script, 1));
+    }
+
+    private ChatResponseMetadata metadata(Script script, int completionTokens) {
+        return ChatResponseMetadata.builder()
+                .model(MODEL_NAME)
+                .usage(new DefaultUsage(script.promptTokens, completionTokens))
+                .build();
+    }
+
+    private Duration jittered(long baseNanos, Random random) {
+        double factor = 1 + properties.getJitter() * (random.nextDouble() * 2 - 1);
+        return Duration.ofNanos(Math.max(0, (long) (baseNanos * factor)));
+    }
+
+    private static String promptText(List<Message> instructions) {
+        StringBuilder sb = new StringBuilder();
+        for (Message message : instructions) {
+            sb.append(message.getMessageType().getValue()).append(':');
+            if (message.getText() != null) {
+                sb.append(message.getText());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SimulatedModelException("模拟模型调用被中断", e);
+        }
+    }
+
+    /**
+     * 单次调用的脚本
+     */
+    private static final class Script {
+        private int promptTokens;
+        private Duration firstDelay;
+        private AssistantMessage.ToolCall toolCall;
+        private List<String> tokens = List.of();
+        private Duration[] gaps = new Duration[0];
+        private int failAt = -1;
+        private int stallAt = -1;
+    }
+
+    /**
+     * 模拟的模型调用异常
+     */
+    public static class SimulatedModelException extends RuntimeException {
+
+        public SimulatedModelException(String message) {
+            super(message);
+        }
+
+        public SimulatedModelException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package top.xym.campusassistantapi.infrastructure.llm.sim;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地模拟大模型配置（仅 llm-sim 环境生效）
+ */
+@Data
+@Component
+@Profile(SimulatedChatModel.PROFILE)
+@ConfigurationProperties(prefix = "campus.ai.simulator")
+public class SimulatedChatModelProperties {
+    /**
+     * 随机种子：相同种子 + 相同提示词得到完全相同的输出与时延
+     */
+    private long seed = 20250901L;
+    /**
+     * 首 Token 时延
+     */
+    private Duration timeToFirstToken = Duration.ofMillis(400);
+    /**
+     * 输出速度（Token/秒）
+     */
+    private double tokensPerSecond = 30;
+    /**
+     * 时延抖动比例（0.2 表示 ±20%）
+     */
+    private double jitter = 0.2;
+    /**
+     * 每次回答的最少 Token 数
+     */
+    private int minResponseTokens = 80;
+    /**
+     * 每次回答的最多 Token 数
+     */
+    private int maxResponseTokens = 240;
+    /**
+     * 中途出错的概率
+     */
+    private double errorRate = 0;
+    /**
+     * 中途卡住（超时）的概率
+     */
+    private double timeoutRate = 0;
+    /**
+     * 卡住多久后以超时结束
+     */
+    private Duration stallDuration = Duration.ofSeconds(30);
+    /**
+     * 工具调用脚本：用户提问包含关键词时先返回对应的工具调用
+     */
+    private List<ToolScript> toolScripts = new ArrayList<>(List.of(
+            new ToolScript("课程表", "course_query",
+                    "{\"operation\":\"querySchedule\",\"studentId\":\"2022001\",\"semester\":\"2025-1\"}"),
+            new ToolScript("成绩", "grade_query",
+                    "{\"operation\":\"querySemesterGrades\",\"studentId\":\"2022001\",\"semester\":\"2025-1\"}"),
+            new ToolScript("食堂", "dining_info",
+                    "{\"operation\":\"queryOperatingHours\",\"diningHall\":\"第一食堂\"}")
+    ));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ToolScript {
+        /**
+         * 触发关键词
+         */
+        private String keyword;
+        /**
+         * 工具名称（与 ToolCallback 注册名一致）
+         */
+        private String tool;
+        /**
+         * 工具参数（JSON）
+         */
+        private String arguments;
+    }
+}
@@ -0,0 +1,75 @@
+package top.xym.campusassistantapi.infrastructure.llm.tool;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 工具节点调用时优先领取 {@link ParallelToolExecutor} 已提交的结果，没有时直接执行
+ * 并行执行的工具共用工具节点的同一个工具上下文，工具不应写入其中的状态更新
+ */
+@Slf4j
+public class ParallelToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    /**
+     * 同一智能体的全部原始工具：工具名 -> 工具
+     */
+    private final Map<String, ToolCallback> tools;
+    private final ParallelToolExecutor executor;
+
+    ParallelToolCallback(ToolCallback delegate, Map<String, ToolCallback> tools, ParallelToolExecutor executor) {
+        this.delegate = delegate;
+        this.tools = tools;
+        this.executor = executor;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        String toolName = getToolDefinition().name();
+        ParallelToolExecutor.Pending pending = executor.claim(tools, toolName, toolInput, toolContext);
+        if (pending == null) {
+            return toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+        }
+        try {
+            return pending.future().get(executor.remainingNanos(pending), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            pending.future().cancel(true);
+            executor.meterRegistry().counter("agent.tool.timeouts", "tool", toolName).increment();
+            log.warn("工具{}执行超时（本轮上限{}ms）", toolName, executor.turnTimeoutMillis());
+            return "错误：工具 " + toolName + " 执行超时，请稍后重试";
+        } catch (ExecutionException e) {
+            // 与直接执行时一样把异常交给工具节点处理
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("工具 " + toolName + " 执行失败", e.getCause());
+        } catch (InterruptedException e) {
+            pending.future().cancel(true);
+            Thread.currentThread().interrupt();
+            return "错误：工具 " + toolName + " 执行被中断";
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package top.xym.campusassistantapi.infrastructure.llm.tool;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.agent.tools.ToolContextConstants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 智能体同一轮多个工具调用的并行执行
+ * ReactAgent 的工具节点按顺序逐个调用工具，无法替换；这里在工具节点调用第一个工具时（{@link ParallelToolCallback}），
+ * 从工具上下文里的智能体状态取出本轮助手消息的全部工具调用，其余调用带同一个工具上下文同时提交到线程池，
+ * 工具节点随后调用到它们时直接等待对应结果，整轮耗时取决于最慢的工具而非总和。结果仍由工具节点按模型给出的顺序写入对话历史。
+ * 已提交的调用按 图线程ID + 工具调用ID 登记，只会被同一轮领取。
+ * 只作用于智能体装配的工具，不影响其他 ChatModel 的工具执行。
+ */
+@Slf4j
+@Component
+public class ParallelToolExecutor {
+
+    private final ToolExecutionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 已提交的批次：图线程ID + 助手消息中第一个工具调用ID -> 该消息全部工具调用的执行结果
+     */
+    private final Map<BatchKey, Batch> batches = new ConcurrentHashMap<>();
+
+    public ParallelToolExecutor(ToolExecutionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        int threads = Math.max(1, properties.getMaxThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 有界队列 + 拒绝：提交方捕获拒绝后不预执行，由工具节点照常顺序执行
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "agent-tool-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("agent.tool.prefetch.pending", batches, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * 智能体的一组工具包装为并行执行版本（同一组内按工具名查找同一轮的其他调用）
+     */
+    public List<ToolCallback> wrap(List<ToolCallback> callbacks) {
+        Map<String, ToolCallback> tools = new LinkedHashMap<>();
+        for (ToolCallback callback : callbacks) {
+            tools.put(callback.getToolDefinition().name(), callback);
+        }
+        Map<String, ToolCallback> group = Map.copyOf(tools);
+        return callbacks.stream()
+                .<ToolCallback>map(callback -> new ParallelToolCallback(callback, group, this))
+                .toList();
+    }
+
+    /**
+     * 工具节点调用某个工具时领取它的执行结果
+     * 本轮（同一条助手消息）第一次调用时把其余调用带着同一个工具上下文提交执行，当前调用由调用方直接执行
+     *
+     * @return 已提交的执行结果；为 null 时由调用方直接执行（第一个调用、单个调用、无智能体上下文或线程池已满）
+     */
+    Pending claim(Map<String, ToolCallback> tools, String toolName, String arguments, ToolContext toolContext) {
+        if (!properties.isParallel() || toolContext == null) {
+            return null;
+        }
+        Map<String, Object> context = toolContext.getContext();
+        if (!(context.get(ToolContextConstants.AGENT_STATE_CONTEXT_KEY) instanceof OverAllState state)
+                || !(context.get(ToolContextConstants.AGENT_CONFIG_CONTEXT_KEY) instanceof RunnableConfig config)) {
+            return null;
+        }
+        List<AssistantMessage.ToolCall> toolCalls = pendingToolCalls(state);
+        if (toolCalls.size() < 2) {
+            return null;
+        }
+        evictExpired();
+        BatchKey key = new BatchKey(config.threadId().orElse(""), toolCalls.get(0).id());
+        Batch batch = batches.computeIfAbsent(key, k -> submit(toolCalls, tools, toolContext));
+        Pending pending = batch.claim(toolName, arguments);
+        if (batch.isDrained()) {
+            batches.remove(key, batch);
+        }
+        return pending;
+    }
+
+    /**
+     * 本轮剩余等待时间
+     */
+    long remainingNanos(Pending pending) {
+        return Math.max(0, pending.submittedAt() + properties.getTurnTimeout().toNanos() - System.nanoTime());
+    }
+
+    long turnTimeoutMillis() {
+        return properties.getTurnTimeout().toMillis();
+    }
+
+    MeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交一条助手消息中的全部工具调用，第一个调用留给正在调用的工具节点直接执行
+     */
+    private Batch submit(List<AssistantMessage.ToolCall> toolCalls, Map<String, ToolCallback> tools, ToolContext toolContext) {
+        long submittedAt = System.nanoTime();
+        List<Slot> slots = new ArrayList<>(toolCalls.size());
+        for (int i = 0; i < toolCalls.size(); i++) {
+            AssistantMessage.ToolCall toolCall = toolCalls.get(i);
+            ToolCallback callback = tools.get(toolCall.name());
+            Future<String> future = null;
+            if (i > 0 && callback != null) {
+                try {
+                    future = executor.submit(() -> invoke(callback, toolCall, toolContext));
+                } catch (RejectedExecutionException e) {
+                    meterRegistry.counter("agent.tool.prefetch.rejected").increment();
+                    log.warn("工具线程池已满，{}回退为顺序执行", toolCall.name());
+                }
+            }
+            slots.add(new Slot(toolCall, future == null ? null : new Pending(future, submittedAt)));
+        }
+        return new Batch(slots, submittedAt);
+    }
+
+    private String invoke(ToolCallback callback, AssistantMessage.ToolCall toolCall, ToolContext toolContext) {
+        long start = System.nanoTime();
+        try {
+            return callback.call(toolCall.arguments(), toolContext);
+        } finally {
+            Timer.builder("agent.tool.duration")
+                    .tag("tool", toolCall.name())
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 工具节点正在执行的工具调用：状态中最后一条消息为带工具调用的助手消息
+     */
+    @SuppressWarnings("unchecked")
+    private static List<AssistantMessage.ToolCall> pendingToolCalls(OverAllState state) {
+        List<Message> messages = (List<Message>) state.value("messages").orElse(List.of());
+        if (!messages.isEmpty() && messages.get(messages.size() - 1) instanceof AssistantMessage assistant
+                && assistant.hasToolCalls()) {
+            return assistant.getToolCalls();
+        }
+        return List.of();
+    }
+
+    /**
+     * 工具节点没有领取完（如图执行中途失败）的批次超过一轮超时即丢弃
+     */
+    private void evictExpired() {
+        long expireBefore = System.nanoTime() - properties.getTurnTimeout().toNanos();
+        Iterator<Batch> iterator = batches.values().iterator();
+        while (iterator.hasNext()) {
+            Batch batch = iterator.next();
+            if (batch.submittedAt() < expireBefore) {
+                batch.cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    private record BatchKey(String threadId, String firstToolCallId) {
+    }
+
+    /**
+     * 一条助手消息的全部工具调用，工具节点按顺序逐个领取
+     */
+    private static final class Batch {
+
+        private final List<Slot> slots;
+        private final long submittedAt;
+        private int claimed;
+
+        private Batch(List<Slot> slots, long submittedAt) {
+            this.slots = slots;
+            this.submittedAt = submittedAt;
+        }
+
+        /**
+         * 领取第一个尚未领取、工具名与参数都匹配的调用
+         */
+        synchronized Pending claim(String toolName, String arguments) {
+            for (Slot slot : slots) {
+                if (!slot.claimed && slot.toolCall.name().equals(toolName)
+                        && Objects.equals(slot.toolCall.arguments(), arguments)) {
+                    slot.claimed = true;
+                    claimed++;
+                    return slot.pending;
+                }
+            }
+            return null;
+        }
+
+        synchronized boolean isDrained() {
+            return claimed >= slots.size();
+        }
+
+        synchronized void cancel() {
+            for (Slot slot : slots) {
+                if (!slot.claimed && slot.pending != null) {
+                    slot.pending.future().cancel(true);
+                }
+            }
+        }
+
+        long submittedAt() {
+            return submittedAt;
+        }
+    }
+
+    private static final class Slot {
+        private final AssistantMessage.ToolCall toolCall;
+        private final Pending pending;
+        private boolean claimed;
+
+        private Slot(AssistantMessage.ToolCall toolCall, Pending pending) {
+            this.toolCall = toolCall;
+            this.pending = pending;
+        }
+    }
+
+    record Pending(Future<String> future, long submittedAt) {
+    }
+}
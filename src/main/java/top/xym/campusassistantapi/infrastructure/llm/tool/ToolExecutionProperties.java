@@ -0,0 +1,32 @@
+package top.xym.campusassistantapi.infrastructure.llm.tool;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 工具调用执行配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.tools")
+public class ToolExecutionProperties {
+    /**
+     * 同一轮多个工具调用是否并行执行
+     */
+    private boolean parallel = true;
+    /**
+     * 工具执行线程数上限
+     */
+    private int maxThreads = 32;
+    /**
+     * 等待执行的工具调用上限，队列满时该调用不预执行，回退为智能体工具节点中的顺序执行
+     */
+    private int queueCapacity = 256;
+    /**
+     * 单轮工具调用的总超时（超时的工具返回超时提示，不阻塞整轮）
+     */
+    private Duration turnTimeout = Duration.ofSeconds(20);
+}
@@ -0,0 +1,30 @@
+package top.xym.campusassistantapi.infrastructure.sse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 交给 {@link org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter} 的一帧：
+ * 直接引用 {@link SseFrameWriter} 的缓冲区，由 {@link SseFrameHttpMessageConverter} 写出，不复制字节
+ * 响应初始化前 emitter 会暂存待发送的数据，写入器据 {@link #isWritten()} 判断缓冲区是否仍被引用
+ */
+final class SseFrame {
+
+    private final byte[] buffer;
+    private final int length;
+    private volatile boolean written;
+
+    SseFrame(byte[] buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+        written = true;
+    }
+
+    boolean isWritten() {
+        return written;
+    }
+}
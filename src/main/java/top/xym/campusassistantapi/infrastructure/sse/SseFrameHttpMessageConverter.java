@@ -0,0 +1,44 @@
+package top.xym.campusassistantapi.infrastructure.sse;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 把 {@link SseFrame} 引用的字节原样写入响应（Spring Boot 会把 HttpMessageConverter Bean 加入 MVC 的转换器列表）
+ * 只负责写出，刷新由 emitter 在每次发送后完成
+ */
+@Component
+class SseFrameHttpMessageConverter implements HttpMessageConverter<SseFrame> {
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return SseFrame.class == clazz;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return List.of(MediaType.TEXT_EVENT_STREAM);
+    }
+
+    @Override
+    public SseFrame read(Class<? extends SseFrame> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("SSE 帧只用于写出", inputMessage);
+    }
+
+    @Override
+    public void write(SseFrame frame, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        frame.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,276 @@
+package top.xym.campusassistantapi.infrastructure.sse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 结构化 SSE 帧编码器（每个响应一个实例，非线程安全）
+ * 帧格式：[event: 类型\n]data: {"type":"类型大写","content":...}\n\n
+ * - 不带事件名（namedEvents=false）时只有 data 行，浏览器 EventSource.onmessage 即可收到，类型由 JSON 中的 type 区分
+ * - 带事件名时前端需按事件名 addEventListener
+ * - 内容帧与纯文本帧直接把字符（按需 JSON 转义）UTF-8 编码写入复用的字节缓冲区，不为每个片段构造中间字符串和对象
+ * - 引用、思考过程等低频帧的 content 由 Jackson 直接序列化进缓冲区
+ * 每帧写完立即交给 {@link FrameSink}，保证客户端实时收到
+ */
+public class SseFrameWriter {
+
+    private static final byte[] DATA = "data:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END_DATA = "{\"type\":\"END\",\"content\":\"\"}\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STRING_TAIL = "\"}\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OBJECT_TAIL = "}\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final FrameSink frameSink;
+    private final ObjectMapper objectMapper;
+    private final byte[] contentHead;
+    private final byte[] referenceHead;
+    private final byte[] thoughtHead;
+    private final byte[] errorHead;
+    private final byte[] endFrame;
+    private final BufferSink sink = new BufferSink();
+
+    private byte[] buffer = new byte[512];
+    private int count;
+
+    public SseFrameWriter(OutputStream out, ObjectMapper objectMapper) {
+        this(out, objectMapper, true);
+    }
+
+    /**
+     * @param namedEvents 是否输出 event: 行
+     */
+    public SseFrameWriter(OutputStream out, ObjectMapper objectMapper, boolean namedEvents) {
+        this((frame, length) -> {
+            out.write(frame, 0, length);
+            out.flush();
+            return true;
+        }, objectMapper, namedEvents);
+    }
+
+    /**
+     * @param frameSink   帧的输出端
+     * @param namedEvents 是否输出 event: 行
+     */
+    public SseFrameWriter(FrameSink frameSink, ObjectMapper objectMapper, boolean namedEvents) {
+        this.frameSink = frameSink;
+        this.objectMapper = objectMapper;
+        this.contentHead = head(namedEvents ? "content" : null, "CONTENT");
+        this.referenceHead = head(namedEvents ? "reference" : null, "REFERENCE");
+        this.thoughtHead = head(namedEvents ? "thought" : null, "THOUGHT");
+        this.errorHead = head(namedEvents ? "error" : null, "ERROR");
+        this.endFrame = concat(namedEvents ? "event: end\ndata:".getBytes(StandardCharsets.UTF_8) : DATA, END_DATA);
+    }
+
+    /**
+     * 帧的输出端
+     */
+    @FunctionalInterface
+    public interface FrameSink {
+        /**
+         * 写出一帧（缓冲区的前 length 个字节）
+         *
+         * @return 是否已在本次调用中写完；返回 false 表示缓冲区仍被引用，写入器之后改用新的缓冲区
+         */
+        boolean write(byte[] frame, int length) throws IOException;
+    }
+
+    /**
+     * 内容片段
+     *
+     * @param prefix 片段前缀（如图片解析标记），可为 null
+     * @param text   片段内容
+     */
+    public void content(String prefix, String text) throws IOException {
+        append(contentHead);
+        if (prefix != null) {
+            appendEscaped(prefix);
+        }
+        appendEscaped(text);
+        append(STRING_TAIL);
+        flushFrame();
+    }
+
+    /**
+     * 引用文档（任意可被 Jackson 序列化的对象）
+     */
+    public void reference(Object reference) throws IOException {
+        objectFrame(referenceHead, reference);
+    }
+
+    /**
+     * 思考过程（任意可被 Jackson 序列化的对象）
+     */
+    public void thought(Object thought) throws IOException {
+        objectFrame(thoughtHead, thought);
+    }
+
+    /**
+     * 错误提示
+     */
+    public void error(String message) throws IOException {
+        append(errorHead);
+        appendEscaped(message);
+        append(STRING_TAIL);
+        flushFrame();
+    }
+
+    /**
+     * 结束标记
+     */
+    public void end() throws IOException {
+        append(endFrame);
+        flushFrame();
+    }
+
+    /**
+     * 纯文本帧（不包 JSON）：每行一个 data: 行，与 Spring 把 Flux<String> 写成 SSE 的格式一致
+     */
+    public void text(String text) throws IOException {
+        int start = 0;
+        while (true) {
+            int end = text.indexOf('\n', start);
+            append(DATA);
+            appendChars(text, start, end < 0 ? text.length() : end, false);
+            ensure(1);
+            buffer[count++] = '\n';
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        ensure(1);
+        buffer[count++] = '\n';
+        flushFrame();
+    }
+
+    private void objectFrame(byte[] head, Object value) throws IOException {
+        // 去掉 head 末尾的引号：对象 content 不是字符串
+        append(head, head.length - 1);
+        objectMapper.writeValue(sink, value);
+        append(OBJECT_TAIL);
+        flushFrame();
+    }
+
+    private void flushFrame() throws IOException {
+        if (!frameSink.write(buffer, count)) {
+            // 数据被暂存引用（响应初始化前 emitter 会暂存待发送的数据），把缓冲区留给它
+            buffer = new byte[buffer.length];
+        }
+        count = 0;
+    }
+
+    private void append(byte[] bytes) {
+        append(bytes, bytes.length);
+    }
+
+    private void append(byte[] bytes, int length) {
+        ensure(length);
+        System.arraycopy(bytes, 0, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * JSON 字符串转义并按 UTF-8 编码写入缓冲区
+     */
+    private void appendEscaped(String text) {
+        appendChars(text, 0, text.length(), true);
+    }
+
+    /**
+     * 把 text[start, end) 按 UTF-8 编码写入缓冲区，escape 为 true 时按 JSON 字符串转义
+     */
+    private void appendChars(String text, int start, int end, boolean escape) {
+        // 最坏情况：每个字符 6 字节（\\u00XX）
+        ensure((end - start) * 6);
+        byte[] buf = buffer;
+        int pos = count;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (!escape) {
+                    buf[pos++] = (byte) c;
+                } else if (c == '"' || c == '\\') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = (byte) c;
+                } else if (c >= 0x20) {
+                    buf[pos++] = (byte) c;
+                } else if (c == '\n') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = 'n';
+                } else if (c == '\r') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = 'r';
+                } else if (c == '\t') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = 't';
+                } else {
+                    buf[pos++] = '\\';
+                    buf[pos++] = 'u';
+                    buf[pos++] = '0';
+                    buf[pos++] = '0';
+                    buf[pos++] = HEX[c >> 4];
+                    buf[pos++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符按替换字符输出
+                buf[pos++] = (byte) 0xEF;
+                buf[pos++] = (byte) 0xBF;
+                buf[pos++] = (byte) 0xBD;
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        count = pos;
+    }
+
+    private void ensure(int extra) {
+        if (count + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + extra));
+        }
+    }
+
+    private static byte[] head(String event, String type) {
+        String eventLine = event == null ? "" : "event: " + event + "\n";
+        return (eventLine + "data:{\"type\":\"" + type + "\",\"content\":\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * 让 Jackson 直接写入帧缓冲区（不关闭、不刷新底层响应流）
+     */
+    private final class BufferSink extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package top.xym.campusassistantapi.infrastructure.sse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把响应式数据流以结构化 SSE 帧写到 HTTP 响应
+ * 订阅数据流后立即返回，不占用 MVC 异步线程：每个元素在上游的回调线程中编码成帧并通过 {@link ResponseBodyEmitter} 写出
+ * （与直接返回 Flux 时 Spring 的处理方式相同）；客户端断开、超时或写入失败时取消上游
+ * 帧以 {@link SseFrame} 引用写入器的缓冲区交给 emitter，由 {@link SseFrameHttpMessageConverter} 直接写入响应，每帧不复制字节
+ */
+@Slf4j
+@Component
+public class SseStreams {
+
+    private static final MediaType TEXT_EVENT_STREAM_UTF8 = new MediaType(MediaType.TEXT_EVENT_STREAM, StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+
+    public SseStreams(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 帧格式
+     */
+    public enum FrameStyle {
+        /**
+         * 带 event: 行的结构化帧，结束时追加 end 帧，出错时追加 error 帧
+         */
+        NAMED,
+        /**
+         * 不带 event: 行的结构化帧（EventSource.onmessage 可直接接收），同样追加 end / error 帧
+         */
+        UNNAMED,
+        /**
+         * 纯文本 data 帧，不追加结束或错误帧（兼容直接返回 Flux<String> 的旧格式）
+         */
+        TEXT
+    }
+
+    /**
+     * 数据流中的单个元素写成一个或多个帧
+     */
+    @FunctionalInterface
+    public interface FrameEncoder<T> {
+        void encode(SseFrameWriter writer, T item) throws IOException;
+    }
+
+    /**
+     * 构造 SSE 响应（带事件名）
+     */
+    public <T> ResponseEntity<ResponseBodyEmitter> stream(Flux<T> source, FrameEncoder<T> encoder) {
+        return stream(source, FrameStyle.NAMED, encoder);
+    }
+
+    /**
+     * 构造 SSE 响应
+     */
+    public <T> ResponseEntity<ResponseBodyEmitter> stream(Flux<T> source, FrameStyle style, FrameEncoder<T> encoder) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        SseFrameWriter writer = new SseFrameWriter((buffer, length) -> {
+            SseFrame frame = new SseFrame(buffer, length);
+            emitter.send(frame, TEXT_EVENT_STREAM_UTF8);
+            // 响应初始化后 send 同步写出；初始化前 emitter 暂存该帧，缓冲区不能复用
+            return frame.isWritten();
+        }, objectMapper, style == FrameStyle.NAMED);
+        Disposable subscription = source.subscribe(
+                item -> {
+                    try {
+                        encoder.encode(writer, item);
+                    } catch (IOException e) {
+                        // 抛出后订阅被取消，上游随之停止
+                        throw new ClientGoneException(e);
+                    }
+                },
+                error -> {
+                    if (error instanceof ClientGoneException) {
+                        log.debug("SSE 客户端已断开：{}", error.getMessage());
+                        emitter.completeWithError(error.getCause());
+                        return;
+                    }
+                    log.error("SSE 数据流异常", error);
+                    if (style != FrameStyle.TEXT) {
+                        try {
+                            writer.error("回答生成失败，请稍后再试");
+                        } catch (IOException e) {
+                            log.debug("写入 SSE 错误帧失败：{}", e.getMessage());
+                        }
+                    }
+                    emitter.complete();
+                },
+                () -> {
+                    if (style != FrameStyle.TEXT) {
+                        try {
+                            writer.end();
+                        } catch (IOException e) {
+                            log.debug("写入 SSE 结束帧失败：{}", e.getMessage());
+                        }
+                    }
+                    emitter.complete();
+                });
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        emitter.onCompletion(subscription::dispose);
+        return ResponseEntity.ok()
+                .contentType(TEXT_EVENT_STREAM_UTF8)
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    private static final class ClientGoneException extends RuntimeException {
+
+        private ClientGoneException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package top.xym.campusassistantapi.infrastructure.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * 快速启动：把配置的重量级 Bean（按名称或按类型包名）标记为延迟初始化
+ * BeanFactoryPostProcessor 运行时配置类 Bean 尚未创建，因此直接从 Environment 绑定配置
+ * 基础设施角色的 Bean 不处理
+ */
+@Slf4j
+@Component
+public class LazyBeanPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        StartupProperties properties = Binder.get(environment)
+                .bind(StartupProperties.PREFIX, StartupProperties.class)
+                .orElseGet(StartupProperties::new);
+        if (!properties.isFast()) {
+            return;
+        }
+        int count = 0;
+        for (String beanName : properties.getLazyBeans()) {
+            if (!beanFactory.containsBeanDefinition(beanName)) {
+                log.debug("快速启动：未找到 Bean {}，跳过", beanName);
+                continue;
+            }
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            definition.setLazyInit(true);
+            count++;
+        }
+        int byPackage = 0;
+        if (!properties.getLazyPackages().isEmpty()) {
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+                if (definition.isLazyInit() || definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE) {
+                    continue;
+                }
+                String type = typeName(definition);
+                if (type != null && properties.getLazyPackages().stream().anyMatch(type::startsWith)) {
+                    definition.setLazyInit(true);
+                    log.debug("快速启动：{}（{}）延迟创建", beanName, type);
+                    byPackage++;
+                }
+            }
+        }
+        log.info("快速启动已开启，{} 个 Bean 延迟到首次使用时创建（按名称 {}，按包名 {}）", count + byPackage, count, byPackage);
+    }
+
+    /**
+     * Bean 的类型名：组件扫描的 Bean 取类名，@Bean 方法定义的取方法返回类型
+     */
+    private static String typeName(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated && annotated.getFactoryMethodMetadata() != null) {
+            return annotated.getFactoryMethodMetadata().getReturnTypeName();
+        }
+        return definition.getBeanClassName();
+    }
+}
@@ -0,0 +1,67 @@
+package top.xym.campusassistantapi.infrastructure.startup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = StartupProperties.PREFIX)
+public class StartupProperties {
+
+    public static final String PREFIX = "campus.startup";
+
+    /**
+     * 快速启动：下列重量级 Bean 延迟到首次使用时创建，缩短滚动发布的就绪时间
+     */
+    private boolean fast = false;
+    /**
+     * 快速启动时延迟创建的 Bean 名称
+     * 只被这些 Bean 使用的依赖也要列出，否则仍会在启动时被预先创建
+     */
+    private List<String> lazyBeans = new ArrayList<>(List.of(
+            "smartCampusReactAgent",
+            "bailianAgentController",
+            "bailianAgentStreamController",
+            // 智能体工具及只服务于工具的组件
+            "courseQueryTool",
+            "gradeQueryTool",
+            "campusNavigationTool",
+            "activityNotificationTool",
+            "libraryServiceTool",
+            "diningInfoTool",
+            "campusKnowledgeTool",
+            "toolResultCache",
+            "parallelToolExecutor"
+    ));
+    /**
+     * 快速启动时按类型包名延迟创建的 Bean（类名或 @Bean 方法返回类型以这些前缀开头）
+     * 主要覆盖 DashScope / OSS 自动配置中未被启动路径使用的模型与客户端；被其他非延迟 Bean 依赖的仍会随之创建
+     */
+    private List<String> lazyPackages = new ArrayList<>(List.of(
+            "com.alibaba.cloud.ai.dashscope.",
+            "com.aliyun.oss."
+    ));
+    /**
+     * 就绪后在后台线程预编译智能体图（关闭则在第一次对话时编译）
+     */
+    private boolean warmUp = true;
+    /**
+     * 编译智能体图后输出 PlantUML 结构图（调试用）
+     */
+    private boolean dumpAgentGraph = false;
+    /**
+     * 就绪后输出各 Bean 初始化耗时报告
+     */
+    private boolean report = true;
+    /**
+     * 报告中列出的最慢 Bean 个数
+     */
+    private int reportTopN = 15;
+}
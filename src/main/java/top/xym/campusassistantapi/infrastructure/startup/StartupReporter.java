@@ -0,0 +1,69 @@
+package top.xym.campusassistantapi.infrastructure.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 启动耗时报告：就绪后输出总耗时与初始化最慢的 Bean（耗时包含其依赖的创建时间）
+ * 需要以 {@link BufferingApplicationStartup} 启动应用，见启动类
+ */
+@Slf4j
+@Component
+public class StartupReporter {
+
+    private static final String BEAN_INSTANTIATE_STEP = "spring.beans.instantiate";
+
+    private final StartupProperties properties;
+
+    public StartupReporter(StartupProperties properties) {
+        this.properties = properties;
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        if (!properties.isReport()) {
+            return;
+        }
+        ApplicationStartup startup = event.getApplicationContext().getApplicationStartup();
+        if (!(startup instanceof BufferingApplicationStartup buffering)) {
+            return;
+        }
+        // 只读不清空，actuator 的 startup 端点仍可查看完整时间线
+        StartupTimeline timeline = buffering.getBufferedTimeline();
+        List<StartupTimeline.TimelineEvent> beans = timeline.getEvents().stream()
+                .filter(e -> BEAN_INSTANTIATE_STEP.equals(e.getStartupStep().getName()))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(properties.getReportTopN())
+                .toList();
+
+        Duration timeToReady = Duration.between(timeline.getStartTime(), Instant.now());
+        StringBuilder report = new StringBuilder();
+        report.append("启动耗时 ").append(timeToReady.toMillis()).append(" ms（快速启动：")
+                .append(properties.isFast() ? "开启" : "关闭").append("），最慢的 Bean：");
+        for (StartupTimeline.TimelineEvent bean : beans) {
+            report.append("\n  ").append(String.format("%6d ms  ", bean.getDuration().toMillis()))
+                    .append(beanName(bean.getStartupStep()));
+        }
+        log.info(report.toString());
+    }
+
+    private static String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+}
@@ -1,44 +1,40 @@
 package top.xym.campusassistantapi.module.agent;
 
 import com.alibaba.cloud.ai.agent.studio.loader.AgentLoader;
-import com.alibaba.cloud.ai.graph.GraphRepresentation;
 import com.alibaba.cloud.ai.graph.agent.BaseAgent;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 import jakarta.annotation.Nonnull;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 静态代理加载器
  * 用于以编程方式提供代理的静态代理加载器。
- * 此加载器接收预先创建的代理实例的静态列表，并通过AgentLoader接口使其可用。
- * 非常适合已经拥有代理实例，只需要一种便捷的方式将它们包装到 AgentLoader 中的情况。
+ * 此加载器接收预先创建的代理实例，并通过AgentLoader接口使其可用。
+ * 代理实例在第一次加载时才获取，快速启动模式下不会因为加载器而提前创建代理和编译图。
  *
  * @author moqi
  */
 @Component
 class AgentStaticLoader implements AgentLoader {
 
-    private final Map<String, BaseAgent> agents = new ConcurrentHashMap<>();
+    /**
+     * 注册两个名称以保证兼容性
+     * "research_agent" 是前端UI期望的默认名称，同时注册自定义名称
+     */
+    private static final List<String> AGENT_NAMES = List.of("research_agent", "campus_assistant_api");
 
-    public AgentStaticLoader(BaseAgent agent) {
-        GraphRepresentation representation = agent.getAndCompileGraph().stateGraph.getGraph(GraphRepresentation.Type.PLANTUML);
-        System.out.println(representation.content());
+    private final ObjectProvider<BaseAgent> agentProvider;
 
-        // 注册两个名称以保证兼容性
-        // "research_agent" 是前端UI期望的默认名称
-        this.agents.put("research_agent", agent);
-        // 同时注册自定义名称
-//        this.agents.put("smart_campus_assistant", agent);
-        this.agents.put("campus_assistant_api", agent);
+    public AgentStaticLoader(ObjectProvider<BaseAgent> agentProvider) {
+        this.agentProvider = agentProvider;
     }
 
     @Override
     @Nonnull
     public List<String> listAgents() {
-        return agents.keySet().stream().toList();
+        return AGENT_NAMES;
     }
 
     @Override
@@ -47,11 +43,10 @@ class AgentStaticLoader implements AgentLoader {
             throw new IllegalArgumentException("代理名称不能为空或空白");
         }
 
-        BaseAgent agent = agents.get(name);
-        if (agent == null) {
+        if (!AGENT_NAMES.contains(name)) {
             throw new NoSuchElementException("未找到代理：" + name);
         }
 
-        return agent;
+        return agentProvider.getObject();
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,20 @@
 package top.xym.campusassistantapi.module.agent;
 
 import com.alibaba.cloud.ai.graph.agent.ReactAgent;
+import top.xym.campusassistantapi.infrastructure.llm.BulkheadChatModel;
+import top.xym.campusassistantapi.infrastructure.llm.LlmBulkhead;
+import top.xym.campusassistantapi.infrastructure.llm.tool.ParallelToolExecutor;
 import top.xym.campusassistantapi.module.agent.tools.*;
+import top.xym.campusassistantapi.module.agent.tools.cache.CachingToolCallback;
+import top.xym.campusassistantapi.module.agent.tools.cache.ToolResultCache;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.function.FunctionToolCallback;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * 智慧校园助手配置类
  *
@@ -43,6 +50,8 @@ public class CampusAssistentApi {
     @Bean
     public ReactAgent smartCampusReactAgent(
             ChatModel chatModel,
+            LlmBulkhead llmBulkhead,
+            ParallelToolExecutor parallelToolExecutor,
             ToolCallback courseQueryTool,
             ToolCallback gradeQueryTool,
             ToolCallback campusNavigationTool,
@@ -50,83 +59,92 @@ public class CampusAssistentApi {
             ToolCallback libraryServiceTool,
             ToolCallback diningInfoTool,
             ToolCallback campusKnowledgeTool) {
+        // 同一轮的多个工具调用在工具节点调用第一个工具时并行提交，之后的调用领取结果
+        List<ToolCallback> tools = parallelToolExecutor.wrap(List.of(
+                courseQueryTool,
+                gradeQueryTool,
+                campusNavigationTool,
+                activityNotificationTool,
+                libraryServiceTool,
+                diningInfoTool,
+                campusKnowledgeTool));
         return ReactAgent.builder()
                 .name("CampusAssistantApi")
-                .model(chatModel)
+                // 模型调用统一受并发隔离保护
+                .model(new BulkheadChatModel(chatModel, llmBulkhead))
                 .instruction(INSTRUCTION)
                 .enableLogging(true)
-                .tools(
-                        courseQueryTool,
-                        gradeQueryTool,
-                        campusNavigationTool,
-                        activityNotificationTool,
-                        libraryServiceTool,
-                        diningInfoTool,
-                        campusKnowledgeTool
-                )
+                .tools(tools.toArray(new ToolCallback[0]))
                 .build();
     }
 
     // 课程查询工具
     @Bean
-    public ToolCallback courseQueryTool() {
-        return FunctionToolCallback.builder("course_query", new CourseQueryTool())
+    public ToolCallback courseQueryTool(ToolResultCache toolResultCache) {
+        return cached(toolResultCache, FunctionToolCallback.builder("course_query", new CourseQueryTool())
                 .description(CourseQueryTool.DESCRIPTION)
                 .inputType(CourseQueryTool.CourseQueryRequest.class)
-                .build();
+                .build());
     }
 
     // 成绩查询工具
     @Bean
-    public ToolCallback gradeQueryTool() {
-        return FunctionToolCallback.builder("grade_query", new GradeQueryTool())
+    public ToolCallback gradeQueryTool(ToolResultCache toolResultCache) {
+        return cached(toolResultCache, FunctionToolCallback.builder("grade_query", new GradeQueryTool())
                 .description(GradeQueryTool.DESCRIPTION)
                 .inputType(GradeQueryTool.GradeQueryRequest.class)
-                .build();
+                .build());
     }
 
     // 校园导航工具
     @Bean
-    public ToolCallback campusNavigationTool() {
-        return FunctionToolCallback.builder("campus_navigation", new CampusNavigationTool())
+    public ToolCallback campusNavigationTool(ToolResultCache toolResultCache) {
+        return cached(toolResultCache, FunctionToolCallback.builder("campus_navigation", new CampusNavigationTool())
                 .description(CampusNavigationTool.DESCRIPTION)
                 .inputType(CampusNavigationTool.NavigationRequest.class)
-                .build();
+                .build());
     }
 
     // 活动通知工具
     @Bean
-    public ToolCallback activityNotificationTool() {
-        return FunctionToolCallback.builder("activity_notification", new ActivityNotificationTool())
+    public ToolCallback activityNotificationTool(ToolResultCache toolResultCache) {
+        return cached(toolResultCache, FunctionToolCallback.builder("activity_notification", new ActivityNotificationTool())
                 .description(ActivityNotificationTool.DESCRIPTION)
                 .inputType(ActivityNotificationTool.ActivityRequest.class)
-                .build();
+                .build());
     }
 
     // 图书馆服务工具
     @Bean
-    public ToolCallback libraryServiceTool() {
-        return FunctionToolCallback.builder("library_service", new LibraryServiceTool())
+    public ToolCallback libraryServiceTool(ToolResultCache toolResultCache) {
+        return cached(toolResultCache, FunctionToolCallback.builder("library_service", new LibraryServiceTool())
                 .description(LibraryServiceTool.DESCRIPTION)
                 .inputType(LibraryServiceTool.LibraryRequest.class)
-                .build();
+                .build());
     }
 
     // 食堂信息工具
     @Bean
-    public ToolCallback diningInfoTool() {
-        return FunctionToolCallback.builder("dining_info", new DiningInfoTool())
+    public ToolCallback diningInfoTool(ToolResultCache toolResultCache) {
+        return cached(toolResultCache, FunctionToolCallback.builder("dining_info", new DiningInfoTool())
                 .description(DiningInfoTool.DESCRIPTION)
                 .inputType(DiningInfoTool.DiningRequest.class)
-                .build();
+                .build());
     }
 
     // 校园知识工具
     @Bean
-    public ToolCallback campusKnowledgeTool() {
-        return FunctionToolCallback.builder("campus_knowledge", new CampusKnowledgeTool())
+    public ToolCallback campusKnowledgeTool(ToolResultCache toolResultCache) {
+        return cached(toolResultCache, FunctionToolCallback.builder("campus_knowledge", new CampusKnowledgeTool())
                 .description(CampusKnowledgeTool.DESCRIPTION)
                 .inputType(CampusKnowledgeTool.KnowledgeRequest.class)
-                .build();
+                .build());
+    }
+
+    /**
+     * 工具均为只读查询，相同参数的结果按工具规则缓存复用
+     */
+    private static ToolCallback cached(ToolResultCache toolResultCache, ToolCallback toolCallback) {
+        return new CachingToolCallback(toolCallback, toolResultCache);
     }
-}
\ No newline at end of file
+}
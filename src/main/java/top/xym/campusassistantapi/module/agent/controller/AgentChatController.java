@@ -0,0 +1,46 @@
+package top.xym.campusassistantapi.module.agent.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import top.xym.campusassistantapi.common.utils.SecurityUtils;
+import top.xym.campusassistantapi.module.agent.model.dto.AgentChatRequest;
+import top.xym.campusassistantapi.module.agent.service.AgentChatService;
+
+/**
+ * 智能体对话接口（可调用课程、成绩、导航等校园工具）
+ */
+@RestController
+@RequestMapping("/api/v1/agent")
+@RequiredArgsConstructor
+@Tag(name = "智能体对话", description = "智能体对话接口")
+public class AgentChatController {
+
+    private final AgentChatService agentChatService;
+
+    /**
+     * 智能体对话，流式推送模型输出与工具调用进度
+     * 事件：start、progress（工具调用与结果）、message（回答片段）、done、error
+     */
+    @PostMapping(
+            value = "/stream",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE + ";charset=UTF-8",
+            consumes = MediaType.APPLICATION_JSON_VALUE
+    )
+    @Operation(summary = "智能体对话（流式）")
+    public Flux<ServerSentEvent<String>> stream(@Valid @RequestBody AgentChatRequest request,
+                                                HttpServletResponse response) {
+        response.setCharacterEncoding("UTF-8");
+        Long userId = SecurityUtils.getCurrentUserId();
+        return agentChatService.stream(request.getSessionId(), request.getContent(), userId);
+    }
+}
@@ -0,0 +1,19 @@
+package top.xym.campusassistantapi.module.agent.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+@Schema(description = "智能体对话请求DTO")
+public class AgentChatRequest {
+
+    @NotNull(message = "会话ID不能为空")
+    @Schema(description = "会话ID（必须是当前用户的未删除会话）", example = "1")
+    private Long sessionId;
+
+    @NotBlank(message = "提问内容不能为空")
+    @Schema(description = "用户提问内容", example = "帮我查一下这学期的课程表")
+    private String content;
+}
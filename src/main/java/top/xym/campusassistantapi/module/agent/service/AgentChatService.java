@@ -0,0 +1,405 @@
+package top.xym.campusassistantapi.module.agent.service;
+
+import com.alibaba.cloud.ai.graph.CompiledGraph;
+import com.alibaba.cloud.ai.graph.GraphRepresentation;
+import com.alibaba.cloud.ai.graph.NodeOutput;
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.agent.ReactAgent;
+import com.alibaba.cloud.ai.graph.exception.GraphRunnerException;
+import com.alibaba.cloud.ai.graph.streaming.StreamingOutput;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import top.xym.campusassistantapi.common.cache.RedisCache;
+import top.xym.campusassistantapi.common.cache.RedisKeys;
+import top.xym.campusassistantapi.infrastructure.startup.StartupProperties;
+import top.xym.campusassistantapi.module.agent.session.AgentSessionProperties;
+import top.xym.campusassistantapi.module.agent.session.AgentSessionStore;
+import top.xym.campusassistantapi.module.message.stream.StreamReplayProperties;
+import top.xym.campusassistantapi.module.session.service.SessionService;
+import top.xym.campusassistantapi.module.usage.service.TokenUsageRecorder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 智能体对话服务
+ * 每轮对话从会话状态存储取出最近的问答，连同本轮提问交给编译好的智能体图执行，
+ * 图本身不保存会话状态，任意节点都能处理同一会话的下一轮
+ * 通过智能体的流式接口执行，模型输出逐段推送，工具调用与工具结果作为进度事件推送
+ */
+@Slf4j
+@Service
+public class AgentChatService {
+
+    /**
+     * 智能体延迟获取：快速启动模式下首次对话或后台预热时才创建
+     */
+    private final ObjectProvider<ReactAgent> smartCampusReactAgent;
+    private final AgentSessionStore sessionStore;
+    private final AgentSessionProperties properties;
+    private final SessionService sessionService;
+    private final StreamReplayProperties streamReplayProperties;
+    private final StartupProperties startupProperties;
+    private final MeterRegistry meterRegistry;
+    private final RedisCache redisCache;
+    private final ObjectMapper objectMapper;
+    private final TokenUsageRecorder tokenUsageRecorder;
+
+    /**
+     * 正在执行的会话，同一会话同时只允许一轮，避免两轮并发互相覆盖状态
+     * 开启 Redis 时另加分布式锁，多节点间同样互斥
+     */
+    private final Set<String> runningSessions = ConcurrentHashMap.newKeySet();
+
+    private volatile CompiledGraph compiledGraph;
+
+    public AgentChatService(ObjectProvider<ReactAgent> smartCampusReactAgent,
+                            AgentSessionStore sessionStore,
+                            AgentSessionProperties properties,
+                            SessionService sessionService,
+                            StreamReplayProperties streamReplayProperties,
+                            StartupProperties startupProperties,
+                            MeterRegistry meterRegistry,
+                            RedisCache redisCache,
+                            ObjectMapper objectMapper,
+                            TokenUsageRecorder tokenUsageRecorder) {
+        this.smartCampusReactAgent = smartCampusReactAgent;
+        this.sessionStore = sessionStore;
+        this.properties = properties;
+        this.sessionService = sessionService;
+        this.streamReplayProperties = streamReplayProperties;
+        this.startupProperties = startupProperties;
+        this.meterRegistry = meterRegistry;
+        this.redisCache = redisCache;
+        this.objectMapper = objectMapper;
+        this.tokenUsageRecorder = tokenUsageRecorder;
+    }
+
+    /**
+     * 就绪后在后台线程预编译智能体图，不阻塞启动，也避免第一位用户承担编译耗时
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!startupProperties.isWarmUp()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                graph();
+            } catch (Exception e) {
+                log.warn("智能体图预编译失败，将在首次对话时重试", e);
+            }
+        }, "agent-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 执行一轮智能体对话，以 SSE 推送执行过程
+     * 事件顺序：start -> progress（模型发起工具调用、工具返回结果）与 message（模型流式输出片段）交替 -> done；
+     * 失败或超时以 error 事件结束
+     * 客户端断开时取消智能体执行，单轮锁随之释放；只有完整结束的一轮才保存会话状态
+     */
+    public Flux<ServerSentEvent<String>> stream(Long sessionId, String content, Long userId) {
+        // 校验会话归属（不存在或不属于当前用户时抛出异常）
+        sessionService.requireOwnedSession(sessionId, userId);
+
+        // 订阅时才加锁，响应流未被订阅时不会占住会话
+        Flux<ServerSentEvent<String>> events = Flux.defer(() -> {
+            TurnLock lock = tryLock(userId, sessionId);
+            if (lock == null) {
+                return Flux.just(event("error", "该会话上一轮回答尚未完成，请稍后再试"));
+            }
+            Turn turn = new Turn(userId, sessionId);
+            return Flux.concat(
+                            Mono.just(event("start", String.valueOf(sessionId))),
+                            Flux.defer(() -> turn.start(content))
+                                    .take(properties.getTurnTimeout())
+                                    .concatMapIterable(turn::events),
+                            Mono.fromCallable(turn::finish).flatMapIterable(tail -> tail)
+                    )
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnCancel(() -> {
+                        log.warn("智能体对话已被客户端放弃，不保存本轮状态：sessionId={}", sessionId);
+                        meterRegistry.counter("agent.chat.turns", "result", "abandoned").increment();
+                    })
+                    .doFinally(signal -> {
+                        turn.recordUsage();
+                        unlock(lock);
+                    });
+        }).onErrorResume(e -> {
+            log.error("智能体对话失败：sessionId={}", sessionId, e);
+            meterRegistry.counter("agent.chat.turns", "result", "failed").increment();
+            return Mono.just(event("error", "智能体暂时无法回答，请稍后再试"));
+        });
+        return withHeartbeat(events);
+    }
+
+    /**
+     * 单轮执行过程：把智能体逐个节点的输出转换为 SSE 事件，结束后保存会话状态
+     * 输出信号由 Reactor 串行传递，字段不需要额外同步
+     */
+    private final class Turn {
+
+        private final Long userId;
+        private final Long sessionId;
+        private final Timer.Sample sample = Timer.start(meterRegistry);
+        private List<Message> input;
+        /**
+         * 已转换为进度事件的消息数，只检查之后新增的消息
+         */
+        private int reported;
+        private boolean streamed;
+        private boolean ended;
+        private OverAllState state;
+        /**
+         * 当前这一轮模型调用最近返回的用量与模型名，模型节点执行完成时记录
+         */
+        private Usage modelUsage;
+        private String modelName;
+
+        private Turn(Long userId, Long sessionId) {
+            this.userId = userId;
+            this.sessionId = sessionId;
+        }
+
+        private Flux<NodeOutput> start(String content) {
+            List<Message> history = sessionStore.load(userId, sessionId);
+            input = new ArrayList<>(history.size() + 1);
+            input.addAll(history);
+            input.add(new UserMessage(truncate(content)));
+            reported = input.size();
+
+            RunnableConfig config = RunnableConfig.builder()
+                    .threadId("agent-" + userId + "-" + sessionId)
+                    .build();
+            try {
+                return smartCampusReactAgent.getObject().stream(input, config);
+            } catch (GraphRunnerException e) {
+                return Flux.error(e);
+            }
+        }
+
+        /**
+         * 流式片段转为 message 事件；节点执行完成时，把新增的工具调用与工具结果转为 progress 事件
+         */
+        @SuppressWarnings("unchecked")
+        private List<ServerSentEvent<String>> events(NodeOutput output) {
+            if (output instanceof StreamingOutput<?> streaming) {
+                captureUsage(streaming);
+                String chunk = streaming.chunk();
+                if (chunk == null || chunk.isEmpty()) {
+                    return List.of();
+                }
+                streamed = true;
+                return List.of(event("message", chunk));
+            }
+            recordUsage();
+            state = output.state();
+            ended |= output.isEND();
+            if (state == null) {
+                return List.of();
+            }
+            List<Message> messages = (List<Message>) state.value("messages").orElse(List.of());
+            List<ServerSentEvent<String>> events = new ArrayList<>(1);
+            for (int i = reported; i < messages.size(); i++) {
+                if (messages.get(i) instanceof AssistantMessage assistant && assistant.hasToolCalls()) {
+                    events.add(progress(output.node(), "tool_call",
+                            assistant.getToolCalls().stream().map(AssistantMessage.ToolCall::name).toList()));
+                } else if (messages.get(i) instanceof ToolResponseMessage toolResponse) {
+                    events.add(progress(output.node(), "tool_result",
+                            toolResponse.getResponses().stream().map(ToolResponseMessage.ToolResponse::name).toList()));
+                }
+            }
+            reported = Math.max(reported, messages.size());
+            return events;
+        }
+
+        /**
+         * 流式片段携带所属模型调用截至当前的用量
+         */
+        private synchronized void captureUsage(StreamingOutput<?> streaming) {
+            Usage usage = streaming.tokenUsage();
+            if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+                modelUsage = usage;
+            }
+            if (streaming.getOriginData() instanceof ChatResponse response && response.getMetadata() != null
+                    && response.getMetadata().getModel() != null && !response.getMetadata().getModel().isBlank()) {
+                modelName = response.getMetadata().getModel();
+            }
+        }
+
+        /**
+         * 记录已结束的一次模型调用的用量（节点执行完成、本轮结束或被取消时调用，每次模型调用只记一次）
+         */
+        private synchronized void recordUsage() {
+            if (modelUsage == null) {
+                return;
+            }
+            tokenUsageRecorder.record(userId, modelName,
+                    modelUsage.getPromptTokens() == null ? 0 : modelUsage.getPromptTokens(),
+                    modelUsage.getCompletionTokens() == null ? 0 : modelUsage.getCompletionTokens());
+            modelUsage = null;
+        }
+
+        /**
+         * 智能体执行完毕：保存会话状态，返回收尾事件（模型未流式输出时补发完整回答）
+         */
+        private List<ServerSentEvent<String>> finish() {
+            if (!ended) {
+                throw new IllegalStateException("智能体执行超时或未正常结束：" + properties.getTurnTimeout());
+            }
+            String answer = finalAnswer(state);
+            sample.stop(meterRegistry.timer("agent.chat.turn.duration"));
+            input.add(new AssistantMessage(truncate(answer)));
+            sessionStore.save(userId, sessionId, input);
+            meterRegistry.counter("agent.chat.turns", "result", "success").increment();
+            ServerSentEvent<String> done = event("done", "[DONE]");
+            return streamed ? List.of(done) : List.of(event("message", answer), done);
+        }
+    }
+
+    private ServerSentEvent<String> progress(String node, String stage, List<String> tools) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("node", node);
+        data.put("stage", stage);
+        data.put("tools", tools);
+        try {
+            return event("progress", objectMapper.writeValueAsString(data));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 获取会话单轮锁，已有一轮在执行（本节点或开启 Redis 时的其他节点）返回 null
+     * Redis 不可用时退回只做本节点互斥，与会话状态存储的降级方式一致
+     */
+    private TurnLock tryLock(Long userId, Long sessionId) {
+        String localKey = userId + ":" + sessionId;
+        if (!runningSessions.add(localKey)) {
+            return null;
+        }
+        if (!properties.isRedisEnabled()) {
+            return new TurnLock(localKey, null, null);
+        }
+        String redisKey = RedisKeys.getAgentTurnLockKey(userId, sessionId);
+        String token = UUID.randomUUID().toString();
+        try {
+            if (!redisCache.setIfAbsent(redisKey, token, properties.getTurnLockTtl().toMillis(), TimeUnit.MILLISECONDS)) {
+                runningSessions.remove(localKey);
+                return null;
+            }
+            return new TurnLock(localKey, redisKey, token);
+        } catch (Exception e) {
+            log.warn("获取 Redis 智能体单轮锁失败，仅在本节点互斥：{}", e.getMessage());
+            return new TurnLock(localKey, null, null);
+        }
+    }
+
+    private void unlock(TurnLock lock) {
+        try {
+            if (lock.redisKey() != null) {
+                redisCache.deleteIfEquals(lock.redisKey(), lock.token());
+            }
+        } catch (Exception e) {
+            // 锁会在 turnLockTtl 后自动过期
+            log.warn("释放 Redis 智能体单轮锁失败：{}", e.getMessage());
+        } finally {
+            runningSessions.remove(lock.localKey());
+        }
+    }
+
+    /**
+     * 图只编译一次（预热线程或第一次对话），后续各轮复用
+     */
+    private CompiledGraph graph() {
+        CompiledGraph graph = compiledGraph;
+        if (graph == null) {
+            synchronized (this) {
+                graph = compiledGraph;
+                if (graph == null) {
+                    long start = System.currentTimeMillis();
+                    graph = smartCampusReactAgent.getObject().getAndCompileGraph();
+                    compiledGraph = graph;
+                    log.info("智能体图编译完成，耗时 {} ms", System.currentTimeMillis() - start);
+                    if (startupProperties.isDumpAgentGraph()) {
+                        GraphRepresentation representation = graph.stateGraph.getGraph(GraphRepresentation.Type.PLANTUML);
+                        log.info("智能体图结构：\n{}", representation.content());
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * 取最后一条不含工具调用的助手消息作为最终回答
+     */
+    @SuppressWarnings("unchecked")
+    private static String finalAnswer(OverAllState state) {
+        if (state == null) {
+            throw new IllegalStateException("智能体未返回结果");
+        }
+        List<Message> messages = (List<Message>) state.value("messages").orElse(List.of());
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof AssistantMessage assistant && !assistant.hasToolCalls()
+                    && assistant.getText() != null && !assistant.getText().isBlank()) {
+                return assistant.getText();
+            }
+        }
+        throw new IllegalStateException("智能体未生成回答");
+    }
+
+    private String truncate(String text) {
+        int max = properties.getMaxMessageChars();
+        return text.length() > max ? text.substring(0, max) : text;
+    }
+
+    private static ServerSentEvent<String> event(String name, String data) {
+        return ServerSentEvent.<String>builder().event(name).data(data).build();
+    }
+
+    /**
+     * 智能体调用工具期间可能长时间没有输出，穿插心跳保持连接并及时发现断开
+     */
+    private Flux<ServerSentEvent<String>> withHeartbeat(Flux<ServerSentEvent<String>> events) {
+        Duration interval = streamReplayProperties.getHeartbeatInterval();
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            return events;
+        }
+        return events.publish(shared -> Flux.merge(
+                shared,
+                Flux.interval(interval)
+                        .map(tick -> ServerSentEvent.<String>builder().comment("ping").build())
+                        .takeUntilOther(shared.ignoreElements())));
+    }
+
+    private record TurnLock(String localKey, String redisKey, String token) {
+    }
+}
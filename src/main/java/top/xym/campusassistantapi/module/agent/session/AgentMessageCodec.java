@@ -0,0 +1,138 @@
+package top.xym.campusassistantapi.module.agent.session;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 智能体会话状态的紧凑二进制编码
+ * 格式：[标志位 1B][原始长度 varint（仅压缩时）][消息数 varint]{[角色 1B][长度 varint][UTF-8 文本]}...
+ * 超过阈值的内容整体 Deflate 压缩，中文对话通常可压到原来的一半以下
+ */
+public final class AgentMessageCodec {
+
+    private static final byte FLAG_PLAIN = 0;
+    private static final byte FLAG_DEFLATE = 1;
+    private static final byte ROLE_USER = 'U';
+    private static final byte ROLE_ASSISTANT = 'A';
+
+    private AgentMessageCodec() {
+    }
+
+    /**
+     * 编码（只保留用户与助手的文本消息）
+     */
+    public static byte[] encode(List<Message> messages, int compressThreshold) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        List<Message> textMessages = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if ((message instanceof UserMessage || message instanceof AssistantMessage) && message.getText() != null) {
+                textMessages.add(message);
+            }
+        }
+        writeVarint(body, textMessages.size());
+        for (Message message : textMessages) {
+            body.write(message instanceof UserMessage ? ROLE_USER : ROLE_ASSISTANT);
+            byte[] text = message.getText().getBytes(StandardCharsets.UTF_8);
+            writeVarint(body, text.length);
+            body.writeBytes(text);
+        }
+        byte[] raw = body.toByteArray();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 8);
+        if (raw.length < compressThreshold) {
+            out.write(FLAG_PLAIN);
+            out.writeBytes(raw);
+            return out.toByteArray();
+        }
+        out.write(FLAG_DEFLATE);
+        writeVarint(out, raw.length);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码
+     */
+    public static List<Message> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new ArrayList<>();
+        }
+        int[] cursor = {1};
+        byte[] raw;
+        if (data[0] == FLAG_DEFLATE) {
+            int rawLength = readVarint(data, cursor);
+            raw = new byte[rawLength];
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(data, cursor[0], data.length - cursor[0]);
+                int offset = 0;
+                while (offset < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(raw, offset, rawLength - offset);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    offset += n;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalArgumentException("智能体会话状态已损坏", e);
+            } finally {
+                inflater.end();
+            }
+            cursor[0] = 0;
+        } else {
+            raw = data;
+        }
+
+        int count = readVarint(raw, cursor);
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte role = raw[cursor[0]++];
+            int length = readVarint(raw, cursor);
+            String text = new String(raw, cursor[0], length, StandardCharsets.UTF_8);
+            cursor[0] += length;
+            messages.add(role == ROLE_USER ? new UserMessage(text) : new AssistantMessage(text));
+        }
+        return messages;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package top.xym.campusassistantapi.module.agent.session;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 智能体会话状态存储配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.agent.session")
+public class AgentSessionProperties {
+    /**
+     * 每个会话保留的最近消息条数（只保留用户提问与最终回答，不保留工具调用中间过程）
+     */
+    private int maxMessages = 20;
+    /**
+     * 单条消息保留的最大字符数
+     */
+    private int maxMessageChars = 4000;
+    /**
+     * 本地缓存的总字节数上限（按压缩后的大小计）
+     */
+    private long maxLocalBytes = 64L * 1024 * 1024;
+    /**
+     * 会话空闲多久后过期
+     */
+    private Duration idleTtl = Duration.ofHours(2);
+    /**
+     * 是否使用 Redis 存储（多节点部署时开启，Redis 为准，本地缓存仅在 Redis 不可用时兜底）
+     */
+    private boolean redisEnabled = false;
+    /**
+     * 超过该字节数的状态先压缩再存储
+     */
+    private int compressThreshold = 512;
+    /**
+     * 单轮智能体执行的超时时间
+     */
+    private Duration turnTimeout = Duration.ofSeconds(90);
+    /**
+     * 开启 Redis 时同一会话单轮执行锁的过期时间（须大于单轮最长执行时间，仅用于节点宕机后自动释放）
+     */
+    private Duration turnLockTtl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,151 @@
+package top.xym.campusassistantapi.module.agent.session;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.stereotype.Component;
+import top.xym.campusassistantapi.common.cache.RedisCache;
+import top.xym.campusassistantapi.common.cache.RedisKeys;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 智能体会话状态存储
+ * - 状态以紧凑二进制（可压缩）保存，空闲会话只占几 KB
+ * - 本地为按总字节数限制的 LRU，空闲超时懒删除
+ * - 开启 Redis 后以 Redis 为准，多节点共享会话；Redis 不可用时退回本地缓存
+ */
+@Slf4j
+@Component
+public class AgentSessionStore {
+
+    private final AgentSessionProperties properties;
+    private final RedisCache redisCache;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * accessOrder=true 的 LinkedHashMap 即 LRU，所有访问在 synchronized 中进行
+     */
+    private final LinkedHashMap<String, StoredState> local = new LinkedHashMap<>(256, 0.75f, true);
+    private long localBytes;
+
+    public AgentSessionStore(AgentSessionProperties properties, RedisCache redisCache, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisCache = redisCache;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("agent.session.local.bytes", this, AgentSessionStore::localBytes).register(meterRegistry);
+        Gauge.builder("agent.session.local.count", this, AgentSessionStore::localCount).register(meterRegistry);
+    }
+
+    /**
+     * 读取会话历史，不存在返回空列表
+     */
+    public List<Message> load(Long userId, Long sessionId) {
+        String key = RedisKeys.getAgentSessionKey(userId, sessionId);
+        if (properties.isRedisEnabled()) {
+            try {
+                String encoded = redisCache.get(key, String.class);
+                count("redis", encoded != null);
+                return encoded == null ? AgentMessageCodec.decode(null) : AgentMessageCodec.decode(Base64.getDecoder().decode(encoded));
+            } catch (Exception e) {
+                log.warn("读取 Redis 智能体会话失败，使用本地缓存：{}", e.getMessage());
+            }
+        }
+        byte[] data = null;
+        long now = System.currentTimeMillis();
+        synchronized (local) {
+            StoredState state = local.get(key);
+            if (state != null && state.expireAt > now) {
+                data = state.data;
+            } else if (state != null) {
+                removeLocal(key);
+            }
+        }
+        count("local", data != null);
+        return AgentMessageCodec.decode(data);
+    }
+
+    /**
+     * 保存会话历史（截断到最近 maxMessages 条）
+     */
+    public void save(Long userId, Long sessionId, List<Message> messages) {
+        List<Message> recent = messages.size() > properties.getMaxMessages()
+                ? messages.subList(messages.size() - properties.getMaxMessages(), messages.size())
+                : messages;
+        byte[] data = AgentMessageCodec.encode(recent, properties.getCompressThreshold());
+        meterRegistry.summary("agent.session.state.bytes").record(data.length);
+        String key = RedisKeys.getAgentSessionKey(userId, sessionId);
+        if (properties.isRedisEnabled()) {
+            try {
+                redisCache.set(key, Base64.getEncoder().encodeToString(data),
+                        properties.getIdleTtl().toSeconds(), TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("写入 Redis 智能体会话失败，仅保存到本地：{}", e.getMessage());
+            }
+        }
+        synchronized (local) {
+            removeLocal(key);
+            local.put(key, new StoredState(data, System.currentTimeMillis() + properties.getIdleTtl().toMillis()));
+            localBytes += data.length;
+            // 按总字节数淘汰最久未用的会话
+            var iterator = local.entrySet().iterator();
+            while (localBytes > properties.getMaxLocalBytes() && iterator.hasNext()) {
+                Map.Entry<String, StoredState> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                localBytes -= eldest.getValue().data.length;
+                iterator.remove();
+                meterRegistry.counter("agent.session.evictions").increment();
+            }
+        }
+    }
+
+    /**
+     * 删除会话状态
+     */
+    public void delete(Long userId, Long sessionId) {
+        String key = RedisKeys.getAgentSessionKey(userId, sessionId);
+        if (properties.isRedisEnabled()) {
+            try {
+                redisCache.delete(key);
+            } catch (Exception e) {
+                log.warn("删除 Redis 智能体会话失败：{}", e.getMessage());
+            }
+        }
+        synchronized (local) {
+            removeLocal(key);
+        }
+    }
+
+    private void removeLocal(String key) {
+        StoredState removed = local.remove(key);
+        if (removed != null) {
+            localBytes -= removed.data.length;
+        }
+    }
+
+    private long localBytes() {
+        synchronized (local) {
+            return localBytes;
+        }
+    }
+
+    private int localCount() {
+        synchronized (local) {
+            return local.size();
+        }
+    }
+
+    private void count(String source, boolean hit) {
+        meterRegistry.counter("agent.session.loads", "source", source, "result", hit ? "hit" : "miss").increment();
+    }
+
+    private record StoredState(byte[] data, long expireAt) {
+    }
+}
@@ -0,0 +1,54 @@
+package top.xym.campusassistantapi.module.agent.tools.cache;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * 带结果缓存的 ToolCallback 装饰器（工具均为只读查询，相同参数的结果可直接复用）
+ */
+public class CachingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final ToolResultCache cache;
+
+    public CachingToolCallback(ToolCallback delegate, ToolResultCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        String toolName = getToolDefinition().name();
+        if (!cache.isCacheable(toolName)) {
+            return invoke(toolInput, toolContext);
+        }
+        String cached = cache.get(toolName, toolInput);
+        if (cached != null) {
+            return cached;
+        }
+        String result = invoke(toolInput, toolContext);
+        cache.put(toolName, toolInput, result);
+        return result;
+    }
+
+    private String invoke(String toolInput, ToolContext toolContext) {
+        return toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+    }
+}
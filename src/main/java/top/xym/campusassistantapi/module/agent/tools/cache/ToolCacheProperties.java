@@ -0,0 +1,75 @@
+package top.xym.campusassistantapi.module.agent.tools.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 智能体工具结果缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.tool-cache")
+public class ToolCacheProperties {
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+    /**
+     * 最大缓存条数（所有工具合计，LRU 淘汰）
+     */
+    private int maxEntries = 5000;
+    /**
+     * 学期切换日（每年，格式 MM-dd），成绩/课表缓存在下一个切换日失效
+     */
+    private List<String> semesterBoundaries = new ArrayList<>(List.of("02-15", "09-01"));
+    /**
+     * 各工具的缓存规则（未配置的工具不缓存）
+     */
+    private Map<String, Rule> rules = new HashMap<>(Map.of(
+            "course_query", new Rule(ExpiryPolicy.SEMESTER, null),
+            "grade_query", new Rule(ExpiryPolicy.SEMESTER, null),
+            "dining_info", new Rule(ExpiryPolicy.MIDNIGHT, null),
+            "campus_navigation", new Rule(ExpiryPolicy.FIXED, Duration.ofDays(7)),
+            "campus_knowledge", new Rule(ExpiryPolicy.FIXED, Duration.ofDays(1)),
+            "activity_notification", new Rule(ExpiryPolicy.FIXED, Duration.ofMinutes(10)),
+            "library_service", new Rule(ExpiryPolicy.FIXED, Duration.ofMinutes(1))
+    ));
+
+    /**
+     * 过期策略
+     */
+    public enum ExpiryPolicy {
+        /**
+         * 固定时长
+         */
+        FIXED,
+        /**
+         * 当天 24 点
+         */
+        MIDNIGHT,
+        /**
+         * 下一个学期切换日
+         */
+        SEMESTER
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+        private ExpiryPolicy policy = ExpiryPolicy.FIXED;
+        /**
+         * 固定时长（policy=FIXED 时使用）
+         */
+        private Duration ttl;
+    }
+}
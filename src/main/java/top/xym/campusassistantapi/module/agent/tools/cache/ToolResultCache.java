@@ -0,0 +1,233 @@
+package top.xym.campusassistantapi.module.agent.tools.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 智能体工具结果缓存
+ * 键为「工具名 + 归一化后的请求 JSON」（字段排序、去掉空值、字符串去首尾空白、operation 转小写），
+ * 过期时间按工具规则计算；淘汰策略：LRU（超出最大条数）+ TTL（过期懒删除）
+ */
+@Slf4j
+@Component
+public class ToolResultCache {
+
+    private final ToolCacheProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * accessOrder=true 的 LinkedHashMap 即 LRU，所有访问在 synchronized 中进行
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            boolean evict = size() > properties.getMaxEntries();
+            if (evict) {
+                lruEvictions.increment();
+            }
+            return evict;
+        }
+    };
+
+    private final Counter lruEvictions;
+    private final Counter ttlEvictions;
+
+    public ToolResultCache(ToolCacheProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.lruEvictions = meterRegistry.counter("agent.tool.cache.evictions", "reason", "lru");
+        this.ttlEvictions = meterRegistry.counter("agent.tool.cache.evictions", "reason", "ttl");
+        Gauge.builder("agent.tool.cache.size", this, ToolResultCache::size).register(meterRegistry);
+    }
+
+    /**
+     * 该工具是否配置了缓存规则
+     */
+    public boolean isCacheable(String toolName) {
+        return properties.isEnabled() && properties.getRules().containsKey(toolName);
+    }
+
+    /**
+     * 查询缓存结果，未命中返回 null
+     */
+    public String get(String toolName, String toolInput) {
+        String key = key(toolName, toolInput);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expireAt > now) {
+                    count(toolName, "hit");
+                    return entry.result;
+                }
+                entries.remove(key);
+                ttlEvictions.increment();
+            }
+        }
+        count(toolName, "miss");
+        return null;
+    }
+
+    /**
+     * 写入缓存（错误提示不缓存）
+     */
+    public void put(String toolName, String toolInput, String result) {
+        if (result == null || result.startsWith("错误")) {
+            return;
+        }
+        long expireAt = expireAt(properties.getRules().get(toolName));
+        if (expireAt <= System.currentTimeMillis()) {
+            return;
+        }
+        String key = key(toolName, toolInput);
+        synchronized (entries) {
+            entries.put(key, new CacheEntry(toolName, normalizedArguments(toolInput), result, expireAt));
+        }
+    }
+
+    /**
+     * 失效某个工具的全部缓存（如菜单、课表数据更新后调用）
+     *
+     * @return 失效条数
+     */
+    public int invalidateTool(String toolName) {
+        return invalidateWhere(toolName, null, null);
+    }
+
+    /**
+     * 失效某个工具中指定参数取值的缓存，如 invalidateWhere("grade_query", "studentId", "2022001")
+     *
+     * @return 失效条数
+     */
+    public int invalidateWhere(String toolName, String argument, String value) {
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                CacheEntry entry = iterator.next();
+                if (!entry.toolName.equals(toolName)) {
+                    continue;
+                }
+                if (argument != null && !value.equals(entry.arguments.get(argument))) {
+                    continue;
+                }
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            meterRegistry.counter("agent.tool.cache.evictions", "reason", "invalidate").increment(removed);
+            log.info("工具{}缓存失效{}条（{}={}）", toolName, removed, argument, value);
+        }
+        return removed;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 按规则计算过期时间（毫秒时间戳）
+     */
+    private long expireAt(ToolCacheProperties.Rule rule) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime now = LocalDateTime.now(zone);
+        LocalDateTime expire = switch (rule.getPolicy()) {
+            case MIDNIGHT -> now.toLocalDate().plusDays(1).atStartOfDay();
+            case SEMESTER -> nextSemesterBoundary(now.toLocalDate()).atStartOfDay();
+            case FIXED -> rule.getTtl() == null ? now : now.plus(rule.getTtl());
+        };
+        return expire.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private LocalDate nextSemesterBoundary(LocalDate today) {
+        LocalDate next = null;
+        for (String text : properties.getSemesterBoundaries()) {
+            MonthDay boundary = MonthDay.parse("--" + text.strip());
+            LocalDate candidate = boundary.atYear(today.getYear());
+            if (!candidate.isAfter(today)) {
+                candidate = boundary.atYear(today.getYear() + 1);
+            }
+            if (next == null || candidate.isBefore(next)) {
+                next = candidate;
+            }
+        }
+        // 未配置切换日时退化为缓存到次日
+        return next == null ? today.plusDays(1) : next;
+    }
+
+    private String key(String toolName, String toolInput) {
+        try {
+            return toolName + ":" + objectMapper.writeValueAsString(normalizedArguments(toolInput));
+        } catch (Exception e) {
+            return toolName + ":" + toolInput.strip();
+        }
+    }
+
+    /**
+     * 请求 JSON 归一化为有序 Map：字段排序、去掉 null/空串、字符串去首尾空白、operation 转小写
+     */
+    private Map<String, String> normalizedArguments(String toolInput) {
+        Map<String, String> arguments = new TreeMap<>();
+        try {
+            JsonNode node = objectMapper.readTree(toolInput);
+            if (node instanceof ObjectNode objectNode) {
+                List<String> fields = new ArrayList<>();
+                objectNode.fieldNames().forEachRemaining(fields::add);
+                for (String field : fields) {
+                    JsonNode value = objectNode.get(field);
+                    if (value == null || value.isNull()) {
+                        continue;
+                    }
+                    String text = value.isValueNode() ? value.asText().strip() : value.toString();
+                    if (text.isEmpty()) {
+                        continue;
+                    }
+                    arguments.put(field, "operation".equals(field) ? text.toLowerCase() : text);
+                }
+                return arguments;
+            }
+        } catch (Exception e) {
+            // 非 JSON 输入：整体作为一个参数
+        }
+        arguments.put("_raw", toolInput == null ? "" : toolInput.strip());
+        return arguments;
+    }
+
+    private void count(String toolName, String result) {
+        meterRegistry.counter("agent.tool.cache.requests", "tool", toolName, "result", result).increment();
+    }
+
+    private record CacheEntry(String toolName, Map<String, String> arguments, String result, long expireAt) {
+    }
+}
@@ -0,0 +1,40 @@
+package top.xym.campusassistantapi.module.chat.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 问答缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.answer-cache")
+public class AnswerCacheProperties {
+    /**
+     * 是否启用缓存
+     */
+    private boolean enabled = true;
+    /**
+     * 最大缓存条数（超出按 LRU 淘汰）
+     */
+    private int maxEntries = 2000;
+    /**
+     * 缓存有效期
+     */
+    private Duration ttl = Duration.ofHours(6);
+    /**
+     * 是否启用近似匹配
+     */
+    private boolean semanticEnabled = true;
+    /**
+     * 近似匹配的余弦相似度阈值
+     */
+    private double similarityThreshold = 0.92;
+    /**
+     * 流式回放时每个片段的字符数
+     */
+    private int replayChunkSize = 32;
+}
@@ -0,0 +1,16 @@
+package top.xym.campusassistantapi.module.chat.cache;
+
+/**
+ * 本地向量化函数（用于问答缓存的近似匹配）
+ * 注册该接口的 Bean 即可替换默认的 {@link HashingEmbeddingFunction}
+ */
+public interface EmbeddingFunction {
+
+    /**
+     * 将归一化后的问题文本转换为 L2 归一化向量
+     *
+     * @param normalizedText 归一化后的问题文本
+     * @return 向量（长度需保持一致）
+     */
+    float[] embed(String normalizedText);
+}
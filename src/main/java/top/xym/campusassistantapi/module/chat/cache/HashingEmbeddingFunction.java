@@ -0,0 +1,37 @@
+package top.xym.campusassistantapi.module.chat.cache;
+
+/**
+ * 默认向量化实现：字符二元组哈希到固定维度（纯本地计算，无需调用模型）
+ * 对中文短问题的改写（增删个别字、调换语气词）有较好的容忍度
+ */
+public class HashingEmbeddingFunction implements EmbeddingFunction {
+
+    private static final int DIMENSIONS = 256;
+
+    @Override
+    public float[] embed(String normalizedText) {
+        float[] vector = new float[DIMENSIONS];
+        if (normalizedText == null || normalizedText.isEmpty()) {
+            return vector;
+        }
+        int[] codePoints = normalizedText.codePoints().toArray();
+        if (codePoints.length == 1) {
+            vector[Math.floorMod(codePoints[0] * 31, DIMENSIONS)] = 1f;
+            return vector;
+        }
+        for (int i = 0; i < codePoints.length - 1; i++) {
+            int hash = codePoints[i] * 31 + codePoints[i + 1];
+            vector[Math.floorMod(hash * 0x9E3779B1, DIMENSIONS)] += 1f;
+        }
+        // L2 归一化，使点积即为余弦相似度
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+        return vector;
+    }
+}
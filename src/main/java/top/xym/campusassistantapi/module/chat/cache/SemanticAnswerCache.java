@@ -0,0 +1,216 @@
+package top.xym.campusassistantapi.module.chat.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 问答结果缓存：问题文本归一化后精确匹配，未命中时再按向量相似度近似匹配
+ * 淘汰策略：LRU（超出最大条数）+ TTL（过期懒删除）
+ */
+@Slf4j
+@Component
+public class SemanticAnswerCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    /**
+     * 句末标点（NFKC 之后全角问号、感叹号等已转为半角）
+     */
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.,;:~。，、；：…]+$");
+
+    private final AnswerCacheProperties properties;
+    private final EmbeddingFunction embeddingFunction;
+
+    /**
+     * accessOrder=true 的 LinkedHashMap 即 LRU，所有访问在 synchronized 中进行
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            boolean evict = size() > properties.getMaxEntries();
+            if (evict) {
+                lruEvictions.increment();
+            }
+            return evict;
+        }
+    };
+
+    private final Counter exactHits;
+    private final Counter semanticHits;
+    private final Counter misses;
+    private final Counter lruEvictions;
+    private final Counter ttlEvictions;
+
+    public SemanticAnswerCache(AnswerCacheProperties properties,
+                               ObjectProvider<EmbeddingFunction> embeddingFunction,
+                               MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.embeddingFunction = embeddingFunction.getIfAvailable(HashingEmbeddingFunction::new);
+        this.exactHits = meterRegistry.counter("qna.answer.cache.requests", "result", "hit_exact");
+        this.semanticHits = meterRegistry.counter("qna.answer.cache.requests", "result", "hit_semantic");
+        this.misses = meterRegistry.counter("qna.answer.cache.requests", "result", "miss");
+        this.lruEvictions = meterRegistry.counter("qna.answer.cache.evictions", "reason", "lru");
+        this.ttlEvictions = meterRegistry.counter("qna.answer.cache.evictions", "reason", "ttl");
+        Gauge.builder("qna.answer.cache.size", this, SemanticAnswerCache::size).register(meterRegistry);
+    }
+
+    /**
+     * 问题文本归一化：全角转半角、转小写、连续空白合并为一个空格、去掉末尾的句末标点
+     * 句中的标点与符号保留，避免 "C++" 与 "C"、"C#" 与 "C" 这类不同问题归一成同一个键
+     */
+    public static String normalize(String question) {
+        if (question == null) {
+            return "";
+        }
+        String text = Normalizer.normalize(question, Normalizer.Form.NFKC).toLowerCase();
+        text = WHITESPACE.matcher(text).replaceAll(" ").strip();
+        return TRAILING_PUNCTUATION.matcher(text).replaceAll("");
+    }
+
+    /**
+     * 查询缓存答案
+     *
+     * @param namespace 命名空间（不同提示词模板的答案互不复用）
+     * @param question  原始问题
+     * @return 缓存的答案，未命中返回 null
+     */
+    public String get(String namespace, String question) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        String normalized = normalize(question);
+        String key = namespace + ":" + normalized;
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CacheEntry exact = entries.get(key);
+            if (exact != null) {
+                if (exact.expireAt > now) {
+                    exactHits.increment();
+                    return exact.answer;
+                }
+                entries.remove(key);
+                ttlEvictions.increment();
+            }
+        }
+        if (properties.isSemanticEnabled()) {
+            String answer = findSimilar(namespace, embeddingFunction.embed(normalized), now);
+            if (answer != null) {
+                semanticHits.increment();
+                return answer;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入缓存
+     */
+    public void put(String namespace, String question, String answer) {
+        if (!properties.isEnabled() || answer == null || answer.isBlank()) {
+            return;
+        }
+        String normalized = normalize(question);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        float[] vector = properties.isSemanticEnabled() ? embeddingFunction.embed(normalized) : null;
+        CacheEntry entry = new CacheEntry(namespace, vector, answer,
+                System.currentTimeMillis() + properties.getTtl().toMillis());
+        synchronized (entries) {
+            entries.put(namespace + ":" + normalized, entry);
+        }
+    }
+
+    /**
+     * 将缓存答案按固定长度切片，回放为流式输出
+     */
+    public Flux<String> replay(String answer) {
+        int chunkSize = Math.max(1, properties.getReplayChunkSize());
+        List<String> chunks = new ArrayList<>(answer.length() / chunkSize + 1);
+        int offset = 0;
+        while (offset < answer.length()) {
+            // 避免把代理对（emoji 等）切成两半
+            int end = Math.min(answer.length(), offset + chunkSize);
+            if (end < answer.length() && Character.isHighSurrogate(answer.charAt(end - 1))) {
+                end++;
+            }
+            chunks.add(answer.substring(offset, end));
+            offset = end;
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 线性扫描同一命名空间下的向量，返回相似度最高且超过阈值的答案
+     */
+    private String findSimilar(String namespace, float[] query, long now) {
+        CacheEntry best = null;
+        double bestScore = properties.getSimilarityThreshold();
+        synchronized (entries) {
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                CacheEntry candidate = iterator.next();
+                if (candidate.expireAt <= now) {
+                    iterator.remove();
+                    ttlEvictions.increment();
+                    continue;
+                }
+                if (candidate.vector == null || !candidate.namespace.equals(namespace)) {
+                    continue;
+                }
+                double score = dot(query, candidate.vector);
+                if (score >= bestScore) {
+                    bestScore = score;
+                    best = candidate;
+                }
+            }
+        }
+        if (best != null) {
+            log.debug("问答缓存近似命中，相似度：{}", bestScore);
+            return best.answer;
+        }
+        return null;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record CacheEntry(String namespace, float[] vector, String answer, long expireAt) {
+    }
+}
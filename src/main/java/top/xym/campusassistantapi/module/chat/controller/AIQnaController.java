@@ -2,14 +2,15 @@ package top.xym.campusassistantapi.module.chat.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import reactor.core.publisher.Flux;
+import top.xym.campusassistantapi.infrastructure.sse.SseStreams;
 import top.xym.campusassistantapi.module.chat.dto.MultiModalQaRequest;
-import top.xym.campusassistantapi.module.chat.dto.QaStreamResponse;
 import top.xym.campusassistantapi.module.chat.service.AIQnaService;
 import top.xym.starter.common.result.Result;
 
@@ -21,6 +22,8 @@ public class AIQnaController {
 
     private static final String DEFAULT_QUESTION = "你是谁？";
 
+    private static final String IMAGE_CONTENT_PREFIX = "[图片解析]";
+
     private final AIQnaService aiQnaService;
 
     /**
@@ -42,19 +45,22 @@ public class AIQnaController {
     }
 
     private final AIQnaService qaService;
+
+    private final SseStreams sseStreams;
+
     /**
      * 多模块流式问答接口
+     * 不带事件名的 data 帧（与原 Flux<QaStreamResponse> 输出一致），data 为 {"type":"CONTENT|END|ERROR","content":"..."}
      */
     @PostMapping(
             value = "/stream",
             produces = MediaType.TEXT_EVENT_STREAM_VALUE + ";charset=UTF-8",
             consumes = MediaType.APPLICATION_JSON_VALUE
     )
-    public Flux<QaStreamResponse> streamQa(
-            @Valid @RequestBody MultiModalQaRequest request,
-            HttpServletResponse response) { // 注入响应对象
-        response.setCharacterEncoding("UTF-8");
-        return qaService.streamQa(request);
+    public ResponseEntity<ResponseBodyEmitter> streamQa(@Valid @RequestBody MultiModalQaRequest request) {
+        // 给图片解析内容加标记，方便前端区分（前缀直接编码进帧，不拼接字符串）
+        String prefix = AIQnaService.hasImages(request) ? IMAGE_CONTENT_PREFIX : null;
+        return sseStreams.stream(qaService.streamQa(request), SseStreams.FrameStyle.UNNAMED, (writer, content) -> writer.content(prefix, content));
     }
 
 }
@@ -7,7 +7,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
-import top.xym.campusassistantapi.common.utils.OssUtil;
+import top.xym.campusassistantapi.module.chat.image.ImageUploadService;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -16,19 +16,19 @@ import java.util.Map;
 @RequestMapping("/api/v1/file")
 @Tag(name = "图片上传接口")
 public class FileUploadController {
-    private final OssUtil ossUtil;
+    private final ImageUploadService imageUploadService;
 
-    public FileUploadController(OssUtil ossUtil) {
-        this.ossUtil = ossUtil;
+    public FileUploadController(ImageUploadService imageUploadService) {
+        this.imageUploadService = imageUploadService;
     }
 
     /**
-     * 图片上传接口（前端传二进制，后端中转到OSS）
+     * 图片上传接口（前端传二进制，后端缩放、去除元数据后中转到OSS）
      */
     @PostMapping("/upload/image")
     public Map<String, String> uploadImage(@RequestParam("file") MultipartFile file) throws Exception {
-        // 调用OSS工具类上传，返回临时URL
-        String imageUrl = ossUtil.uploadImage(file);
+        // 预处理后上传，返回临时URL（多模态问答使用的就是缩小后的图片）
+        String imageUrl = imageUploadService.upload(file);
         Map<String, String> result = new HashMap<>();
         result.put("code", "200");
         result.put("imageUrl", imageUrl);
@@ -0,0 +1,77 @@
+package top.xym.campusassistantapi.module.chat.image;
+
+/**
+ * 读取 JPEG 中 EXIF 的方向标记（0x0112）
+ * 手机照片通常以传感器方向存储像素、用该标记记录旋转，去除元数据前必须先按它摆正
+ */
+final class ExifOrientation {
+
+    private static final int TAG_ORIENTATION = 0x0112;
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * @return 方向值 1~8，没有或无法解析时返回 1（正常方向）
+     */
+    static int read(byte[] jpeg) {
+        try {
+            if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+                return 1;
+            }
+            int pos = 2;
+            while (pos + 4 <= jpeg.length) {
+                if ((jpeg[pos] & 0xFF) != 0xFF) {
+                    return 1;
+                }
+                int marker = jpeg[pos + 1] & 0xFF;
+                int length = ((jpeg[pos + 2] & 0xFF) << 8) | (jpeg[pos + 3] & 0xFF);
+                if (marker == 0xDA) {
+                    // 图像数据开始，之后不会再有 APP 段
+                    return 1;
+                }
+                if (marker == 0xE1 && isExifHeader(jpeg, pos + 4)) {
+                    return readTiff(jpeg, pos + 10, Math.min(jpeg.length, pos + 2 + length));
+                }
+                pos += 2 + length;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // 元数据损坏，按正常方向处理
+        }
+        return 1;
+    }
+
+    private static boolean isExifHeader(byte[] data, int offset) {
+        return offset + 6 <= data.length && data[offset] == 'E' && data[offset + 1] == 'x'
+                && data[offset + 2] == 'i' && data[offset + 3] == 'f' && data[offset + 4] == 0 && data[offset + 5] == 0;
+    }
+
+    private static int readTiff(byte[] data, int tiff, int end) {
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, littleEndian);
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                return 1;
+            }
+            if (readShort(data, entry, littleEndian) == TAG_ORIENTATION) {
+                int value = readShort(data, entry + 8, littleEndian);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        int low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return (high << 16) | low;
+    }
+}
@@ -0,0 +1,121 @@
+package top.xym.campusassistantapi.module.chat.image;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 无损去除图片元数据：只删除元数据段/块，像素数据原样保留
+ * - JPEG：删除 APP1（EXIF、XMP）、APP3~APP13（含 IPTC）、APP15 与 COM 注释段；
+ *   保留 APP0（JFIF）、APP2（ICC 色彩配置）与 APP14（Adobe 色彩变换），它们影响颜色还原
+ * - PNG：删除 eXIf、tEXt、zTXt、iTXt（含 XMP）与 tIME 块
+ */
+final class ImageMetadata {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private ImageMetadata() {
+    }
+
+    /**
+     * @return 去除元数据后的数据（没有元数据时返回原数组）；不支持的格式或结构损坏时返回 null，由调用方重新编码
+     */
+    static byte[] strip(byte[] data) {
+        try {
+            if (data.length >= 4 && (data[0] & 0xFF) == 0xFF && (data[1] & 0xFF) == 0xD8) {
+                return stripJpeg(data);
+            }
+            if (isPng(data)) {
+                return stripPng(data);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // 结构损坏，交给重新编码
+        }
+        return null;
+    }
+
+    private static byte[] stripJpeg(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        out.write(data, 0, 2);
+        boolean stripped = false;
+        int pos = 2;
+        while (true) {
+            if (pos + 4 > data.length || (data[pos] & 0xFF) != 0xFF) {
+                return null;
+            }
+            int marker = data[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                // 段之间的填充字节
+                pos++;
+                continue;
+            }
+            if (marker == 0xDA) {
+                // 图像数据开始：之后的内容（含扫描数据与 EOI）原样复制
+                out.write(data, pos, data.length - pos);
+                break;
+            }
+            int length = ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+            if (length < 2 || pos + 2 + length > data.length) {
+                return null;
+            }
+            if (isMetadataSegment(marker)) {
+                stripped = true;
+            } else {
+                out.write(data, pos, 2 + length);
+            }
+            pos += 2 + length;
+        }
+        return stripped ? out.toByteArray() : data;
+    }
+
+    private static boolean isMetadataSegment(int marker) {
+        return marker == 0xE1 || (marker >= 0xE3 && marker <= 0xED) || marker == 0xEF || marker == 0xFE;
+    }
+
+    private static byte[] stripPng(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        out.write(data, 0, PNG_SIGNATURE.length);
+        boolean stripped = false;
+        int pos = PNG_SIGNATURE.length;
+        while (pos < data.length) {
+            if (pos + 12 > data.length) {
+                return null;
+            }
+            long length = ((data[pos] & 0xFFL) << 24) | ((data[pos + 1] & 0xFF) << 16)
+                    | ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+            long chunkBytes = 12 + length;
+            if (pos + chunkBytes > data.length) {
+                return null;
+            }
+            String type = new String(data, pos + 4, 4, StandardCharsets.US_ASCII);
+            if (isMetadataChunk(type)) {
+                stripped = true;
+            } else {
+                out.write(data, pos, (int) chunkBytes);
+            }
+            pos += (int) chunkBytes;
+            if ("IEND".equals(type)) {
+                break;
+            }
+        }
+        return stripped ? out.toByteArray() : data;
+    }
+
+    private static boolean isMetadataChunk(String type) {
+        return switch (type) {
+            case "eXIf", "tEXt", "zTXt", "iTXt", "tIME" -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isPng(byte[] data) {
+        if (data.length < PNG_SIGNATURE.length) {
+            return false;
+        }
+        for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+            if (data[i] != PNG_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,192 @@
+package top.xym.campusassistantapi.module.chat.image;
+
+import org.springframework.stereotype.Component;
+import top.xym.campusassistantapi.common.exception.ServerException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 图片预处理：读尺寸 -> 解码 -> 按 EXIF 方向摆正 -> 长边缩放 -> 重新编码为 JPEG
+ * 解码前先从图片头读取宽高：像素总数超限直接拒绝，长边远超目标尺寸时按行列间隔抽样解码，
+ * 解码内存与目标尺寸相当而非与原图相当
+ * 重新编码只写像素数据，EXIF（含 GPS 位置）等元数据随之去除；
+ * 不需要缩放、或重新编码反而更大时，返回无损去除元数据段后的原图（格式不支持无损去除时仍重新编码）
+ * 无法解码的格式（如 HEIC）原样返回
+ */
+@Component
+public class ImagePreprocessor {
+
+    private static final String JPEG = "image/jpeg";
+
+    private final ImageProcessingProperties properties;
+
+    public ImagePreprocessor(ImageProcessingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 处理结果
+     *
+     * @param data        图片数据
+     * @param contentType MIME 类型
+     * @param extension   文件扩展名（含点）
+     * @param processed   数据是否被改写（重新编码或去除了元数据）
+     */
+    public record ProcessedImage(byte[] data, String contentType, String extension, boolean processed) {
+    }
+
+    public ProcessedImage process(byte[] original, String contentType, String extension) throws IOException {
+        ProcessedImage untouched = new ProcessedImage(original, contentType, extension, false);
+        if (!properties.isEnabled()) {
+            return untouched;
+        }
+        BufferedImage source = decode(original);
+        if (source == null) {
+            return untouched;
+        }
+        int orientation = ExifOrientation.read(original);
+        int longEdge = Math.max(source.getWidth(), source.getHeight());
+        if (original.length < properties.getMinBytes() && longEdge <= properties.getMaxEdge() && orientation == 1) {
+            byte[] stripped = ImageMetadata.strip(original);
+            if (stripped != null) {
+                return new ProcessedImage(stripped, contentType, extension, stripped != original);
+            }
+        }
+
+        double scale = Math.min(1.0, properties.getMaxEdge() / (double) longEdge);
+        BufferedImage resized = render(source, scale, orientation);
+        byte[] encoded = encodeJpeg(resized, properties.getQuality());
+        if (encoded.length >= original.length && orientation == 1) {
+            byte[] stripped = ImageMetadata.strip(original);
+            if (stripped != null && stripped.length <= encoded.length) {
+                return new ProcessedImage(stripped, contentType, extension, stripped != original);
+            }
+        }
+        return new ProcessedImage(encoded, JPEG, ".jpg", true);
+    }
+
+    /**
+     * 先读取尺寸再解码，无法识别的格式返回 null
+     * 抽样间隔取 长边 / maxEdge 向下取整，抽样后的长边仍不小于 maxEdge，后续缩放质量不受影响
+     */
+    private BufferedImage decode(byte[] original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(original))) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > properties.getMaxPixels()) {
+                    throw new ServerException("图片尺寸过大（" + width + "x" + height + "），请压缩后再上传");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / Math.max(1, properties.getMaxEdge()));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 缩放并按 EXIF 方向摆正，输出不含透明通道的 RGB 图（透明区域填白）
+     */
+    private static BufferedImage render(BufferedImage source, double scale, int orientation) {
+        // 大幅缩小时先逐级减半，避免一次双线性插值丢失细节产生锯齿
+        BufferedImage current = source;
+        double remaining = scale;
+        while (remaining < 0.5) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+            remaining *= 2;
+        }
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage resized = draw(current, width, height);
+        if (orientation < 2 || orientation > 8) {
+            return resized;
+        }
+        boolean swap = orientation >= 5;
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.drawImage(resized, orientationTransform(orientation, width, height), null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, target.getWidth(), target.getHeight());
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, target.getWidth(), target.getHeight(), null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * EXIF 方向（2~8）对应的变换：把 width x height 的原方向图像画到摆正后的画布上
+     * 参数顺序为 (m00, m10, m01, m11, m02, m12)，即 x' = m00·x + m01·y + m02，y' = m10·x + m11·y + m12
+     */
+    private static AffineTransform orientationTransform(int orientation, int width, int height) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, width);
+            default -> new AffineTransform();
+        };
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DISABLED);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
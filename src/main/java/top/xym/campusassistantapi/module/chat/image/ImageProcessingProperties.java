@@ -0,0 +1,38 @@
+package top.xym.campusassistantapi.module.chat.image;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 上传图片预处理配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.image")
+public class ImageProcessingProperties {
+    /**
+     * 是否开启预处理（关闭时按原图上传）
+     */
+    private boolean enabled = true;
+    /**
+     * 长边最大像素，超过则等比缩小（多模态模型对更大的图片没有额外收益）
+     */
+    private int maxEdge = 1280;
+    /**
+     * 图片像素总数上限（宽 x 高），超过直接拒绝；解码前只读图片头判断，防止解压炸弹耗尽内存
+     */
+    private long maxPixels = 100_000_000L;
+    /**
+     * JPEG 重新编码质量（0~1）
+     */
+    private float quality = 0.8f;
+    /**
+     * 小于该字节数且尺寸未超限的图片不处理
+     */
+    private int minBytes = 150 * 1024;
+    /**
+     * 按内容哈希缓存的已处理图片数
+     */
+    private int cacheSize = 2000;
+}
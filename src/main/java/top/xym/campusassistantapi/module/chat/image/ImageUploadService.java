@@ -0,0 +1,112 @@
+package top.xym.campusassistantapi.module.chat.image;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import top.xym.campusassistantapi.common.exception.ServerException;
+import top.xym.campusassistantapi.common.utils.OssUtil;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片上传：预处理后上传到 OSS，交给多模态模型的是缩小后的版本
+ * 同一内容（SHA-256）的图片只处理、上传一次，之后直接重新签发临时 URL
+ */
+@Slf4j
+@Service
+public class ImageUploadService {
+
+    private final OssUtil ossUtil;
+    private final ImagePreprocessor preprocessor;
+    private final ImageProcessingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Timer processTimer;
+
+    /**
+     * 内容哈希 -> OSS 对象名（LRU，所有访问在 synchronized 中进行）
+     */
+    private final LinkedHashMap<String, String> derived;
+
+    public ImageUploadService(OssUtil ossUtil,
+                              ImagePreprocessor preprocessor,
+                              ImageProcessingProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.ossUtil = ossUtil;
+        this.preprocessor = preprocessor;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.processTimer = Timer.builder("image.preprocess.duration")
+                .description("图片解码、缩放与重新编码耗时")
+                .register(meterRegistry);
+        this.derived = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > properties.getCacheSize();
+            }
+        };
+    }
+
+    /**
+     * 上传图片，返回临时访问 URL
+     */
+    public String upload(MultipartFile file) throws Exception {
+        byte[] original = file.getBytes();
+        String hash = sha256(original);
+
+        String objectName;
+        synchronized (derived) {
+            objectName = derived.get(hash);
+        }
+        if (objectName != null) {
+            meterRegistry.counter("image.preprocess.cache", "result", "hit").increment();
+            return ossUtil.presignedUrl(objectName);
+        }
+        meterRegistry.counter("image.preprocess.cache", "result", "miss").increment();
+
+        String originalFilename = file.getOriginalFilename();
+        String extension = originalFilename != null && originalFilename.contains(".")
+                ? originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase()
+                : "";
+        ImagePreprocessor.ProcessedImage image;
+        long start = System.nanoTime();
+        try {
+            image = preprocessor.process(original, file.getContentType(), extension);
+        } catch (ServerException e) {
+            // 尺寸超限等明确拒绝的图片不上传
+            throw e;
+        } catch (Exception e) {
+            // 预处理失败不影响上传，按原图处理
+            log.warn("图片预处理失败，按原图上传：{}", e.getMessage());
+            image = new ImagePreprocessor.ProcessedImage(original, file.getContentType(), extension, false);
+        } finally {
+            processTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (image.processed()) {
+            meterRegistry.counter("image.preprocess.bytes.saved").increment(original.length - image.data().length);
+            log.debug("图片预处理：{} -> {} 字节", original.length, image.data().length);
+        }
+
+        // 以内容哈希命名，多个用户上传同一张图片只占一份存储
+        objectName = ossUtil.getTempDir() + hash + image.extension();
+        String url = ossUtil.uploadBytes(objectName, image.data(), image.contentType());
+        synchronized (derived) {
+            derived.put(hash, objectName);
+        }
+        return url;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
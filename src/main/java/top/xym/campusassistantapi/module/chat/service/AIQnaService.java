@@ -2,11 +2,23 @@ package top.xym.campusassistantapi.module.chat.service;
 
 import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import top.xym.campusassistantapi.infrastructure.llm.HedgedCaller;
+import top.xym.campusassistantapi.infrastructure.llm.LlmBulkhead;
+import top.xym.campusassistantapi.infrastructure.llm.LlmRequestCoalescer;
+import top.xym.campusassistantapi.infrastructure.llm.routing.RoutingChatModel;
+import top.xym.campusassistantapi.module.chat.cache.SemanticAnswerCache;
 import top.xym.campusassistantapi.module.chat.dto.MultiModalQaRequest;
-import top.xym.campusassistantapi.module.chat.dto.QaStreamResponse;
+import top.xym.campusassistantapi.module.message.history.TokenEstimator;
+import top.xym.campusassistantapi.module.message.stream.StreamCancellationMetrics;
+import top.xym.campusassistantapi.module.usage.service.TokenUsageRecorder;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * AI 问答服务
@@ -18,17 +30,40 @@ public class AIQnaService {
     private final DashScopeChatOptions dashScopeChatOptions;
     private final ChatClient chatClient;
     private final ChatClient.Builder chatClientBuilder;
+    private final SemanticAnswerCache answerCache;
+    private final LlmRequestCoalescer requestCoalescer;
+    private final LlmBulkhead llmBulkhead;
+    private final StreamCancellationMetrics cancellationMetrics;
+    private final HedgedCaller hedgedCaller;
+    private final TokenUsageRecorder tokenUsageRecorder;
 
     // 静态代码块/初始化块：初始化 chatClientBuilder 初始化
     public AIQnaService(ChatClient dashScopeChatClient,
                         DashScopeChatOptions dashScopeChatOptions,
-                        ChatClient.Builder chatClientBuilder) {
+                        ChatClient.Builder chatClientBuilder,
+                        SemanticAnswerCache answerCache,
+                        LlmRequestCoalescer requestCoalescer,
+                        LlmBulkhead llmBulkhead,
+                        StreamCancellationMetrics cancellationMetrics,
+                        HedgedCaller hedgedCaller,
+                        TokenUsageRecorder tokenUsageRecorder) {
         this.dashScopeChatClient = dashScopeChatClient;
         this.dashScopeChatOptions = dashScopeChatOptions;
         this.chatClientBuilder = chatClientBuilder;
         this.chatClient = chatClientBuilder.build();
+        this.answerCache = answerCache;
+        this.requestCoalescer = requestCoalescer;
+        this.llmBulkhead = llmBulkhead;
+        this.cancellationMetrics = cancellationMetrics;
+        this.hedgedCaller = hedgedCaller;
+        this.tokenUsageRecorder = tokenUsageRecorder;
     }
 
+    /**
+     * 缓存命名空间：普通问答与流式问答共用同一提示词模板，答案可互相复用
+     */
+    private static final String CACHE_NAMESPACE = "qna";
+
     private static final String DEFAULT_QUESTION = """
             你是一个专业的编程导师，请回答学生的问题。
             学生问题：
@@ -40,24 +75,57 @@ public class AIQnaService {
      * 普通问题
      */
     public String answerQuestionSimple(String question) {
+        // 先查缓存，命中则直接返回
+        String cached = answerCache.get(CACHE_NAMESPACE, question);
+        if (cached != null) {
+            return cached;
+        }
         // formatted() 是Java字符串类的实例方法，用于将参数替换到字符串中的占位符位置。
         String prompt = DEFAULT_QUESTION.formatted(question);
-        // 链式调用
-        return dashScopeChatClient.prompt(prompt).call().content();
+        String userKey = LlmBulkhead.currentUserKey();
+        Long userId = TokenUsageRecorder.currentUserId();
+        // 相同提示词并发到达时只调用一次上游，只有真正调用上游的请求占用并发许可
+        // 上游响应过慢时对冲一次（对冲请求同样占用并发许可，用量各自记录）
+        return requestCoalescer.call("qna.ask", prompt, () -> {
+            // 链式调用
+            String answer = hedgedCaller.call("qna.ask", () -> llmBulkhead.call(userKey, () -> {
+                ChatResponse response = dashScopeChatClient.prompt(prompt).call().chatResponse();
+                tokenUsageRecorder.record(userId, response);
+                return textOf(response);
+            }));
+            answerCache.put(CACHE_NAMESPACE, question, answer);
+            return answer;
+        });
     }
 
     /**
      * 流式问题
      */
     public Flux<String> answerQuestionStream(String question) {
+        // 缓存命中时按片段回放，保持流式输出的体验
+        String cached = answerCache.get(CACHE_NAMESPACE, question);
+        if (cached != null) {
+            return answerCache.replay(cached);
+        }
         String prompt = DEFAULT_QUESTION.formatted(question);
-        return dashScopeChatClient.prompt(prompt).stream().content();
+        String userKey = LlmBulkhead.currentUserKey();
+        Long userId = TokenUsageRecorder.currentUserId();
+        // 相同提示词的流式请求共享同一次上游调用
+        return requestCoalescer.stream("qna.stream", prompt, () -> llmBulkhead.stream(userKey, () -> {
+            StringBuilder fullAnswer = new StringBuilder();
+            return tokenUsageRecorder.recordOnFinish(userId, dashScopeChatClient.prompt(prompt).stream().chatResponse())
+                    .mapNotNull(AIQnaService::textOf)
+                    .doOnNext(fullAnswer::append)
+                    // 仅完整结束的回答写入缓存（出错或被取消的不缓存）
+                    .doOnComplete(() -> answerCache.put(CACHE_NAMESPACE, question, fullAnswer.toString()));
+        }));
     }
 
     /**
      * 多模块流式问答
+     * 返回模型输出的文本片段（已过滤空片段），由控制器编码为结构化 SSE 帧
      */
-    public Flux<QaStreamResponse> streamQa(MultiModalQaRequest request) {
+    public Flux<String> streamQa(MultiModalQaRequest request) {
 
         // 构建多模态 Prompt（融合文本+图片）
         StringBuilder promptBuilder = new StringBuilder();
@@ -65,28 +133,53 @@ public class AIQnaService {
         promptBuilder.append("文本提问：").append(request.getQuestion()).append("\n");
 
         // 拼接图片 URL (模型自动解析)
-        if (request.getImageUrls() != null && !request.getImageUrls().isEmpty()) {
+        boolean hasImages = hasImages(request);
+        if (hasImages) {
             promptBuilder.append("图片参考地址：").append(String.join("、",request.getImageUrls())).append("\n");
         }
 
         promptBuilder.append("要求：回答分段落逐句返回，避免冗长，确保流式输出流畅。");
         String prompt = promptBuilder.toString();
+        // 标记是否带图，供模型路由选择支持图片的档位
+        UserMessage userMessage = UserMessage.builder()
+                .text(prompt)
+                .metadata(Map.of(RoutingChatModel.IMAGES_HINT, hasImages))
+                .build();
 
         // 调用多模态模型（已开启multiModel=true）
-        Flux<ChatResponse> chatResponseFlux = chatClient.prompt(prompt).stream().chatResponse();
-
-        // 转换响应格式（标记图片解析内容）
-        return chatResponseFlux
-                .map(response -> {
-                    String content = response.getResult().getOutput().getText();
-                    // 给图片解析内容加标记，方便前端区分
-                    if (request.getImageUrls() != null && !request.getImageUrls().isEmpty()) {
-                        return QaStreamResponse.content("[图片解析]" + content);
-                    } else {
-                        return QaStreamResponse.content(content);
-                    }
-                })
-                .filter(qa -> qa.getContent() != null && !qa.getContent().trim().isEmpty()) // 过滤空内容
-                .concatWith(Flux.just(QaStreamResponse.end())); // 结束标记
+        // 客户端断开时写入失败，取消沿链路传到上游，同时释放并发许可
+        AtomicLong completionTokens = new AtomicLong();
+        Long userId = TokenUsageRecorder.currentUserId();
+        return llmBulkhead.stream(LlmBulkhead.currentUserKey(),
+                        () -> tokenUsageRecorder.recordOnFinish(userId, chatClient.prompt(new Prompt(userMessage)).stream().chatResponse()))
+                .doOnNext(response -> completionTokens.set(completionTokensOf(response, completionTokens.get())))
+                .doOnComplete(() -> cancellationMetrics.recordCompleted(completionTokens.get()))
+                .doOnCancel(() -> cancellationMetrics.recordCancelled(completionTokens.get()))
+                .mapNotNull(AIQnaService::textOf)
+                .filter(content -> !content.isBlank()); // 过滤空内容
+    }
+
+    /**
+     * 是否携带图片（带图时回答片段加标记，方便前端区分）
+     */
+    public static boolean hasImages(MultiModalQaRequest request) {
+        return request.getImageUrls() != null && !request.getImageUrls().isEmpty();
+    }
+
+    private static String textOf(ChatResponse response) {
+        return response == null || response.getResult() == null ? null : response.getResult().getOutput().getText();
+    }
+
+    /**
+     * 截至当前的输出 Token 数：优先取模型返回的累计用量，否则按片段估算累加
+     */
+    private long completionTokensOf(ChatResponse response, long previous) {
+        if (response.getMetadata() != null && response.getMetadata().getUsage() != null
+                && response.getMetadata().getUsage().getCompletionTokens() != null
+                && response.getMetadata().getUsage().getCompletionTokens() > 0) {
+            return response.getMetadata().getUsage().getCompletionTokens();
+        }
+        String text = textOf(response);
+        return previous + TokenEstimator.estimate(text);
     }
 }
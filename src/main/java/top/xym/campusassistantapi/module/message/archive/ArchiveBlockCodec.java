@@ -0,0 +1,208 @@
+package top.xym.campusassistantapi.module.message.archive;
+
+import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 归档块编解码
+ * 块格式：魔数(4) | 版本(1) | 消息数(4) | 原始长度(4) | CRC32(4) | deflate 压缩后的消息记录
+ * 消息记录为定长字段 + 长度前缀的 UTF-8 字符串（长度 -1 表示 null），会话ID由索引提供不重复存储
+ */
+final class ArchiveBlockCodec {
+
+    static final int MAGIC = 0x434D4131; // "CMA1"
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = 17;
+
+    private ArchiveBlockCodec() {
+    }
+
+    /**
+     * 编码结果
+     *
+     * @param block    写入段文件的完整块
+     * @param rawBytes 压缩前的记录字节数
+     */
+    record Encoded(byte[] block, int rawBytes) {
+    }
+
+    static Encoded encode(List<ChatMessage> messages) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            for (ChatMessage message : messages) {
+                out.writeLong(message.getId());
+                writeLong(out, message.getUserId());
+                writeString(out, message.getRole());
+                writeString(out, message.getContent());
+                writeString(out, message.getModelName());
+                writeInt(out, message.getTokens());
+                writeInt(out, message.getHasThinking());
+                writeString(out, message.getThinkingContent());
+                writeInt(out, message.getWebSearch());
+                writeInt(out, message.getStatus());
+                writeTime(out, message.getCreateTime());
+                writeTime(out, message.getUpdateTime());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] rawBytes = raw.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(rawBytes);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream block = new ByteArrayOutputStream(HEADER_BYTES + rawBytes.length / 3);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).put(VERSION).putInt(messages.size()).putInt(rawBytes.length).putInt((int) crc.getValue());
+            block.write(header.array(), 0, HEADER_BYTES);
+            deflater.setInput(rawBytes);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                block.write(buffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+        return new Encoded(block.toByteArray(), rawBytes.length);
+    }
+
+    /**
+     * 解码一个块（block 通常是段文件映射的切片，直接从映射内存解压，不经过堆拷贝）
+     */
+    static List<ChatMessage> decode(ByteBuffer block, Long sessionId) {
+        if (block.getInt() != MAGIC) {
+            throw new IllegalStateException("归档块魔数不匹配，sessionId=" + sessionId);
+        }
+        byte version = block.get();
+        if (version != VERSION) {
+            throw new IllegalStateException("不支持的归档块版本：" + version);
+        }
+        int count = block.getInt();
+        int rawLength = block.getInt();
+        int expectedCrc = block.getInt();
+
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IllegalStateException("归档块长度不完整，sessionId=" + sessionId);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("归档块解压失败，sessionId=" + sessionId, e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IllegalStateException("归档块校验失败，sessionId=" + sessionId);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        List<ChatMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ChatMessage message = new ChatMessage();
+            message.setId(in.getLong());
+            message.setSessionId(sessionId);
+            message.setUserId(readLong(in));
+            message.setRole(readString(in));
+            message.setContent(readString(in));
+            message.setModelName(readString(in));
+            message.setTokens(readInt(in));
+            message.setHasThinking(readInt(in));
+            message.setThinkingContent(readString(in));
+            message.setWebSearch(readInt(in));
+            message.setStatus(readInt(in));
+            message.setCreateTime(readTime(in));
+            message.setUpdateTime(readTime(in));
+            message.setDeleted(0);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(ByteBuffer in) {
+        return in.get() != 0 ? in.getLong() : null;
+    }
+
+    private static void writeInt(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInt(ByteBuffer in) {
+        return in.get() != 0 ? in.getInt() : null;
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,153 @@
+package top.xym.campusassistantapi.module.message.archive;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 归档段文件存储：只追加写入，按 (段号, 偏移, 长度) 读取
+ * - 写入由归档任务单线程调用，写完立即刷盘后才写索引
+ * - 读取时把整个段文件只读映射到内存（最近使用的若干段常驻），块数据直接从映射内存解压
+ * - 当前段在追加过程中变长，读取位置超出已映射范围时重新映射
+ */
+@Slf4j
+@Component
+public class ArchiveSegmentStore {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.seg");
+
+    private final MessageArchiveProperties properties;
+    private final Path directory;
+
+    /**
+     * 已映射的段：accessOrder=true 的 LinkedHashMap 即 LRU，淘汰后由 GC 解除映射
+     */
+    private final LinkedHashMap<Integer, MappedByteBuffer> mapped;
+
+    private FileChannel activeChannel;
+    private int activeSegment;
+
+    public ArchiveSegmentStore(MessageArchiveProperties properties) {
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+        this.mapped = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+                return size() > Math.max(1, properties.getMaxMappedSegments());
+            }
+        };
+    }
+
+    /**
+     * 段内位置
+     */
+    public record Pointer(int segmentNo, long offset, int length) {
+    }
+
+    /**
+     * 追加一个块并刷盘
+     */
+    public synchronized Pointer append(byte[] block) {
+        try {
+            FileChannel channel = activeChannel();
+            if (channel.size() > 0 && channel.size() + block.length > properties.getSegmentMaxBytes()) {
+                channel.close();
+                activeChannel = null;
+                activeSegment++;
+                channel = activeChannel();
+            }
+            long offset = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            channel.force(false);
+            return new Pointer(activeSegment, offset, block.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入归档段失败", e);
+        }
+    }
+
+    /**
+     * 读取一个块（返回映射内存上的只读切片）
+     */
+    public ByteBuffer read(int segmentNo, long offset, int length) {
+        MappedByteBuffer segment;
+        synchronized (mapped) {
+            segment = mapped.get(segmentNo);
+        }
+        if (segment == null || offset + length > segment.capacity()) {
+            segment = map(segmentNo, offset + length);
+        }
+        return segment.slice((int) offset, length);
+    }
+
+    private MappedByteBuffer map(int segmentNo, long requiredBytes) {
+        try (FileChannel channel = FileChannel.open(segmentPath(segmentNo), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < requiredBytes) {
+                throw new IllegalStateException("归档段 " + segmentNo + " 长度不足：" + size + " < " + requiredBytes);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("归档段 " + segmentNo + " 超过 2GB，无法映射");
+            }
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            synchronized (mapped) {
+                mapped.put(segmentNo, segment);
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("映射归档段失败：" + segmentNo, e);
+        }
+    }
+
+    private FileChannel activeChannel() throws IOException {
+        if (activeChannel == null) {
+            Files.createDirectories(directory);
+            if (activeSegment == 0) {
+                activeSegment = Math.max(1, lastSegmentNo());
+            }
+            activeChannel = FileChannel.open(segmentPath(activeSegment),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            log.info("归档段文件：{}", segmentPath(activeSegment));
+        }
+        return activeChannel;
+    }
+
+    private int lastSegmentNo() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> SEGMENT_NAME.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+                    .max()
+                    .orElse(0);
+        }
+    }
+
+    private Path segmentPath(int segmentNo) {
+        return directory.resolve("segment-%06d.seg".formatted(segmentNo));
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+            activeChannel = null;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package top.xym.campusassistantapi.module.message.archive;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 归档块索引：会话的一批消息在段文件中的位置
+ * 同一会话可能归档多次（归档后又有新消息），按 id 顺序拼接即为完整历史
+ */
+@Data
+@TableName("chat_message_archive")
+public class ChatMessageArchive {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    @TableField("session_id")
+    private Long sessionId;
+
+    @TableField("segment_no")
+    private Integer segmentNo;
+
+    @TableField("segment_offset")
+    private Long segmentOffset;
+
+    @TableField("block_length")
+    private Integer blockLength;
+
+    @TableField("message_count")
+    private Integer messageCount;
+
+    @TableField("first_message_id")
+    private Long firstMessageId;
+
+    @TableField("last_message_id")
+    private Long lastMessageId;
+
+    @TableField("raw_bytes")
+    private Integer rawBytes;
+
+    @TableField("create_time")
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,44 @@
+package top.xym.campusassistantapi.module.message.archive;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 冷会话消息归档配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.chat.archive")
+public class MessageArchiveProperties {
+    /**
+     * 是否启用定时归档（多实例部署时只在一个实例开启，段文件目录需为共享存储）
+     */
+    private boolean enabled = false;
+    /**
+     * 段文件目录
+     */
+    private String directory = "data/message-archive";
+    /**
+     * 会话最后一条消息超过该时长未更新即视为冷会话
+     */
+    private Duration inactiveAfter = Duration.ofDays(90);
+    /**
+     * 每轮最多归档的会话数
+     */
+    private int batchSize = 100;
+    /**
+     * 单个段文件的最大字节数，超过后切换到新段
+     */
+    private long segmentMaxBytes = 256L * 1024 * 1024;
+    /**
+     * 同时保持映射的段文件数（LRU）
+     */
+    private int maxMappedSegments = 32;
+    /**
+     * 已解压归档块缓存的总字节数上限（按块的原始字节数计）
+     */
+    private long blockCacheBytes = 16L * 1024 * 1024;
+}
@@ -0,0 +1,341 @@
+package top.xym.campusassistantapi.module.message.archive;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import top.xym.campusassistantapi.module.message.mapper.ChatMessageArchiveMapper;
+import top.xym.campusassistantapi.module.message.mapper.ChatMessageMapper;
+import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
+import top.xym.campusassistantapi.module.session.cache.SessionMetaCache;
+import top.xym.campusassistantapi.module.session.mapper.ChatSessionMapper;
+import top.xym.campusassistantapi.module.session.model.entity.ChatSession;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 冷会话消息归档：把长期不活跃会话的消息从 chat_message 移到压缩段文件，热表只保留活跃会话
+ * 归档顺序：写段文件并刷盘 -> 同一事务内写索引、删除热表消息、会话标记为归档(status=1) -> 失效会话元数据缓存
+ * 事务失败时段文件里只多出一个无索引引用的块，不影响数据正确性
+ * 归档后会话仍可继续对话：新消息写入热表，读取时归档部分在前、热表部分在后
+ * 读取按索引的消息数与首尾消息 ID 只解压需要的块，解压结果按块缓存
+ */
+@Slf4j
+@Service
+public class MessageArchiveService {
+
+    /**
+     * 会话状态：1-归档
+     */
+    public static final int SESSION_ARCHIVED = 1;
+
+    private final ChatMessageMapper chatMessageMapper;
+    private final ChatSessionMapper chatSessionMapper;
+    private final ChatMessageArchiveMapper archiveMapper;
+    private final ArchiveSegmentStore segmentStore;
+    private final SessionMetaCache sessionMetaCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageArchiveProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Timer readTimer;
+    private final BlockCache blockCache;
+
+    public MessageArchiveService(ChatMessageMapper chatMessageMapper,
+                                 ChatSessionMapper chatSessionMapper,
+                                 ChatMessageArchiveMapper archiveMapper,
+                                 ArchiveSegmentStore segmentStore,
+                                 SessionMetaCache sessionMetaCache,
+                                 TransactionTemplate transactionTemplate,
+                                 MessageArchiveProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.chatMessageMapper = chatMessageMapper;
+        this.chatSessionMapper = chatSessionMapper;
+        this.archiveMapper = archiveMapper;
+        this.segmentStore = segmentStore;
+        this.sessionMetaCache = sessionMetaCache;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.readTimer = Timer.builder("chat.archive.read")
+                .description("解压一个归档块耗时")
+                .register(meterRegistry);
+        this.blockCache = new BlockCache(properties.getBlockCacheBytes());
+        Gauge.builder("chat.archive.block.cache.bytes", blockCache, BlockCache::bytes).register(meterRegistry);
+    }
+
+    /**
+     * 定时归档冷会话
+     */
+    @Scheduled(fixedDelayString = "${campus.chat.archive.interval-ms:3600000}",
+            initialDelayString = "${campus.chat.archive.initial-delay-ms:600000}")
+    public void archiveInactiveSessions() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getInactiveAfter());
+        List<Long> sessionIds = archiveMapper.selectInactiveSessionIds(cutoff, properties.getBatchSize());
+        int archivedMessages = 0;
+        for (Long sessionId : sessionIds) {
+            try {
+                archivedMessages += archiveSession(sessionId);
+            } catch (Exception e) {
+                log.error("归档会话失败：sessionId={}", sessionId, e);
+                meterRegistry.counter("chat.archive.sessions", "result", "failed").increment();
+            }
+        }
+        if (!sessionIds.isEmpty()) {
+            log.info("冷会话归档：会话{}个，消息{}条", sessionIds.size(), archivedMessages);
+        }
+    }
+
+    /**
+     * 归档单个会话当前在热表中的全部未删除消息
+     *
+     * @return 归档的消息条数
+     */
+    public int archiveSession(Long sessionId) {
+        List<ChatMessage> rows = chatMessageMapper.selectList(new LambdaQueryWrapper<ChatMessage>()
+                .eq(ChatMessage::getSessionId, sessionId)
+                .orderByAsc(ChatMessage::getCreateTime)
+                .orderByAsc(ChatMessage::getId));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        // 扫描之后会话又有了新的提问：助手占位消息仍在生成，本次不归档
+        if (rows.stream().anyMatch(message -> Integer.valueOf(0).equals(message.getStatus()))) {
+            meterRegistry.counter("chat.archive.sessions", "result", "skipped").increment();
+            return 0;
+        }
+        // 已删除的消息不进入归档，随本次清理一起从热表删除
+        long maxId = rows.stream().mapToLong(ChatMessage::getId).max().getAsLong();
+        List<ChatMessage> messages = rows.stream()
+                .filter(message -> message.getDeleted() == null || message.getDeleted() == 0)
+                .toList();
+
+        ChatMessageArchive archive = null;
+        if (!messages.isEmpty()) {
+            ArchiveBlockCodec.Encoded encoded = ArchiveBlockCodec.encode(messages);
+            ArchiveSegmentStore.Pointer pointer = segmentStore.append(encoded.block());
+            archive = new ChatMessageArchive();
+            archive.setSessionId(sessionId);
+            archive.setSegmentNo(pointer.segmentNo());
+            archive.setSegmentOffset(pointer.offset());
+            archive.setBlockLength(pointer.length());
+            archive.setMessageCount(messages.size());
+            archive.setFirstMessageId(messages.get(0).getId());
+            archive.setLastMessageId(messages.get(messages.size() - 1).getId());
+            archive.setRawBytes(encoded.rawBytes());
+            archive.setCreateTime(LocalDateTime.now());
+            meterRegistry.counter("chat.archive.bytes", "kind", "raw").increment(encoded.rawBytes());
+            meterRegistry.counter("chat.archive.bytes", "kind", "stored").increment(pointer.length());
+        }
+
+        ChatMessageArchive index = archive;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (index != null) {
+                archiveMapper.insert(index);
+            }
+            // 只删除读取时已存在的消息（ID 不超过 maxId），归档期间新写入的消息留在热表
+            chatMessageMapper.delete(new LambdaQueryWrapper<ChatMessage>()
+                    .eq(ChatMessage::getSessionId, sessionId)
+                    .le(ChatMessage::getId, maxId));
+            chatSessionMapper.update(null, new LambdaUpdateWrapper<ChatSession>()
+                    .set(ChatSession::getStatus, SESSION_ARCHIVED)
+                    .eq(ChatSession::getId, sessionId));
+        });
+        sessionMetaCache.evict(sessionId);
+        meterRegistry.counter("chat.archive.sessions", "result", "success").increment();
+        meterRegistry.counter("chat.archive.messages").increment(messages.size());
+        return messages.size();
+    }
+
+    /**
+     * 按位置读取归档消息：整个会话归档部分（按时间正序）中第 offset 条起的至多 limit 条
+     * 按索引中各块的消息数定位，只解压覆盖该区间的块
+     */
+    public ArchivedPage pageArchived(Long sessionId, long offset, long limit) {
+        List<ChatMessageArchive> blocks = listBlocks(sessionId);
+        long total = blocks.stream().mapToLong(ChatMessageArchive::getMessageCount).sum();
+        if (offset >= total || limit <= 0) {
+            return new ArchivedPage(List.of(), total);
+        }
+        List<ChatMessage> messages = new ArrayList<>((int) Math.min(limit, total - offset));
+        long blockStart = 0;
+        for (ChatMessageArchive block : blocks) {
+            long blockEnd = blockStart + block.getMessageCount();
+            if (blockEnd > offset) {
+                List<ChatMessage> decoded = decode(block);
+                int from = (int) Math.max(0, offset - blockStart);
+                int to = (int) Math.min(decoded.size(), from + limit - messages.size());
+                messages.addAll(decoded.subList(from, to));
+                if (messages.size() >= limit) {
+                    break;
+                }
+            }
+            blockStart = blockEnd;
+        }
+        return new ArchivedPage(messages, total);
+    }
+
+    /**
+     * 从新到旧读取满足条件的归档消息，至多 limit 条（按时间倒序）
+     * 消息 ID 自增，与时间同序：首条消息 ID 不小于 beforeId 的块整块跳过，凑满 limit 即停止解压更早的块
+     *
+     * @param beforeId 只需要 ID 小于该值的消息（为 null 时从最新的块开始）
+     * @param filter   逐条过滤条件（精确的游标比较、状态等）
+     */
+    public List<ChatMessage> olderArchived(Long sessionId, Long beforeId, Predicate<ChatMessage> filter, int limit) {
+        List<ChatMessage> messages = new ArrayList<>();
+        if (limit <= 0) {
+            return messages;
+        }
+        List<ChatMessageArchive> blocks = listBlocks(sessionId);
+        for (int b = blocks.size() - 1; b >= 0; b--) {
+            ChatMessageArchive block = blocks.get(b);
+            if (beforeId != null && block.getFirstMessageId() >= beforeId) {
+                continue;
+            }
+            List<ChatMessage> decoded = decode(block);
+            for (int i = decoded.size() - 1; i >= 0; i--) {
+                if (filter.test(decoded.get(i))) {
+                    messages.add(decoded.get(i));
+                    if (messages.size() >= limit) {
+                        return messages;
+                    }
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * 从旧到新读取满足条件的归档消息，至多 limit 条（按时间正序）
+     * 最后一条消息 ID 不大于 afterId 的块整块跳过，凑满 limit 即停止解压更新的块
+     *
+     * @param afterId 只需要 ID 大于该值的消息（为 null 时从最早的块开始）
+     * @param filter  逐条过滤条件
+     */
+    public List<ChatMessage> newerArchived(Long sessionId, Long afterId, Predicate<ChatMessage> filter, int limit) {
+        List<ChatMessage> messages = new ArrayList<>();
+        if (limit <= 0) {
+            return messages;
+        }
+        for (ChatMessageArchive block : listBlocks(sessionId)) {
+            if (afterId != null && block.getLastMessageId() <= afterId) {
+                continue;
+            }
+            for (ChatMessage message : decode(block)) {
+                if (filter.test(message)) {
+                    messages.add(message);
+                    if (messages.size() >= limit) {
+                        return messages;
+                    }
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * 会话的归档块索引（按归档先后，即消息时间正序）
+     */
+    private List<ChatMessageArchive> listBlocks(Long sessionId) {
+        return archiveMapper.selectList(new LambdaQueryWrapper<ChatMessageArchive>()
+                .eq(ChatMessageArchive::getSessionId, sessionId)
+                .orderByAsc(ChatMessageArchive::getId));
+    }
+
+    /**
+     * 解压一个块（块写入后不再变化，解压结果按索引行 ID 缓存）
+     * 返回的列表与其中的消息在缓存中共享，调用方不得修改
+     */
+    private List<ChatMessage> decode(ChatMessageArchive block) {
+        List<ChatMessage> cached = blockCache.get(block.getId());
+        if (cached != null) {
+            meterRegistry.counter("chat.archive.block.cache", "result", "hit").increment();
+            return cached;
+        }
+        meterRegistry.counter("chat.archive.block.cache", "result", "miss").increment();
+        List<ChatMessage> decoded = readTimer.record(() -> List.copyOf(ArchiveBlockCodec.decode(
+                segmentStore.read(block.getSegmentNo(), block.getSegmentOffset(), block.getBlockLength()),
+                block.getSessionId())));
+        blockCache.put(block.getId(), decoded, block.getRawBytes());
+        return decoded;
+    }
+
+    /**
+     * 会话的归档消息条数（只读索引，不解压）
+     */
+    public long countArchived(Long sessionId) {
+        return archiveMapper.selectList(new LambdaQueryWrapper<ChatMessageArchive>()
+                        .select(ChatMessageArchive::getMessageCount)
+                        .eq(ChatMessageArchive::getSessionId, sessionId))
+                .stream().mapToLong(ChatMessageArchive::getMessageCount).sum();
+    }
+
+    /**
+     * 会话是否可能含有归档消息
+     */
+    public static boolean isArchived(Integer sessionStatus) {
+        return sessionStatus != null && sessionStatus == SESSION_ARCHIVED;
+    }
+
+    /**
+     * 按位置读取的归档消息
+     *
+     * @param messages 本次读取的消息
+     * @param total    会话归档消息总数
+     */
+    public record ArchivedPage(List<ChatMessage> messages, long total) {
+    }
+
+    /**
+     * 已解压块的 LRU 缓存，按块的原始字节数限制总量
+     * accessOrder=true 的 LinkedHashMap 即 LRU，所有访问在 synchronized 中进行
+     */
+    private static final class BlockCache {
+
+        private final LinkedHashMap<Long, CachedBlock> blocks = new LinkedHashMap<>(64, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        private BlockCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized List<ChatMessage> get(Long blockId) {
+            CachedBlock block = blocks.get(blockId);
+            return block == null ? null : block.messages();
+        }
+
+        synchronized void put(Long blockId, List<ChatMessage> messages, int rawBytes) {
+            if (rawBytes > maxBytes) {
+                return;
+            }
+            CachedBlock previous = blocks.put(blockId, new CachedBlock(messages, rawBytes));
+            bytes += rawBytes - (previous == null ? 0 : previous.rawBytes());
+            Iterator<CachedBlock> eldest = blocks.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().rawBytes();
+                eldest.remove();
+            }
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+
+    private record CachedBlock(List<ChatMessage> messages, int rawBytes) {
+    }
+}
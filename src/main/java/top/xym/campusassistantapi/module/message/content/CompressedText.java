@@ -0,0 +1,130 @@
+package top.xym.campusassistantapi.module.message.content;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 消息内容压缩编码（库中仍是文本列）
+ * - 普通内容原样存储
+ * - 压缩内容：标记字符 \u0001 + 版本字符 + 载荷，版本 '1' 的载荷为 deflate 后的 Base64
+ * - 原文恰好以标记字符开头时用版本 '0' 原样转义，保证解码无歧义
+ * TypeHandler 由 MyBatis 创建、无法注入，阈值与统计放在静态字段，由 {@link ContentCompressionConfig} 在启动时设置并注册指标
+ */
+public final class CompressedText {
+
+    static final char MARKER = '\u0001';
+    static final char VERSION_PLAIN = '0';
+    static final char VERSION_DEFLATE = '1';
+
+    private static volatile boolean enabled = true;
+    private static volatile int thresholdBytes = 2048;
+
+    static final LongAdder RAW_BYTES = new LongAdder();
+    static final LongAdder STORED_BYTES = new LongAdder();
+    static final LongAdder COMPRESSED = new LongAdder();
+    static final LongAdder SKIPPED = new LongAdder();
+
+    private CompressedText() {
+    }
+
+    static void configure(boolean enabled, int thresholdBytes) {
+        CompressedText.enabled = enabled;
+        CompressedText.thresholdBytes = thresholdBytes;
+    }
+
+    /**
+     * 是否为编码后的存储形式（需要解码）
+     */
+    public static boolean isEncoded(String stored) {
+        return stored != null && !stored.isEmpty() && stored.charAt(0) == MARKER;
+    }
+
+    /**
+     * 编码为存储形式：超过阈值且压缩后更小时压缩，否则原样存储
+     */
+    public static String encode(String content) {
+        if (content == null) {
+            return null;
+        }
+        if (isEncoded(content)) {
+            return MARKER + String.valueOf(VERSION_PLAIN) + content;
+        }
+        if (!enabled || content.length() * 3 < thresholdBytes) {
+            // UTF-8 最多 3 字节/字符，字符数足够小时不必计算字节数
+            return content;
+        }
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < thresholdBytes) {
+            return content;
+        }
+        String encoded = MARKER + String.valueOf(VERSION_DEFLATE) + Base64.getEncoder().encodeToString(deflate(raw));
+        // Base64 是 ASCII，长度即字节数
+        if (encoded.length() >= raw.length) {
+            SKIPPED.increment();
+            return content;
+        }
+        RAW_BYTES.add(raw.length);
+        STORED_BYTES.add(encoded.length());
+        COMPRESSED.increment();
+        return encoded;
+    }
+
+    /**
+     * 存储形式解码为原文（非编码内容原样返回）
+     */
+    public static String decode(String stored) {
+        if (!isEncoded(stored)) {
+            return stored;
+        }
+        if (stored.length() < 2) {
+            throw new IllegalStateException("消息内容编码头不完整");
+        }
+        return switch (stored.charAt(1)) {
+            case VERSION_PLAIN -> stored.substring(2);
+            case VERSION_DEFLATE -> new String(inflate(Base64.getDecoder().decode(stored.substring(2))), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("不支持的消息内容编码版本：" + stored.charAt(1));
+        };
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("消息内容压缩数据不完整");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("消息内容解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
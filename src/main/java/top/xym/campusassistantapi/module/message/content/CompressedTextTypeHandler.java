@@ -0,0 +1,41 @@
+package top.xym.campusassistantapi.module.message.content;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedJdbcTypes;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 消息内容 TypeHandler
+ * 写入时按 {@link CompressedText#encode} 压缩；读取时保留存储形式不解压，
+ * 由 ChatMessage#getContent 在第一次访问时解码（列表只取部分字段或不读内容时不付出解压开销）
+ */
+@MappedTypes(String.class)
+@MappedJdbcTypes(JdbcType.LONGVARCHAR)
+public class CompressedTextTypeHandler extends BaseTypeHandler<String> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        ps.setString(i, CompressedText.encode(parameter));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return rs.getString(columnName);
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getString(columnIndex);
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return cs.getString(columnIndex);
+    }
+}
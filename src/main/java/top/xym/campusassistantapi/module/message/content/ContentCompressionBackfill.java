@@ -0,0 +1,149 @@
+package top.xym.campusassistantapi.module.message.content;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.xym.campusassistantapi.common.cache.RedisCache;
+import top.xym.campusassistantapi.common.cache.RedisKeys;
+import top.xym.campusassistantapi.module.message.mapper.ChatMessageMapper;
+import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息内容压缩回填：后台按主键区间压缩历史消息
+ * 回填从 ID 0 扫描到第一次执行时的最大 ID，之后新写入的消息由 TypeHandler 直接压缩
+ * 多实例部署时通过 Redis 租约保证只有一个实例在回填；进度保存在租约旁，接手的实例（包括重新部署后）从保存的进度继续
+ */
+@Slf4j
+@Component
+public class ContentCompressionBackfill {
+
+    private static final String JOB_NAME = "content-compression-backfill";
+
+    private final ChatMessageMapper chatMessageMapper;
+    private final ContentCompressionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final RedisCache redisCache;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 回填进度：已扫描到的 ID 与扫描终点（-1 表示尚未加载），由调度线程写、指标线程读
+     */
+    private volatile long cursor;
+    private volatile long endId = -1;
+
+    public ContentCompressionBackfill(ChatMessageMapper chatMessageMapper,
+                                      ContentCompressionProperties properties,
+                                      MeterRegistry meterRegistry,
+                                      RedisCache redisCache) {
+        this.chatMessageMapper = chatMessageMapper;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.redisCache = redisCache;
+        Gauge.builder("chat.content.compression.backfill.cursor", this, backfill -> backfill.cursor)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${campus.chat.content-compression.backfill-interval-ms:5000}",
+            initialDelayString = "${campus.chat.content-compression.backfill-initial-delay-ms:60000}")
+    public void backfill() {
+        if (!properties.isEnabled() || !properties.isBackfillEnabled() || (endId >= 0 && cursor >= endId)) {
+            return;
+        }
+        Lease lease = holdLease();
+        if (lease == Lease.NONE) {
+            return;
+        }
+        if (lease == Lease.ACQUIRED || endId < 0) {
+            // 新拿到租约：其他实例可能已推进过进度，内存中的进度不再可信
+            loadProgress();
+            if (cursor >= endId) {
+                return;
+            }
+        }
+        long toId = Math.min(endId, cursor + Math.max(1, properties.getBackfillBatchSize()));
+        List<ChatMessage> candidates = chatMessageMapper.selectUncompressed(cursor, toId, properties.getThresholdBytes());
+        int updated = 0;
+        for (ChatMessage message : candidates) {
+            String stored = CompressedText.encode(message.getContent());
+            if (CompressedText.isEncoded(stored)) {
+                int seenBytes = message.getContent().getBytes(StandardCharsets.UTF_8).length;
+                updated += chatMessageMapper.updateStoredContent(message.getId(), stored, message.getUpdateTime(), seenBytes);
+            }
+        }
+        cursor = toId;
+        saveProgress();
+        meterRegistry.counter("chat.content.compression.backfilled").increment(updated);
+        if (cursor >= endId) {
+            log.info("消息内容压缩回填完成：扫描至 ID {}", endId);
+        }
+    }
+
+    private enum Lease {
+        /**
+         * 本轮新获得
+         */
+        ACQUIRED,
+        /**
+         * 已持有并续期
+         */
+        RENEWED,
+        /**
+         * 由其他实例持有或 Redis 不可用
+         */
+        NONE
+    }
+
+    /**
+     * 获取或续期回填租约（续期为比较并设置过期时间的原子操作），Redis 不可用时本轮不执行
+     */
+    private Lease holdLease() {
+        String key = RedisKeys.getJobLeaseKey(JOB_NAME);
+        long ttlMillis = properties.getBackfillLease().toMillis();
+        try {
+            if (redisCache.expireIfEquals(key, instanceId, ttlMillis, TimeUnit.MILLISECONDS)) {
+                return Lease.RENEWED;
+            }
+            if (redisCache.setIfAbsent(key, instanceId, ttlMillis, TimeUnit.MILLISECONDS)) {
+                return Lease.ACQUIRED;
+            }
+            return Lease.NONE;
+        } catch (Exception e) {
+            log.warn("获取消息压缩回填租约失败，本轮跳过：{}", e.getMessage());
+            return Lease.NONE;
+        }
+    }
+
+    /**
+     * 进度格式 "cursor/endId"；没有保存的进度时从 ID 0 扫描到当前最大 ID
+     */
+    private void loadProgress() {
+        String saved = redisCache.get(RedisKeys.getJobProgressKey(JOB_NAME), String.class);
+        int separator = saved == null ? -1 : saved.indexOf('/');
+        if (separator > 0) {
+            cursor = Long.parseLong(saved.substring(0, separator));
+            endId = Long.parseLong(saved.substring(separator + 1));
+            log.info("继续消息内容压缩回填：ID {} ~ {}", cursor, endId);
+            return;
+        }
+        cursor = 0;
+        endId = chatMessageMapper.selectMaxId();
+        saveProgress();
+        log.info("开始回填消息内容压缩：ID 0 ~ {}", endId);
+    }
+
+    private void saveProgress() {
+        try {
+            redisCache.set(RedisKeys.getJobProgressKey(JOB_NAME), cursor + "/" + endId);
+        } catch (Exception e) {
+            // 进度只影响接手后的起点，已压缩的消息会被跳过
+            log.warn("保存消息压缩回填进度失败：{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package top.xym.campusassistantapi.module.message.content;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 消息内容压缩装配：把配置下发给 TypeHandler 使用的 {@link CompressedText}，并注册压缩指标
+ * TypeHandler 由 MyBatis 实例化、无法注入配置，所以通过静态配置传递；与回填任务是否启用、是否延迟初始化无关
+ */
+@Configuration
+public class ContentCompressionConfig {
+
+    public ContentCompressionConfig(ContentCompressionProperties properties, MeterRegistry meterRegistry) {
+        CompressedText.configure(properties.isEnabled(), properties.getThresholdBytes());
+
+        counter(meterRegistry, "chat.content.compression.bytes", "kind", "raw", CompressedText.RAW_BYTES);
+        counter(meterRegistry, "chat.content.compression.bytes", "kind", "stored", CompressedText.STORED_BYTES);
+        counter(meterRegistry, "chat.content.compression.writes", "result", "compressed", CompressedText.COMPRESSED);
+        counter(meterRegistry, "chat.content.compression.writes", "result", "skipped", CompressedText.SKIPPED);
+        Gauge.builder("chat.content.compression.ratio", () -> {
+                    long stored = CompressedText.STORED_BYTES.sum();
+                    return stored == 0 ? 1.0 : CompressedText.RAW_BYTES.sum() / (double) stored;
+                })
+                .description("压缩内容的原始字节数 / 存储字节数")
+                .register(meterRegistry);
+    }
+
+    private static void counter(MeterRegistry meterRegistry, String name, String tagKey, String tagValue, LongAdder adder) {
+        FunctionCounter.builder(name, adder, LongAdder::sum)
+                .tag(tagKey, tagValue)
+                .register(meterRegistry);
+    }
+}
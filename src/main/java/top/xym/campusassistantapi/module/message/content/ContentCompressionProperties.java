@@ -0,0 +1,36 @@
+package top.xym.campusassistantapi.module.message.content;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 消息内容压缩配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.chat.content-compression")
+public class ContentCompressionProperties {
+    /**
+     * 是否压缩新写入的内容（关闭后已压缩的内容仍可正常读取）
+     */
+    private boolean enabled = true;
+    /**
+     * 内容 UTF-8 字节数达到该值才尝试压缩
+     */
+    private int thresholdBytes = 2048;
+    /**
+     * 是否在后台回填历史消息
+     */
+    private boolean backfillEnabled = false;
+    /**
+     * 回填每批扫描的消息数
+     */
+    private int backfillBatchSize = 200;
+    /**
+     * 回填租约时长：多实例部署时只有持有租约的实例执行回填，每批执行前续期，实例下线后租约过期由其他实例从保存的进度接手
+     */
+    private Duration backfillLease = Duration.ofMinutes(1);
+}
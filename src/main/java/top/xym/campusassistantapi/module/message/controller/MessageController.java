@@ -5,8 +5,10 @@ import io.swagger.v3.oas.annotations.Operation;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import top.xym.campusassistantapi.common.model.dto.CursorPageResponse;
 import top.xym.campusassistantapi.common.utils.SecurityUtils;
 import top.xym.campusassistantapi.module.message.model.dto.MessageResponse;
 import top.xym.campusassistantapi.module.message.model.dto.MessageSendRequest;
@@ -32,7 +34,7 @@ public class MessageController {
             consumes = MediaType.APPLICATION_JSON_VALUE
     )
     @Operation(summary = "流式发送消息")
-    public Flux<String> sendMessageStream(
+    public Flux<ServerSentEvent<String>> sendMessageStream(
             @RequestBody MessageSendRequest request,
             HttpServletResponse response
     ) {
@@ -43,6 +45,23 @@ public class MessageController {
         return messageService.sendMessageStream(request, userId);
     }
 
+    // 断线续传接口：携带 Last-Event-ID 回放未收到的片段并继续跟随实时输出
+    @GetMapping(
+            value = "/stream/resume",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE + ";charset=UTF-8"
+    )
+    @Operation(summary = "流式消息断线续传")
+    public Flux<ServerSentEvent<String>> resumeMessageStream(
+            @RequestHeader("Last-Event-ID") String lastEventId,
+            HttpServletResponse response
+    ) {
+        response.setCharacterEncoding("UTF-8");
+
+        Long userId = SecurityUtils.getCurrentUserId();
+
+        return messageService.resumeStream(lastEventId, userId);
+    }
+
     /**
      * 查询会话消息历史（核心修改：添加Token校验）
      */
@@ -58,4 +77,21 @@ public class MessageController {
         return messageService.getSessionMessages(sessionId, userId, current, size);
     }
 
-}
\ No newline at end of file
+    /**
+     * 游标分页查询会话消息（不传游标返回最新一页，next 向更早的消息翻页）
+     */
+    @GetMapping("/session/{sessionId}/cursor")
+    @Operation(summary = "游标分页查询会话消息")
+    public CursorPageResponse<MessageResponse> getSessionMessagesByCursor(
+            @PathVariable Long sessionId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "next") String direction,
+            @RequestParam(defaultValue = "20") Integer size,
+            @RequestParam(defaultValue = "false") Boolean withTotal
+    ) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        int pageSize = Math.max(1, Math.min(size, 100));
+        return messageService.getSessionMessagesByCursor(sessionId, userId, cursor, direction, pageSize, withTotal);
+    }
+
+}
@@ -0,0 +1,244 @@
+package top.xym.campusassistantapi.module.message.history;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+import top.xym.campusassistantapi.module.message.archive.MessageArchiveService;
+import top.xym.campusassistantapi.module.message.mapper.ChatMessageMapper;
+import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多轮对话历史组装器
+ * 1. 只加载最近 N 条成功消息（有界查询）
+ * 2. 从新到旧按 Token 预算装入历史
+ * 3. 装不下的早期消息折叠进按会话缓存的滚动摘要（增量维护，不重复处理）
+ *    窗口之前、摘要尚未覆盖的消息另行查询补入，保证摘要与历史之间没有缺口；
+ *    摘要只在内存中，节点重启或淘汰后由补齐查询重建
+ * 4. 已归档的会话热表消息不足 N 条时，用归档中最近的消息补足
+ */
+@Component
+public class ConversationHistoryAssembler {
+
+    private static final String SUMMARY_PREFIX = "以下是本会话更早对话的摘要，供参考：\n";
+
+    private final ChatMessageMapper chatMessageMapper;
+    private final HistoryProperties properties;
+    private final MessageArchiveService messageArchiveService;
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary historyMessages;
+
+    /**
+     * 会话ID -> 滚动摘要（LRU，超出上限淘汰最久未用的会话）
+     */
+    private final Map<Long, RollingSummary> summaries;
+
+    public ConversationHistoryAssembler(ChatMessageMapper chatMessageMapper,
+                                        HistoryProperties properties,
+                                        MessageArchiveService messageArchiveService,
+                                        MeterRegistry meterRegistry) {
+        this.chatMessageMapper = chatMessageMapper;
+        this.properties = properties;
+        this.messageArchiveService = messageArchiveService;
+        this.promptTokens = DistributionSummary.builder("chat.prompt.tokens")
+                .description("每次请求的提示词 Token 数（本地估算）")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.historyMessages = DistributionSummary.builder("chat.prompt.history.messages")
+                .description("每次请求装入的历史消息条数")
+                .register(meterRegistry);
+        this.summaries = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RollingSummary> eldest) {
+                return size() > properties.getMaxCachedSessions();
+            }
+        });
+    }
+
+    /**
+     * 组装完整的提示词消息列表
+     *
+     * @param sessionId     会话ID
+     * @param currentUserId 当前用户消息ID（只加载比它更早的消息）
+     * @param archived      会话是否含有归档消息
+     * @param systemPrompt  系统提示词
+     * @param userContent   当前提问内容
+     */
+    public List<Message> assemble(Long sessionId, Long currentUserId, boolean archived, String systemPrompt, String userContent) {
+        int fixedTokens = TokenEstimator.estimateMessage(systemPrompt) + TokenEstimator.estimateMessage(userContent);
+        int historyBudget = Math.max(0, properties.getTokenBudget() - fixedTokens);
+
+        // 最近的 N 条消息（新 -> 旧）
+        List<ChatMessage> recent = loadRecent(sessionId, currentUserId, archived);
+        int[] costs = new int[recent.size()];
+        int total = 0;
+        for (int i = 0; i < recent.size(); i++) {
+            costs[i] = TokenEstimator.estimateMessage(recent.get(i).getContent());
+            total += costs[i];
+        }
+
+        RollingSummary summary = summaries.get(sessionId);
+        // 窗口已满说明更早还有消息（补齐查询只查热表，归档部分不再补入摘要）
+        boolean windowFull = recent.size() >= properties.getMaxMessages();
+        boolean truncated = windowFull || total > historyBudget;
+        int keep = recent.size();
+        if (truncated) {
+            // 需要截断时为摘要预留空间
+            int budget = Math.max(0, historyBudget - properties.getSummaryTokenBudget());
+            int used = 0;
+            keep = 0;
+            while (keep < recent.size() && used + costs[keep] <= budget) {
+                used += costs[keep];
+                keep++;
+            }
+            // 窗口之前未折叠的消息 + 被挤出预算的消息（旧 -> 新）折叠进摘要
+            List<ChatMessage> dropped = new ArrayList<>();
+            if (windowFull && !recent.isEmpty()) {
+                long coveredUpToId = summary == null ? 0L : summary.coveredUpToId();
+                dropped.addAll(loadBefore(sessionId, coveredUpToId, recent.get(recent.size() - 1).getId()));
+            }
+            List<ChatMessage> overBudget = new ArrayList<>(recent.subList(keep, recent.size()));
+            Collections.reverse(overBudget);
+            dropped.addAll(overBudget);
+            if (!dropped.isEmpty()) {
+                summary = summaries.computeIfAbsent(sessionId, id -> new RollingSummary());
+                summary.fold(dropped, properties);
+            }
+        }
+        // 已经折叠进摘要的消息不再作为历史重复装入（预算变化时可能出现）
+        if (summary != null) {
+            long coveredUpToId = summary.coveredUpToId();
+            while (keep > 0 && recent.get(keep - 1).getId() <= coveredUpToId) {
+                keep--;
+            }
+        }
+
+        List<Message> messages = new ArrayList<>(keep + 3);
+        messages.add(new SystemMessage(systemPrompt));
+        int tokens = fixedTokens;
+        String summaryText = summary == null ? null : summary.render();
+        if (summaryText != null) {
+            messages.add(new SystemMessage(SUMMARY_PREFIX + summaryText));
+            tokens += TokenEstimator.estimateMessage(SUMMARY_PREFIX + summaryText);
+        }
+        for (int i = keep - 1; i >= 0; i--) {
+            ChatMessage history = recent.get(i);
+            messages.add("user".equals(history.getRole())
+                    ? new UserMessage(history.getContent())
+                    : new AssistantMessage(history.getContent()));
+            tokens += costs[i];
+        }
+        messages.add(new UserMessage(userContent));
+
+        promptTokens.record(tokens);
+        historyMessages.record(keep);
+        return messages;
+    }
+
+    /**
+     * 会话删除后清理摘要
+     */
+    public void evict(Long sessionId) {
+        summaries.remove(sessionId);
+    }
+
+    private List<ChatMessage> loadRecent(Long sessionId, Long currentUserId, boolean archived) {
+        if (properties.getMaxMessages() <= 0) {
+            return Collections.emptyList();
+        }
+        LambdaQueryWrapper<ChatMessage> queryWrapper = new LambdaQueryWrapper<ChatMessage>()
+                .select(ChatMessage::getId, ChatMessage::getRole, ChatMessage::getContent)
+                .eq(ChatMessage::getSessionId, sessionId)
+                .eq(ChatMessage::getDeleted, 0)
+                .eq(ChatMessage::getStatus, 1)
+                .lt(ChatMessage::getId, currentUserId)
+                .orderByDesc(ChatMessage::getId)
+                .last("LIMIT " + properties.getMaxMessages());
+        List<ChatMessage> recent = chatMessageMapper.selectList(queryWrapper);
+        int missing = properties.getMaxMessages() - recent.size();
+        if (!archived || missing <= 0) {
+            return recent;
+        }
+        // 归档消息的 ID 都小于热表消息，按新 -> 旧接在热表消息之后（只解压最近的几个块）
+        List<ChatMessage> merged = new ArrayList<>(recent);
+        merged.addAll(messageArchiveService.olderArchived(sessionId, currentUserId,
+                message -> Integer.valueOf(1).equals(message.getStatus()) && message.getId() < currentUserId, missing));
+        return merged;
+    }
+
+    /**
+     * 窗口之前、摘要尚未覆盖的消息（旧 -> 新），只取最近 summaryBackfillMessages 条
+     */
+    private List<ChatMessage> loadBefore(Long sessionId, long afterId, Long beforeId) {
+        if (properties.getSummaryBackfillMessages() <= 0) {
+            return Collections.emptyList();
+        }
+        LambdaQueryWrapper<ChatMessage> queryWrapper = new LambdaQueryWrapper<ChatMessage>()
+                .select(ChatMessage::getId, ChatMessage::getRole, ChatMessage::getContent)
+                .eq(ChatMessage::getSessionId, sessionId)
+                .eq(ChatMessage::getDeleted, 0)
+                .eq(ChatMessage::getStatus, 1)
+                .gt(ChatMessage::getId, afterId)
+                .lt(ChatMessage::getId, beforeId)
+                .orderByDesc(ChatMessage::getId)
+                .last("LIMIT " + properties.getSummaryBackfillMessages());
+        List<ChatMessage> messages = new ArrayList<>(chatMessageMapper.selectList(queryWrapper));
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    /**
+     * 滚动摘要：每条早期消息压缩为一行，超出 Token 上限时丢弃最旧的行
+     */
+    private static final class RollingSummary {
+
+        private final Deque<String> lines = new ArrayDeque<>();
+        private long coveredUpToId;
+        private int tokens;
+
+        synchronized void fold(List<ChatMessage> ascending, HistoryProperties properties) {
+            for (ChatMessage message : ascending) {
+                // 增量维护：已折叠过的消息不再处理
+                if (message.getId() <= coveredUpToId) {
+                    continue;
+                }
+                String line = ("user".equals(message.getRole()) ? "用户：" : "助手：")
+                        + abbreviate(message.getContent(), properties.getSummaryLineChars());
+                lines.addLast(line);
+                tokens += TokenEstimator.estimate(line) + 1;
+                coveredUpToId = message.getId();
+            }
+            while (tokens > properties.getSummaryTokenBudget() && !lines.isEmpty()) {
+                tokens -= TokenEstimator.estimate(lines.removeFirst()) + 1;
+            }
+        }
+
+        synchronized long coveredUpToId() {
+            return coveredUpToId;
+        }
+
+        synchronized String render() {
+            return lines.isEmpty() ? null : String.join("\n", lines);
+        }
+
+        private static String abbreviate(String content, int maxChars) {
+            if (content == null) {
+                return "";
+            }
+            String compact = content.replaceAll("\\s+", " ").strip();
+            return compact.length() > maxChars ? compact.substring(0, maxChars) + "…" : compact;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package top.xym.campusassistantapi.module.message.history;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 多轮对话历史配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.chat.history")
+public class HistoryProperties {
+    /**
+     * 每次最多加载的历史消息条数
+     */
+    private int maxMessages = 20;
+    /**
+     * 提示词总 Token 预算（系统消息 + 摘要 + 历史 + 当前提问）
+     */
+    private int tokenBudget = 3000;
+    /**
+     * 早期对话摘要的 Token 上限
+     */
+    private int summaryTokenBudget = 500;
+    /**
+     * 摘要中每条消息保留的最大字符数
+     */
+    private int summaryLineChars = 60;
+    /**
+     * 补齐摘要时最多从窗口之前加载的消息条数（摘要只保留最近若干行，更早的消息加载了也会被丢弃）
+     */
+    private int summaryBackfillMessages = 50;
+    /**
+     * 最多缓存摘要的会话数
+     */
+    private int maxCachedSessions = 10000;
+}
@@ -0,0 +1,44 @@
+package top.xym.campusassistantapi.module.message.history;
+
+/**
+ * 本地 Token 估算器（无需调用模型分词接口）
+ * 估算规则参照通义千问分词器的平均表现：中日韩字符约 1 字 1 Token，其余字符约 4 字符 1 Token
+ */
+public final class TokenEstimator {
+
+    /**
+     * 每条消息的固定开销（角色标记、分隔符等）
+     */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * 估算文本的 Token 数
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN
+                    || (c >= 0x3000 && c <= 0x30FF) || (c >= 0xFF00 && c <= 0xFFEF)) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+
+    /**
+     * 估算单条消息（含固定开销）的 Token 数
+     */
+    public static int estimateMessage(String text) {
+        return estimate(text) + MESSAGE_OVERHEAD;
+    }
+}
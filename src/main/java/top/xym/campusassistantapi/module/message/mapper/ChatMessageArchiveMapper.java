@@ -0,0 +1,30 @@
+package top.xym.campusassistantapi.module.message.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import top.xym.campusassistantapi.module.message.archive.ChatMessageArchive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface ChatMessageArchiveMapper extends BaseMapper<ChatMessageArchive> {
+
+    /**
+     * 待归档的冷会话：热表中最新一条消息早于截止时间，且没有处理中（status=0）的消息
+     * 按消息自身的创建时间判断，不依赖只在流式结束后才更新的 chat_session.last_message_time
+     */
+    @Select("""
+            SELECT m.session_id
+            FROM chat_message m
+                     JOIN chat_session s ON s.id = m.session_id AND s.deleted = 0
+            GROUP BY m.session_id
+            HAVING MAX(m.create_time) < #{cutoff}
+               AND SUM(m.status = 0) = 0
+            ORDER BY MAX(m.create_time)
+            LIMIT #{limit}
+            """)
+    List<Long> selectInactiveSessionIds(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -1,10 +1,66 @@
 package top.xym.campusassistantapi.module.message.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Mapper
 public interface ChatMessageMapper extends BaseMapper<ChatMessage> {
 
+    /**
+     * 批量插入消息（一条多行 INSERT，一次往返），自增ID按顺序回填到每条消息
+     */
+    @Insert("""
+            <script>
+            INSERT INTO chat_message (session_id, user_id, role, content, model_name, status, create_time, update_time, deleted)
+            VALUES
+            <foreach collection="list" item="item" separator=",">
+                (#{item.sessionId}, #{item.userId}, #{item.role}, #{item.content,typeHandler=top.xym.campusassistantapi.module.message.content.CompressedTextTypeHandler}, #{item.modelName}, #{item.status}, #{item.createTime}, #{item.updateTime}, #{item.deleted})
+            </foreach>
+            </script>
+            """)
+    @Options(useGeneratedKeys = true, keyProperty = "list.id", keyColumn = "id")
+    int insertBatch(@Param("list") List<ChatMessage> messages);
+
+    /**
+     * 回填扫描：主键区间 (afterId, toId] 内已结束、内容达到阈值且尚未压缩的消息（只取ID、存储形式的内容与更新时间）
+     */
+    @Select("""
+            SELECT id, content, update_time
+            FROM chat_message
+            WHERE id > #{afterId} AND id <= #{toId}
+              AND status <> 0
+              AND LENGTH(content) >= #{minBytes}
+              AND LEFT(content, 1) <> CHAR(1)
+            """)
+    List<ChatMessage> selectUncompressed(@Param("afterId") long afterId,
+                                         @Param("toId") long toId,
+                                         @Param("minBytes") int minBytes);
+
+    /**
+     * 写回压缩后的存储形式（参数已编码，不经过 TypeHandler；不修改 update_time）
+     * 条件中确认内容仍是扫描时读到的版本（未压缩、更新时间与字节数均未变），扫描之后被改写的消息不覆盖
+     */
+    @Update("""
+            UPDATE chat_message SET content = #{stored}, update_time = update_time
+            WHERE id = #{id}
+              AND LEFT(content, 1) <> CHAR(1)
+              AND update_time <=> #{seenUpdateTime}
+              AND LENGTH(content) = #{seenBytes}
+            """)
+    int updateStoredContent(@Param("id") Long id,
+                            @Param("stored") String stored,
+                            @Param("seenUpdateTime") LocalDateTime seenUpdateTime,
+                            @Param("seenBytes") int seenBytes);
+
+    @Select("SELECT COALESCE(MAX(id), 0) FROM chat_message")
+    long selectMaxId();
 }
@@ -44,7 +44,7 @@ public class MessageResponse {
     @Schema(description = "是否开启联网搜索（0=否，1=是）", example = "0")
     private Integer webSearch;
 
-    @Schema(description = "消息状态（0=处理中，1=成功，2=失败）", example = "1")
+    @Schema(description = "消息状态（0=处理中，1=成功，2=失败，3=已取消）", example = "1")
     private Integer status;
 
     @Schema(description = "消息状态描述（前端直接展示，无需转换）", example = "成功")
@@ -72,6 +72,9 @@ public class MessageResponse {
             case 2:
                 this.statusDesc = "失败";
                 break;
+            case 3:
+                this.statusDesc = "已取消";
+                break;
             default:
                 this.statusDesc = "未知";
         }
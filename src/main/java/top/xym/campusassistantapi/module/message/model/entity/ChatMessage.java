@@ -3,12 +3,14 @@ package top.xym.campusassistantapi.module.message.model.entity;
 import com.baomidou.mybatisplus.annotation.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import top.xym.campusassistantapi.module.message.content.CompressedText;
+import top.xym.campusassistantapi.module.message.content.CompressedTextTypeHandler;
 
 import java.time.LocalDateTime;
 
 @Data
 @EqualsAndHashCode(callSuper = false)
-@TableName("chat_message")
+@TableName(value = "chat_message", autoResultMap = true)
 public class ChatMessage {
 
     @TableId(value = "id", type = IdType.AUTO)
@@ -23,7 +25,10 @@ public class ChatMessage {
     @TableField("role")
     private String role;
 
-    @TableField("content")
+    /**
+     * 内容：超过阈值的长内容压缩存储，查询结果保留存储形式，第一次读取时解码
+     */
+    @TableField(value = "content", typeHandler = CompressedTextTypeHandler.class)
     private String content;
 
     @TableField("model_name")
@@ -53,4 +58,11 @@ public class ChatMessage {
 //    @TableLogic
     @TableField("deleted")
     private Integer deleted;
+
+    public String getContent() {
+        if (CompressedText.isEncoded(content)) {
+            content = CompressedText.decode(content);
+        }
+        return content;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package top.xym.campusassistantapi.module.message.persist;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 聊天持久化执行器：把流式响应结束后的数据库写入移出模型流的回调线程
+ * - 按会话ID分配到固定的单线程通道，同一会话的写入严格按提交顺序执行
+ * - 通道队列有界，队列满时提交方阻塞等待（最后一道背压）
+ * - 积压超过阈值时 {@link #isSaturated()} 返回 true，由调用方拒绝新的请求
+ */
+@Slf4j
+@Component
+public class ChatPersistenceExecutor {
+
+    private final PersistenceProperties properties;
+    private final ThreadPoolExecutor[] lanes;
+    private final Timer persistenceLag;
+    private final Timer persistenceDuration;
+
+    public ChatPersistenceExecutor(PersistenceProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int laneCount = Math.max(1, properties.getLanes());
+        this.lanes = new ThreadPoolExecutor[laneCount];
+        AtomicInteger threadIndex = new AtomicInteger();
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "chat-persist-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (runnable, executor) -> {
+                        // 队列已满：阻塞提交方直到有空位，保证写入不丢失且顺序不变
+                        if (executor.isShutdown()) {
+                            log.error("持久化执行器已关闭，任务被丢弃");
+                            return;
+                        }
+                        try {
+                            executor.getQueue().put(runnable);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            log.error("持久化任务入队被中断");
+                        }
+                    });
+        }
+        this.persistenceLag = Timer.builder("chat.persistence.lag")
+                .description("持久化任务从提交到开始执行的等待时间")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.persistenceDuration = Timer.builder("chat.persistence.duration")
+                .description("持久化任务执行耗时")
+                .register(meterRegistry);
+        Gauge.builder("chat.persistence.queue.depth", this, ChatPersistenceExecutor::queueDepth)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交持久化任务
+     *
+     * @param sessionId 会话ID（决定执行通道）
+     * @param taskName  任务名称（用于日志）
+     * @param task      数据库写入逻辑
+     */
+    public void submit(Long sessionId, String taskName, Runnable task) {
+        long submittedAt = System.nanoTime();
+        lanes[laneOf(sessionId)].execute(() -> {
+            long startedAt = System.nanoTime();
+            persistenceLag.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("持久化任务执行失败：sessionId={}, task={}", sessionId, taskName, e);
+            } finally {
+                persistenceDuration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    /**
+     * 积压是否已超过阈值（数据库写入跟不上时拒绝新的流式请求）
+     */
+    public boolean isSaturated() {
+        long capacity = (long) lanes.length * properties.getQueueCapacity();
+        return queueDepth() >= capacity * properties.getSaturationRatio();
+    }
+
+    public int queueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            depth += lane.getQueue().size();
+        }
+        return depth;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("持久化通道未能在 10 秒内完成剩余任务，剩余：{}", lane.getQueue().size());
+            }
+        }
+    }
+
+    private int laneOf(Long sessionId) {
+        return sessionId == null ? 0 : Math.floorMod(sessionId.hashCode(), lanes.length);
+    }
+}
@@ -0,0 +1,26 @@
+package top.xym.campusassistantapi.module.message.persist;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 流式响应结束后的异步持久化配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.chat.persistence")
+public class PersistenceProperties {
+    /**
+     * 持久化通道数（每个通道单线程，同一会话固定落在同一通道以保证顺序）
+     */
+    private int lanes = 8;
+    /**
+     * 每个通道的队列容量
+     */
+    private int queueCapacity = 256;
+    /**
+     * 积压比例超过该值时拒绝新的流式请求（数据库过慢时的背压）
+     */
+    private double saturationRatio = 0.8;
+}
@@ -3,23 +3,41 @@ package top.xym.campusassistantapi.module.message.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.ai.chat.messages.Message;
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import top.xym.campusassistantapi.common.model.dto.CursorPageResponse;
+import top.xym.campusassistantapi.common.utils.PageCursor;
+import top.xym.campusassistantapi.infrastructure.llm.LlmBulkhead;
+import top.xym.campusassistantapi.infrastructure.llm.LlmOverloadedException;
+import top.xym.campusassistantapi.module.message.archive.MessageArchiveService;
+import top.xym.campusassistantapi.module.message.history.ConversationHistoryAssembler;
+import top.xym.campusassistantapi.module.message.history.TokenEstimator;
 import top.xym.campusassistantapi.module.message.mapper.ChatMessageMapper;
 import top.xym.campusassistantapi.module.message.model.dto.MessageResponse;
 import top.xym.campusassistantapi.module.message.model.dto.MessageSendRequest;
 import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
-import top.xym.campusassistantapi.module.session.model.dto.SessionResponse;
-import top.xym.campusassistantapi.module.session.model.dto.SessionUpdateTitleRequest;
+import top.xym.campusassistantapi.module.message.persist.ChatPersistenceExecutor;
+import top.xym.campusassistantapi.module.message.stream.AdaptiveChunkCoalescer;
+import top.xym.campusassistantapi.module.message.stream.ReplayStream;
+import top.xym.campusassistantapi.module.message.stream.StreamCancellationMetrics;
+import top.xym.campusassistantapi.module.message.stream.StreamChunk;
+import top.xym.campusassistantapi.module.message.stream.StreamReplayProperties;
+import top.xym.campusassistantapi.module.message.stream.StreamReplayRegistry;
+import top.xym.campusassistantapi.module.session.cache.SessionMeta;
 import top.xym.campusassistantapi.module.session.service.SessionService;
+import top.xym.campusassistantapi.module.usage.service.TokenUsageRecorder;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -34,31 +52,61 @@ public class MessageService {
     private final ChatMessageMapper chatMessageMapper;
     private final SessionService sessionService;
     private final ChatModel chatModel;
+    private final StreamReplayRegistry streamReplayRegistry;
+    private final AdaptiveChunkCoalescer chunkCoalescer;
+    private final ConversationHistoryAssembler historyAssembler;
+    private final LlmBulkhead llmBulkhead;
+    private final ChatPersistenceExecutor persistenceExecutor;
+    private final TokenUsageRecorder tokenUsageRecorder;
+    private final StreamCancellationMetrics cancellationMetrics;
+    private final StreamReplayProperties streamReplayProperties;
+    private final MessageArchiveService archiveService;
+
+    /**
+     * 系统消息：定义AI助手的角色和行为
+     */
+    private static final String SYSTEM_PROMPT = "你是一个专业、友好的智能助手，能够准确、清晰地回答用户的问题。" +
+            "回答需结构清晰，语言流畅，避免使用零散的短句。";
 
     /**
      * 发送消息并获取AI流式响应（核心方法）
-     * 特性：片段合并、完整内容保存、会话最后消息更新、异常处理
+     * 特性：自适应片段合并、完整内容保存、会话最后消息更新、异常处理、断点续传
+     * 每个片段的 SSE 事件 ID 为「助手消息ID-片段序号」，断线后可携带 Last-Event-ID 调用 {@link #resumeStream} 续传
+     * 客户端断开且宽限期内未重连时取消上游生成，已生成的部分以「已取消」状态保存
      */
-    public Flux<String> sendMessageStream(MessageSendRequest request, Long userId) {
+    public Flux<ServerSentEvent<String>> sendMessageStream(MessageSendRequest request, Long userId) {
         AtomicLong assistantMessageId = new AtomicLong(0);
         AtomicReference<StringBuilder> fullContentRef = new AtomicReference<>(new StringBuilder());
+        // 模型返回的最新用量（DashScope 每个片段携带截至当前的累计用量）与实际模型名
+        AtomicReference<Usage> usageRef = new AtomicReference<>();
+        AtomicReference<String> modelRef = new AtomicReference<>(request.getModelName());
+        // 数据库写入积压过多时拒绝新请求，避免持久化无限堆积
+        if (persistenceExecutor.isSaturated()) {
+            throw new LlmOverloadedException("系统繁忙，请稍后再试", 5);
+        }
+        // 先获取大模型调用许可，被限流时直接返回 429，不写入任何消息
+        LlmBulkhead.Permit permit = llmBulkhead.acquire(String.valueOf(userId));
 
         try {
-            validateSession(request.getSessionId(), userId);
-            saveUserMessage(request, userId);
-            Prompt prompt = buildPrompt(request.getContent());
-            ChatMessage assistantMessage = saveAssistantMessageTemp(request, userId);
+            SessionMeta session = validateSession(request.getSessionId(), userId);
+            // 用户消息与助手占位消息一条 SQL 写入，减少首字前的数据库往返
+            LocalDateTime now = LocalDateTime.now();
+            ChatMessage userMessage = newUserMessage(request, userId, now);
+            ChatMessage assistantMessage = newAssistantPlaceholder(request, userId, now);
+            saveMessagePair(userMessage, assistantMessage);
+            Prompt prompt = buildPrompt(request.getSessionId(), userMessage.getId(),
+                    MessageArchiveService.isArchived(session.getStatus()), request.getContent());
             assistantMessageId.set(assistantMessage.getId());
+            ReplayStream replayStream = streamReplayRegistry.open(assistantMessage.getId(), userId);
 
-            return chatModel.stream(prompt)
+            // 上游生成与客户端连接解耦：片段写入回放缓冲区，客户端（含重连的客户端）从缓冲区订阅
+            Disposable upstream = chatModel.stream(prompt)
+                    .doOnNext(chatResponse -> captureUsage(chatResponse, usageRef, modelRef))
                     .mapNotNull(chatResponse -> {
                         String content = chatResponse.getResult().getOutput().getText();
                         return (content == null || content.trim().isEmpty()) ? null : content;
                     })
-                    .bufferTimeout(20, java.time.Duration.ofMillis(300))
-                    .map(fragments -> String.join("", fragments))
-                    .filter(mergedContent -> !mergedContent.isEmpty())
-                    // 步骤3：累积片段到完整内容（用于最终保存）
+                    // 步骤3：累积片段到完整内容（用于最终保存）；片段合并在客户端订阅侧自适应进行
                     .doOnNext(mergedContent -> {
                         fullContentRef.get().append(mergedContent);
                     })
@@ -66,26 +114,146 @@ public class MessageService {
                     // 之前这里会每次合并片段后更新lastMessage，导致最终只保留最后一个片段
                     // 关键修改：移除此处的 sessionService.updateLastMessage 调用
                     // 步骤5：流式响应完成后，更新助手消息完整内容 + 会话最后消息（完整内容）
+                    // 数据库写入交给持久化执行器（按会话保序），不阻塞模型流的回调线程
                     .doOnComplete(() -> {
                         String fullText = fullContentRef.get().toString();
-                        autoGenerateSessionTitle(request.getSessionId(), userId, fullText);
-                        // 新增：流式结束后，用完整内容更新会话lastMessage
-                        updateSessionLastMessage(request.getSessionId(), fullText);
-                        updateAssistantMessageFullContent(assistantMessageId.get(), fullText, "completed");
+                        Usage usage = recordUsage(userId, prompt, fullText, usageRef.get(), modelRef.get());
+                        cancellationMetrics.recordCompleted(usage.getCompletionTokens());
+                        // 回放流在助手消息落库后才结束：客户端收到结束事件时立即追问，历史中已有本轮回答
+                        persistenceExecutor.submit(request.getSessionId(), "stream-complete", () -> {
+                            try {
+                                updateAssistantMessageFullContent(assistantMessageId.get(), fullText, "completed", usage.getTotalTokens());
+                                // 新增：流式结束后，用完整内容更新会话lastMessage
+                                updateSessionLastMessage(request.getSessionId(), fullText);
+                            } finally {
+                                replayStream.complete();
+                            }
+                            autoGenerateSessionTitle(request.getSessionId(), userId, userMessage.getId(), request.getContent());
+                        });
                     })
                     .doOnError(error -> {
                         String errorText = "AI响应失败：" + error.getMessage();
+                        // 失败前已生成的部分同样计费
+                        Usage usage = recordUsage(userId, prompt, fullContentRef.get().toString(), usageRef.get(), modelRef.get());
                         fullContentRef.get().append(errorText);
-                        // 异常时也用完整错误信息更新会话lastMessage
-                        updateSessionLastMessage(request.getSessionId(), errorText);
-                        updateAssistantMessageFullContent(assistantMessageId.get(), errorText, "failed");
+                        persistenceExecutor.submit(request.getSessionId(), "stream-error", () -> {
+                            try {
+                                // 异常时也用完整错误信息更新会话lastMessage
+                                updateSessionLastMessage(request.getSessionId(), errorText);
+                                updateAssistantMessageFullContent(assistantMessageId.get(), errorText, "failed", usage.getTotalTokens());
+                            } finally {
+                                replayStream.error(error);
+                            }
+                        });
+                    })
+                    // 客户端全部断开超过宽限期，回放流取消上游：保存已生成的部分
+                    .doOnCancel(() -> {
+                        String partialText = fullContentRef.get().toString();
+                        Usage usage = recordUsage(userId, prompt, partialText, usageRef.get(), modelRef.get());
+                        cancellationMetrics.recordCancelled(usage.getCompletionTokens());
+                        persistenceExecutor.submit(request.getSessionId(), "stream-cancel", () -> {
+                            updateSessionLastMessage(request.getSessionId(), partialText);
+                            updateAssistantMessageFullContent(assistantMessageId.get(), partialText, "cancelled", usage.getTotalTokens());
+                        });
+                    })
+                    .doFinally(signal -> permit.close())
+                    // 结束与错误由上面的持久化任务在落库后通知回放流
+                    .subscribe(replayStream::append, error -> {
                     });
+            replayStream.attachUpstream(upstream);
 
+            return withHeartbeat(replayStream.follow(0)
+                    .transform(chunkCoalescer::coalesce)
+                    .map(chunk -> toServerSentEvent(replayStream.getMessageId(), chunk)));
         } catch (Exception e) {
+            permit.close();
             return Flux.error(new RuntimeException("流式请求初始化失败：" + e.getMessage()));
         }
     }
 
+    /**
+     * 断线续传：回放 Last-Event-ID 之后的片段，然后继续跟随实时输出
+     *
+     * @param lastEventId 客户端收到的最后一个事件 ID（格式：助手消息ID-片段序号）
+     * @param userId      用户ID（权限校验）
+     */
+    public Flux<ServerSentEvent<String>> resumeStream(String lastEventId, Long userId) {
+        long messageId;
+        long lastSeq;
+        try {
+            int separator = lastEventId.lastIndexOf('-');
+            messageId = Long.parseLong(lastEventId.substring(0, separator).trim());
+            lastSeq = Long.parseLong(lastEventId.substring(separator + 1).trim());
+        } catch (RuntimeException e) {
+            return Flux.error(new RuntimeException("Last-Event-ID 格式错误：" + lastEventId));
+        }
+
+        ReplayStream replayStream = streamReplayRegistry.get(messageId);
+        if (replayStream == null || !replayStream.getUserId().equals(userId)) {
+            return Flux.error(new RuntimeException("回放已过期或无权访问，请重新获取消息历史"));
+        }
+        return withHeartbeat(replayStream.follow(lastSeq)
+                .transform(chunkCoalescer::coalesce)
+                .map(chunk -> toServerSentEvent(messageId, chunk)));
+    }
+
+    /**
+     * 穿插 SSE 注释心跳：Servlet 只有在写入失败时才能发现客户端断开，
+     * 模型首字较慢或长时间无输出时靠心跳及时触发断开检测
+     */
+    private Flux<ServerSentEvent<String>> withHeartbeat(Flux<ServerSentEvent<String>> events) {
+        Duration interval = streamReplayProperties.getHeartbeatInterval();
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            return events;
+        }
+        return events.publish(shared -> Flux.merge(
+                shared,
+                Flux.interval(interval)
+                        .map(tick -> ServerSentEvent.<String>builder().comment("ping").build())
+                        .takeUntilOther(shared.ignoreElements())));
+    }
+
+    private void captureUsage(ChatResponse chatResponse, AtomicReference<Usage> usageRef, AtomicReference<String> modelRef) {
+        if (chatResponse.getMetadata() == null) {
+            return;
+        }
+        Usage usage = chatResponse.getMetadata().getUsage();
+        if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+            usageRef.set(usage);
+        }
+        String model = chatResponse.getMetadata().getModel();
+        if (model != null && !model.isBlank()) {
+            modelRef.set(model);
+        }
+    }
+
+    /**
+     * 记录本次调用的 Token 用量，模型未返回用量时按字符数估算
+     *
+     * @return 本次调用的用量（总 Token 数保存到助手消息）
+     */
+    private Usage recordUsage(Long userId, Prompt prompt, String completion, Usage usage, String modelName) {
+        int promptTokens;
+        int completionTokens;
+        if (usage != null) {
+            promptTokens = usage.getPromptTokens() == null ? 0 : usage.getPromptTokens();
+            completionTokens = usage.getCompletionTokens() == null ? 0 : usage.getCompletionTokens();
+        } else {
+            promptTokens = prompt.getInstructions().stream()
+                    .mapToInt(message -> TokenEstimator.estimateMessage(message.getText()))
+                    .sum();
+            completionTokens = TokenEstimator.estimate(completion);
+        }
+        tokenUsageRecorder.record(userId, modelName, promptTokens, completionTokens);
+        return new DefaultUsage(promptTokens, completionTokens);
+    }
+
+    private ServerSentEvent<String> toServerSentEvent(Long messageId, StreamChunk chunk) {
+        return ServerSentEvent.builder(chunk.data())
+                .id(messageId + "-" + chunk.seq())
+                .build();
+    }
+
     private void updateSessionLastMessage(Long sessionId, String fullContent) {
         try {
             sessionService.updateLastMessage(sessionId, fullContent);
@@ -105,7 +273,7 @@ public class MessageService {
      */
     public List<MessageResponse> getSessionMessages(Long sessionId, Long userId, Long current, Long size) {
         // 1. 验证会话合法性
-        validateSession(sessionId, userId);
+        SessionMeta session = validateSession(sessionId, userId);
 
         // 2. 构建查询条件：会话ID+未删除+按创建时间升序
         LambdaQueryWrapper<ChatMessage> queryWrapper = new LambdaQueryWrapper<ChatMessage>()
@@ -113,44 +281,175 @@ public class MessageService {
                 .eq(ChatMessage::getDeleted, 0)
                 .orderByAsc(ChatMessage::getCreateTime);
 
-        // 3. 执行分页查询（MyBatis-Plus语法）
-        com.baomidou.mybatisplus.extension.plugins.pagination.Page<ChatMessage> page = new com.baomidou.mybatisplus.extension.plugins.pagination.Page<>(current, size);
-        com.baomidou.mybatisplus.extension.plugins.pagination.Page<ChatMessage> messagePage = chatMessageMapper.selectPage(page, queryWrapper);
+        // 已归档的会话：归档消息都早于热表消息，先从归档取，不足的部分再查热表
+        List<ChatMessage> records;
+        if (MessageArchiveService.isArchived(session.getStatus())) {
+            records = pageWithArchive(sessionId, queryWrapper, (current - 1) * size, size);
+        } else {
+            // 3. 执行分页查询（MyBatis-Plus语法）
+            com.baomidou.mybatisplus.extension.plugins.pagination.Page<ChatMessage> page = new com.baomidou.mybatisplus.extension.plugins.pagination.Page<>(current, size);
+            records = chatMessageMapper.selectPage(page, queryWrapper).getRecords();
+        }
 
         // 4. 转换为响应DTO
-        return messagePage.getRecords().stream()
+        return records.stream()
                 .map(this::convertToResponse)
                 .collect(java.util.stream.Collectors.toList());
     }
 
+    /**
+     * 归档会话的分页：偏移量先落在归档消息上（只解压覆盖该区间的块），越过归档部分后转为热表的 LIMIT/OFFSET
+     */
+    private List<ChatMessage> pageWithArchive(Long sessionId, LambdaQueryWrapper<ChatMessage> liveQuery, long offset, long size) {
+        MessageArchiveService.ArchivedPage archived = archiveService.pageArchived(sessionId, offset, size);
+        List<ChatMessage> records = new ArrayList<>((int) size);
+        records.addAll(archived.messages());
+        long remaining = size - records.size();
+        if (remaining > 0) {
+            long liveOffset = Math.max(0, offset - archived.total());
+            liveQuery.last("LIMIT " + remaining + " OFFSET " + liveOffset);
+            records.addAll(chatMessageMapper.selectList(liveQuery));
+        }
+        return records;
+    }
+
+    /**
+     * 游标分页查询会话消息（页内按时间正序；不带游标时返回最新一页，next 向更早的消息翻页）
+     * 按 (create_time, id) 定位，翻到越早的消息耗时不变；仅在 withTotal=true 时统计总数
+     */
+    public CursorPageResponse<MessageResponse> getSessionMessagesByCursor(Long sessionId, Long userId, String cursor,
+                                                                         String direction, int size, boolean withTotal) {
+        SessionMeta session = validateSession(sessionId, userId);
+
+        PageCursor at = PageCursor.decode(cursor);
+        boolean older = PageCursor.Direction.of(direction) == PageCursor.Direction.NEXT;
+        LambdaQueryWrapper<ChatMessage> queryWrapper = new LambdaQueryWrapper<ChatMessage>()
+                .eq(ChatMessage::getSessionId, sessionId)
+                .eq(ChatMessage::getDeleted, 0);
+        if (at != null) {
+            // 展开为 OR 条件，MySQL 可直接在 (session_id, deleted, create_time, id) 索引上做范围扫描
+            queryWrapper.and(w -> {
+                if (older) {
+                    w.lt(ChatMessage::getCreateTime, at.createTime())
+                            .or(o -> o.eq(ChatMessage::getCreateTime, at.createTime()).lt(ChatMessage::getId, at.id()));
+                } else {
+                    w.gt(ChatMessage::getCreateTime, at.createTime())
+                            .or(o -> o.eq(ChatMessage::getCreateTime, at.createTime()).gt(ChatMessage::getId, at.id()));
+                }
+            });
+        }
+        if (older) {
+            queryWrapper.orderByDesc(ChatMessage::getCreateTime).orderByDesc(ChatMessage::getId);
+        } else {
+            queryWrapper.orderByAsc(ChatMessage::getCreateTime).orderByAsc(ChatMessage::getId);
+        }
+        // 多取一条判断是否还有下一页
+        queryWrapper.last("LIMIT " + (size + 1));
+        List<ChatMessage> messages = new ArrayList<>(chatMessageMapper.selectList(queryWrapper));
+        if (older && messages.size() <= size && MessageArchiveService.isArchived(session.getStatus())) {
+            // 热表已翻到底：继续向更早翻进归档消息（归档消息都早于热表消息）
+            messages.addAll(olderArchived(sessionId, at, size + 1 - messages.size()));
+        } else if (!older && MessageArchiveService.isArchived(session.getStatus())) {
+            // 从归档区间向较新方向翻页：归档中更新的消息排在热表消息之前
+            List<ChatMessage> newer = newerArchived(sessionId, at, size + 1);
+            newer.addAll(messages);
+            messages = new ArrayList<>(newer.subList(0, Math.min(newer.size(), size + 1)));
+        }
+        boolean hasMore = messages.size() > size;
+        if (hasMore) {
+            messages.remove(size);
+        }
+        if (older) {
+            Collections.reverse(messages);
+        }
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!messages.isEmpty()) {
+            PageCursor oldest = cursorOf(messages.get(0));
+            PageCursor newest = cursorOf(messages.get(messages.size() - 1));
+            nextCursor = older ? (hasMore ? oldest.encode() : null) : oldest.encode();
+            prevCursor = older ? (at != null ? newest.encode() : null) : (hasMore ? newest.encode() : null);
+        } else if (at != null) {
+            // 该方向已无数据，另一方向仍可从原游标继续
+            nextCursor = older ? null : cursor;
+            prevCursor = older ? cursor : null;
+        }
+
+        Long total = null;
+        if (withTotal) {
+            total = chatMessageMapper.selectCount(new LambdaQueryWrapper<ChatMessage>()
+                    .eq(ChatMessage::getSessionId, sessionId)
+                    .eq(ChatMessage::getDeleted, 0));
+            if (MessageArchiveService.isArchived(session.getStatus())) {
+                total += archiveService.countArchived(sessionId);
+            }
+        }
+        List<MessageResponse> records = messages.stream()
+                .map(this::convertToResponse)
+                .collect(java.util.stream.Collectors.toList());
+        return new CursorPageResponse<>(records, nextCursor, prevCursor, total);
+    }
+
+    /**
+     * 归档中早于游标的消息（按时间倒序，最多 limit 条）
+     */
+    private List<ChatMessage> olderArchived(Long sessionId, PageCursor at, int limit) {
+        return archiveService.olderArchived(sessionId, at == null ? null : at.id(),
+                message -> at == null || compareCursor(message, at) < 0, limit);
+    }
+
+    /**
+     * 归档中晚于游标的消息（按时间正序，最多 limit 条）
+     */
+    private List<ChatMessage> newerArchived(Long sessionId, PageCursor at, int limit) {
+        return archiveService.newerArchived(sessionId, at == null ? null : at.id(),
+                message -> at == null || compareCursor(message, at) > 0, limit);
+    }
+
+    private static int compareCursor(ChatMessage message, PageCursor at) {
+        int byTime = message.getCreateTime().compareTo(at.createTime());
+        return byTime != 0 ? byTime : Long.compare(message.getId(), at.id());
+    }
+
+    private static PageCursor cursorOf(ChatMessage message) {
+        return new PageCursor(message.getCreateTime(), message.getId());
+    }
+
     /**
      * 验证会话合法性（用户是否有权访问该会话）
      */
-    private void validateSession(Long sessionId, Long userId) {
+    private SessionMeta validateSession(Long sessionId, Long userId) {
         try {
-            sessionService.getSession(sessionId, userId);
+            return sessionService.requireOwnedSession(sessionId, userId);
         } catch (RuntimeException e) {
             throw new RuntimeException("会话不存在或无权访问：" + e.getMessage());
         }
     }
 
     /**
-     * 构建AI请求提示词（系统消息+用户消息）
+     * 构建AI请求提示词（系统消息+早期对话摘要+按Token预算装入的历史消息+用户消息）
      */
-    private Prompt buildPrompt(String userContent) {
-        List<Message> messages = new ArrayList<>();
-        // 系统消息：定义AI助手的角色和行为
-        messages.add(new SystemMessage("你是一个专业、友好的智能助手，能够准确、清晰地回答用户的问题。" +
-                "回答需结构清晰，语言流畅，避免使用零散的短句。"));
-        // 用户消息：用户的实际查询内容
-        messages.add(new UserMessage(userContent));
-        return new Prompt(messages);
+    private Prompt buildPrompt(Long sessionId, Long userMessageId, boolean archived, String userContent) {
+        return new Prompt(historyAssembler.assemble(sessionId, userMessageId, archived, SYSTEM_PROMPT, userContent));
     }
 
     /**
-     * 保存用户消息到数据库
+     * 一次往返保存用户消息和助手占位消息
+     * 单条多行 INSERT 本身是原子的（两行同时成功或同时失败），无需额外开启事务；
+     * 自增ID按插入顺序回填，助手消息ID始终大于用户消息ID
      */
-    private void saveUserMessage(MessageSendRequest request, Long userId) {
+    private void saveMessagePair(ChatMessage userMessage, ChatMessage assistantMessage) {
+        int rows = chatMessageMapper.insertBatch(List.of(userMessage, assistantMessage));
+        if (rows != 2 || userMessage.getId() == null || assistantMessage.getId() == null) {
+            throw new RuntimeException("消息保存失败");
+        }
+    }
+
+    /**
+     * 构建用户消息
+     */
+    private ChatMessage newUserMessage(MessageSendRequest request, Long userId, LocalDateTime now) {
         ChatMessage userMessage = new ChatMessage();
         userMessage.setSessionId(request.getSessionId());
         userMessage.setUserId(userId);
@@ -158,17 +457,18 @@ public class MessageService {
         userMessage.setContent(request.getContent());
         userMessage.setModelName(request.getModelName());
         userMessage.setStatus(1); // 状态：1-成功
-        userMessage.setCreateTime(LocalDateTime.now());
-        userMessage.setUpdateTime(LocalDateTime.now());
+        userMessage.setCreateTime(now);
+        userMessage.setUpdateTime(now);
         userMessage.setDeleted(0); // 未删除
-
-        chatMessageMapper.insert(userMessage);
+        return userMessage;
     }
 
     /**
-     * 临时保存助手消息（初始状态：处理中）
+     * 构建助手占位消息（初始状态：处理中）
+     * 创建时间比用户消息晚 1 微秒，按创建时间排序时始终排在提问之后
      */
-    private ChatMessage saveAssistantMessageTemp(MessageSendRequest request, Long userId) {
+    private ChatMessage newAssistantPlaceholder(MessageSendRequest request, Long userId, LocalDateTime now) {
+        LocalDateTime createTime = now.plusNanos(1_000);
         ChatMessage assistantMessage = new ChatMessage();
         assistantMessage.setSessionId(request.getSessionId());
         assistantMessage.setUserId(userId);
@@ -176,18 +476,16 @@ public class MessageService {
         assistantMessage.setContent(""); // 初始内容为空，后续更新
         assistantMessage.setModelName(request.getModelName());
         assistantMessage.setStatus(0); // 状态：0-处理中
-        assistantMessage.setCreateTime(LocalDateTime.now());
-        assistantMessage.setUpdateTime(LocalDateTime.now());
+        assistantMessage.setCreateTime(createTime);
+        assistantMessage.setUpdateTime(createTime);
         assistantMessage.setDeleted(0); // 未删除
-
-        chatMessageMapper.insert(assistantMessage);
         return assistantMessage;
     }
 
     /**
      * 流式响应结束后，更新助手消息的完整内容和状态
      */
-    private void updateAssistantMessageFullContent(Long messageId, String fullContent, String status) {
+    private void updateAssistantMessageFullContent(Long messageId, String fullContent, String status, Integer tokens) {
         if (messageId == 0) {
             return;
         }
@@ -196,7 +494,12 @@ public class MessageService {
         ChatMessage updateMsg = new ChatMessage();
         updateMsg.setId(messageId);
         updateMsg.setContent(fullContent); // 保存完整内容
-        updateMsg.setStatus("completed".equals(status) ? 1 : 2); // 1-成功，2-失败
+        updateMsg.setStatus(switch (status) {
+            case "completed" -> 1; // 1-成功
+            case "cancelled" -> 3; // 3-已取消
+            default -> 2; // 2-失败
+        });
+        updateMsg.setTokens(tokens); // 本次调用的总 Token 数（输入+输出）
         updateMsg.setUpdateTime(LocalDateTime.now());
 
         // 构建更新条件：消息ID+角色为助手+未删除
@@ -213,21 +516,11 @@ public class MessageService {
 
     /**
      * 自动生成会话标题（如果用户未指定标题）
+     * 先写入由提问提取的临时标题，AI 标题由后台批量生成
      */
-    private void autoGenerateSessionTitle(Long sessionId, Long userId, String fullText) {
+    private void autoGenerateSessionTitle(Long sessionId, Long userId, Long userMessageId, String userContent) {
         try {
-            // 1. 查询当前会话信息
-            SessionResponse session = sessionService.getSession(sessionId, userId);
-            // 2. 判断是否需要自动生成标题（标题为空、默认值或过短）
-            if (session.getTitle() == null || session.getTitle().trim().isEmpty()
-                    || session.getTitle().equals("新会话") || session.getTitle().length() < 5) {
-                // 3. 提取AI响应前20字作为标题（末尾加省略号）
-                String autoTitle = fullText.length() > 20 ? fullText.substring(0, 20) + "..." : fullText;
-                // 4. 更新会话标题：用 Setter 方法赋值（无需构造函数）
-                SessionUpdateTitleRequest titleRequest = new SessionUpdateTitleRequest();
-                titleRequest.setTitle(autoTitle); // 直接调用 setTitle 方法
-                sessionService.updateSessionTitle(sessionId, userId, titleRequest);
-            }
+            sessionService.requestAutoTitle(sessionId, userId, userMessageId, userContent);
         } catch (Exception e) {
         }
     }
@@ -241,9 +534,9 @@ public class MessageService {
                 chatMessage.getSessionId(),
                 chatMessage.getUserId(),
                 chatMessage.getRole(),
-                chatMessage.getContent(),
+                chatMessage.getContent(), // 压缩存储的内容在此处第一次读取时解码
                 chatMessage.getModelName(),
-                null, // tokens：ChatMessage 无该字段，设为 null
+                chatMessage.getTokens(),
                 0,    // hasThinking：默认 0（未开启）
                 null, // thinkingContent：默认 null
                 0,    // webSearch：默认 0（未开启）
@@ -0,0 +1,186 @@
+package top.xym.campusassistantapi.module.message.stream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式片段自适应合并（作用于客户端订阅侧，合并后的事件序号取批内最后一个片段的序号，不影响断点续传）
+ * - 首个片段立即下发，不增加首字节延迟
+ * - 之后按字节数与等待时间批量下发：等待时间随模型出字速度（片段间隔的指数移动平均）自适应
+ * - 客户端读取慢（无下游需求）时继续累积，需求到达后一次性下发
+ */
+@Component
+public class AdaptiveChunkCoalescer {
+
+    private final StreamFlushProperties properties;
+    private final Timer timeToFirstByte;
+    private final Timer chunkGap;
+
+    public AdaptiveChunkCoalescer(StreamFlushProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.timeToFirstByte = Timer.builder("chat.stream.ttfb")
+                .description("从开始生成到首个片段下发的耗时")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.chunkGap = Timer.builder("chat.stream.chunk.gap")
+                .description("相邻两次片段下发的间隔")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 合并模型输出的原始片段
+     */
+    public Flux<StreamChunk> coalesce(Flux<StreamChunk> fragments) {
+        return Flux.create(sink -> {
+            CoalescingState state = new CoalescingState(sink);
+            Disposable upstream = fragments.subscribe(
+                    state::onFragment,
+                    error -> {
+                        state.flush(true);
+                        sink.error(error);
+                    },
+                    () -> {
+                        state.flush(true);
+                        sink.complete();
+                    });
+            sink.onRequest(n -> state.flush(false));
+            sink.onDispose(() -> {
+                upstream.dispose();
+                state.cancelTimer();
+            });
+        });
+    }
+
+    /**
+     * 单次流的合并状态，所有方法在自身锁内执行
+     */
+    private final class CoalescingState {
+
+        private final FluxSink<StreamChunk> sink;
+        private final long startNanos = System.nanoTime();
+        private final StringBuilder buffer = new StringBuilder();
+        private long bufferedSeq;
+        private int bufferedBytes;
+        private boolean firstEmitted;
+        private long lastArrivalNanos;
+        private long lastEmitNanos;
+        /**
+         * 片段到达间隔的指数移动平均（纳秒）
+         */
+        private double arrivalGapEwma = -1;
+        private Disposable flushTimer;
+
+        CoalescingState(FluxSink<StreamChunk> sink) {
+            this.sink = sink;
+        }
+
+        synchronized void onFragment(StreamChunk fragment) {
+            long now = System.nanoTime();
+            if (lastArrivalNanos > 0) {
+                long gap = now - lastArrivalNanos;
+                arrivalGapEwma = arrivalGapEwma < 0 ? gap : arrivalGapEwma * 0.8 + gap * 0.2;
+            }
+            lastArrivalNanos = now;
+
+            buffer.append(fragment.data());
+            bufferedSeq = fragment.seq();
+            bufferedBytes += utf8Length(fragment.data());
+
+            if (!firstEmitted) {
+                // 首个片段立即下发
+                flush(false);
+                return;
+            }
+            long maxDelayNanos = properties.getMaxDelay().toNanos();
+            if (bufferedBytes >= properties.getTargetBytes()
+                    || bufferedBytes >= properties.getMaxBufferBytes()
+                    || arrivalGapEwma >= maxDelayNanos) {
+                // 达到目标字节数，或模型出字很慢（等待合并无意义）
+                flush(false);
+                return;
+            }
+            if (flushTimer == null) {
+                long delay = adaptiveDelayNanos();
+                flushTimer = Schedulers.parallel().schedule(this::onTimer, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * 下发缓冲内容
+         *
+         * @param force 为 true 时忽略下游需求（流结束时使用，由 FluxSink 内部缓冲）
+         */
+        synchronized void flush(boolean force) {
+            cancelTimer();
+            if (buffer.length() == 0) {
+                return;
+            }
+            // 客户端尚未读取完上一批：继续累积，待需求到达（onRequest）时再下发
+            if (!force && sink.requestedFromDownstream() == 0 && bufferedBytes < properties.getMaxBufferBytes()) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (!firstEmitted) {
+                firstEmitted = true;
+                timeToFirstByte.record(now - startNanos, TimeUnit.NANOSECONDS);
+            } else {
+                chunkGap.record(now - lastEmitNanos, TimeUnit.NANOSECONDS);
+            }
+            lastEmitNanos = now;
+            StreamChunk chunk = new StreamChunk(bufferedSeq, buffer.toString());
+            buffer.setLength(0);
+            bufferedBytes = 0;
+            sink.next(chunk);
+        }
+
+        synchronized void cancelTimer() {
+            if (flushTimer != null) {
+                flushTimer.dispose();
+                flushTimer = null;
+            }
+        }
+
+        private synchronized void onTimer() {
+            flushTimer = null;
+            flush(false);
+        }
+
+        /**
+         * 等待时间 = 2 倍片段间隔，限制在 [minDelay, maxDelay] 之间
+         */
+        private long adaptiveDelayNanos() {
+            long min = properties.getMinDelay().toNanos();
+            long max = properties.getMaxDelay().toNanos();
+            if (arrivalGapEwma < 0) {
+                return max;
+            }
+            return Math.max(min, Math.min(max, (long) (arrivalGapEwma * 2)));
+        }
+
+        private int utf8Length(String text) {
+            int bytes = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    bytes++;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c)) {
+                    bytes += 4;
+                    i++;
+                } else {
+                    bytes += 3;
+                }
+            }
+            return bytes;
+        }
+    }
+}
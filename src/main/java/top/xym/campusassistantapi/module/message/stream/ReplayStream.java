@@ -0,0 +1,212 @@
+package top.xym.campusassistantapi.module.message.stream;
+
+import lombok.Getter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条助手消息的可回放流
+ * 最近的片段保存在定长环形缓冲区中，订阅时先回放断点之后的片段，再跟随实时输出
+ * 所有订阅者都断开且超过宽限期仍无人重连时，取消上游生成（客户端已离开，继续生成只会浪费 Token）
+ */
+public class ReplayStream {
+
+    @Getter
+    private final Long messageId;
+    @Getter
+    private final Long userId;
+    private final StreamChunk[] ring;
+    private final List<FluxSink<StreamChunk>> followers = new ArrayList<>();
+    private final List<Runnable> terminateCallbacks = new ArrayList<>();
+    /**
+     * 无订阅者时的取消宽限期，为 null 表示不取消
+     */
+    private final Duration abandonGrace;
+
+    private long nextSeq = 1;
+    private boolean completed;
+    private Throwable error;
+    private Disposable upstream;
+    private Disposable abandonTimer;
+
+    public ReplayStream(Long messageId, Long userId, int bufferSize) {
+        this(messageId, userId, bufferSize, null);
+    }
+
+    public ReplayStream(Long messageId, Long userId, int bufferSize, Duration abandonGrace) {
+        this.messageId = messageId;
+        this.userId = userId;
+        this.ring = new StreamChunk[Math.max(1, bufferSize)];
+        this.abandonGrace = abandonGrace;
+    }
+
+    /**
+     * 绑定上游生成的订阅，用于客户端全部离开后取消生成
+     */
+    public void attachUpstream(Disposable upstream) {
+        synchronized (this) {
+            if (!isTerminated()) {
+                this.upstream = upstream;
+                if (followers.isEmpty()) {
+                    scheduleAbandonCheck();
+                }
+                return;
+            }
+        }
+        // 已被取消（宽限期内无人订阅）：立即停止生成
+        if (isCancelled()) {
+            upstream.dispose();
+        }
+    }
+
+    /**
+     * 追加片段并推送给当前所有订阅者
+     */
+    public synchronized void append(String data) {
+        StreamChunk chunk = new StreamChunk(nextSeq, data);
+        ring[index(nextSeq)] = chunk;
+        nextSeq++;
+        for (FluxSink<StreamChunk> follower : followers) {
+            follower.next(chunk);
+        }
+    }
+
+    public void complete() {
+        terminate(null);
+    }
+
+    public void error(Throwable throwable) {
+        terminate(throwable);
+    }
+
+    /**
+     * 从指定序号之后开始订阅
+     *
+     * @param lastSeq 客户端已收到的最后一个片段序号（0 表示从头开始）
+     */
+    public Flux<StreamChunk> follow(long lastSeq) {
+        return Flux.create(sink -> {
+            synchronized (this) {
+                long oldest = Math.max(1, nextSeq - ring.length);
+                if (lastSeq + 1 < oldest) {
+                    sink.error(new RuntimeException("断点已超出回放窗口，请重新获取消息历史"));
+                    return;
+                }
+                for (long seq = lastSeq + 1; seq < nextSeq; seq++) {
+                    sink.next(ring[index(seq)]);
+                }
+                if (error != null) {
+                    sink.error(error);
+                    return;
+                }
+                if (completed) {
+                    sink.complete();
+                    return;
+                }
+                followers.add(sink);
+                cancelAbandonCheck();
+                sink.onDispose(() -> removeFollower(sink));
+            }
+        });
+    }
+
+    /**
+     * 注册流结束（完成或失败）后的回调
+     */
+    public synchronized void onTerminate(Runnable callback) {
+        if (completed || error != null) {
+            callback.run();
+            return;
+        }
+        terminateCallbacks.add(callback);
+    }
+
+    public synchronized boolean isTerminated() {
+        return completed || error != null;
+    }
+
+    public synchronized boolean isCancelled() {
+        return error instanceof CancellationException;
+    }
+
+    private void terminate(Throwable throwable) {
+        List<FluxSink<StreamChunk>> snapshot;
+        List<Runnable> callbacks;
+        synchronized (this) {
+            if (completed || error != null) {
+                return;
+            }
+            if (throwable == null) {
+                completed = true;
+            } else {
+                error = throwable;
+            }
+            cancelAbandonCheck();
+            upstream = null;
+            snapshot = new ArrayList<>(followers);
+            followers.clear();
+            callbacks = new ArrayList<>(terminateCallbacks);
+            terminateCallbacks.clear();
+        }
+        for (FluxSink<StreamChunk> follower : snapshot) {
+            if (throwable == null) {
+                follower.complete();
+            } else {
+                follower.error(throwable);
+            }
+        }
+        callbacks.forEach(Runnable::run);
+    }
+
+    private synchronized void removeFollower(FluxSink<StreamChunk> sink) {
+        followers.remove(sink);
+        if (followers.isEmpty() && !isTerminated()) {
+            scheduleAbandonCheck();
+        }
+    }
+
+    private void scheduleAbandonCheck() {
+        if (abandonGrace == null || abandonTimer != null) {
+            return;
+        }
+        abandonTimer = Schedulers.parallel().schedule(this::cancelIfAbandoned,
+                abandonGrace.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelAbandonCheck() {
+        if (abandonTimer != null) {
+            abandonTimer.dispose();
+            abandonTimer = null;
+        }
+    }
+
+    /**
+     * 宽限期结束仍无订阅者：标记为已取消并停止上游生成
+     */
+    private void cancelIfAbandoned() {
+        Disposable toCancel;
+        synchronized (this) {
+            abandonTimer = null;
+            if (!followers.isEmpty() || isTerminated()) {
+                return;
+            }
+            toCancel = upstream;
+        }
+        terminate(new CancellationException("客户端已断开，回答生成已取消"));
+        if (toCancel != null) {
+            toCancel.dispose();
+        }
+    }
+
+    private int index(long seq) {
+        return (int) ((seq - 1) % ring.length);
+    }
+}
@@ -0,0 +1,55 @@
+package top.xym.campusassistantapi.module.message.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * 客户端断开导致取消生成的统计
+ * 节省的 Token 数按「完整回答的平均输出 Token 数 - 取消前已生成的 Token 数」估算
+ */
+@Component
+public class StreamCancellationMetrics {
+
+    private final Counter cancelled;
+    private final Counter tokensSaved;
+    private final DistributionSummary tokensBeforeCancel;
+
+    /**
+     * 完整回答输出 Token 数的指数移动平均
+     */
+    private volatile double completionTokensEwma = -1;
+
+    public StreamCancellationMetrics(MeterRegistry meterRegistry) {
+        this.cancelled = Counter.builder("chat.stream.cancelled")
+                .description("因客户端断开而取消的生成次数")
+                .register(meterRegistry);
+        this.tokensSaved = Counter.builder("chat.stream.tokens.saved")
+                .description("提前取消节省的输出 Token 数（估算）")
+                .register(meterRegistry);
+        this.tokensBeforeCancel = DistributionSummary.builder("chat.stream.cancelled.tokens")
+                .description("取消前已生成的输出 Token 数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次完整结束的回答
+     */
+    public void recordCompleted(long completionTokens) {
+        double current = completionTokensEwma;
+        completionTokensEwma = current < 0 ? completionTokens : current * 0.95 + completionTokens * 0.05;
+    }
+
+    /**
+     * 记录一次被取消的回答
+     */
+    public void recordCancelled(long generatedTokens) {
+        cancelled.increment();
+        tokensBeforeCancel.record(generatedTokens);
+        double expected = completionTokensEwma;
+        if (expected > generatedTokens) {
+            tokensSaved.increment(expected - generatedTokens);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package top.xym.campusassistantapi.module.message.stream;
+
+/**
+ * 流式响应片段
+ *
+ * @param seq  片段序号（从 1 开始，作为 SSE 事件 ID 的一部分）
+ * @param data 片段内容
+ */
+public record StreamChunk(long seq, String data) {
+}
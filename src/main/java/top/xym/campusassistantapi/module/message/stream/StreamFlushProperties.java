@@ -0,0 +1,32 @@
+package top.xym.campusassistantapi.module.message.stream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 流式片段自适应合并配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.chat.stream-flush")
+public class StreamFlushProperties {
+    /**
+     * 目标批量字节数，缓冲达到该值立即下发
+     */
+    private int targetBytes = 96;
+    /**
+     * 合并等待时间下限
+     */
+    private Duration minDelay = Duration.ofMillis(20);
+    /**
+     * 合并等待时间上限（模型出字越慢等待越短，超过该值的间隔直接逐片下发）
+     */
+    private Duration maxDelay = Duration.ofMillis(150);
+    /**
+     * 客户端读取过慢时缓冲的最大字节数，超过后不再等待客户端需求
+     */
+    private int maxBufferBytes = 16 * 1024;
+}
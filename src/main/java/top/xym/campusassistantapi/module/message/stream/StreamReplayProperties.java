@@ -0,0 +1,36 @@
+package top.xym.campusassistantapi.module.message.stream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 流式响应断点续传配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.chat.stream-replay")
+public class StreamReplayProperties {
+    /**
+     * 每条助手消息保留的最近片段数（环形缓冲区容量，按模型原始片段计）
+     */
+    private int bufferSize = 4096;
+    /**
+     * 流结束后缓冲区继续保留的时间（供客户端断线重连）
+     */
+    private Duration retention = Duration.ofMinutes(2);
+    /**
+     * 客户端全部断开后是否取消上游生成
+     */
+    private boolean cancelOnAbandon = true;
+    /**
+     * 取消前等待客户端重连的宽限期
+     */
+    private Duration abandonGrace = Duration.ofSeconds(10);
+    /**
+     * SSE 心跳间隔（无输出时也定期写入，及时发现客户端断开）
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+}
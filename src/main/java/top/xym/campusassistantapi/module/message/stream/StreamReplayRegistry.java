@@ -0,0 +1,46 @@
+package top.xym.campusassistantapi.module.message.stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可回放流注册表（按助手消息 ID 索引）
+ * 流结束后保留一段时间供断线重连，随后自动移除
+ */
+@Component
+public class StreamReplayRegistry {
+
+    private final Map<Long, ReplayStream> streams = new ConcurrentHashMap<>();
+    private final StreamReplayProperties properties;
+
+    public StreamReplayRegistry(StreamReplayProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        Gauge.builder("chat.stream.replay.buffers", streams, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * 为助手消息创建可回放流
+     */
+    public ReplayStream open(Long messageId, Long userId) {
+        ReplayStream stream = new ReplayStream(messageId, userId, properties.getBufferSize(),
+                properties.isCancelOnAbandon() ? properties.getAbandonGrace() : null);
+        streams.put(messageId, stream);
+        stream.onTerminate(() -> Schedulers.parallel().schedule(
+                () -> streams.remove(messageId, stream),
+                properties.getRetention().toMillis(), TimeUnit.MILLISECONDS));
+        return stream;
+    }
+
+    /**
+     * 获取可回放流，不存在或已过期返回 null
+     */
+    public ReplayStream get(Long messageId) {
+        return streams.get(messageId);
+    }
+}
@@ -0,0 +1,33 @@
+package top.xym.campusassistantapi.module.session.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 会话元数据（消息发送链路只需要归属、标题与状态）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionMeta implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+    private Long userId;
+    private String title;
+    private Integer status;
+    private Integer deleted;
+
+    /**
+     * 是否属于该用户且未删除
+     */
+    public boolean isOwnedBy(Long userId) {
+        return this.userId != null && this.userId.equals(userId) && (deleted == null || deleted == 0);
+    }
+}
@@ -0,0 +1,155 @@
+package top.xym.campusassistantapi.module.session.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import top.xym.campusassistantapi.common.cache.RedisCache;
+import top.xym.campusassistantapi.common.cache.RedisKeys;
+import top.xym.campusassistantapi.module.session.mapper.ChatSessionMapper;
+import top.xym.campusassistantapi.module.session.model.entity.ChatSession;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 会话元数据两级读穿缓存：本地 LRU（短有效期）-> Redis（可选）-> 数据库
+ * 标题修改、删除、状态变化时由 SessionService 调用 {@link #evict(Long)} 失效
+ * 读穿与失效并发时，加载前后比较分段失效计数，期间发生过失效的加载结果不写回缓存，避免旧数据覆盖删除
+ * （多节点间的失效只经过 Redis，其他节点的本地缓存最多滞后 localTtl）
+ */
+@Slf4j
+@Component
+public class SessionMetaCache {
+
+    /**
+     * 失效计数的分段数（按会话ID取模，不同会话偶尔共用一段只会少缓存一次）
+     */
+    private static final int GENERATION_STRIPES = 64;
+
+    private final ChatSessionMapper sessionMapper;
+    private final RedisCache redisCache;
+    private final SessionMetaCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * accessOrder=true 的 LinkedHashMap 即 LRU，所有访问在 synchronized 中进行
+     */
+    private final LinkedHashMap<Long, LocalEntry> local;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public SessionMetaCache(ChatSessionMapper sessionMapper,
+                            RedisCache redisCache,
+                            SessionMetaCacheProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.sessionMapper = sessionMapper;
+        this.redisCache = redisCache;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.local = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, LocalEntry> eldest) {
+                return size() > properties.getLocalMaxEntries();
+            }
+        };
+    }
+
+    /**
+     * 读取会话元数据，会话不存在返回 null
+     */
+    public SessionMeta get(Long sessionId) {
+        if (!properties.isEnabled()) {
+            return load(sessionId);
+        }
+        long now = System.currentTimeMillis();
+        long generation;
+        synchronized (local) {
+            LocalEntry entry = local.get(sessionId);
+            if (entry != null && entry.expireAt > now) {
+                count("local");
+                return entry.meta;
+            }
+            generation = generation(sessionId);
+        }
+
+        SessionMeta meta = null;
+        if (properties.isRedisEnabled()) {
+            try {
+                meta = redisCache.get(RedisKeys.getSessionMetaKey(sessionId), SessionMeta.class);
+            } catch (Exception e) {
+                log.warn("读取 Redis 会话元数据失败：{}", e.getMessage());
+            }
+        }
+        if (meta != null) {
+            count("redis");
+        } else {
+            count("db");
+            meta = load(sessionId);
+            if (meta == null) {
+                return null;
+            }
+            if (properties.isRedisEnabled() && generation(sessionId) == generation) {
+                try {
+                    redisCache.set(RedisKeys.getSessionMetaKey(sessionId), meta,
+                            properties.getRedisTtl().toSeconds(), TimeUnit.SECONDS);
+                    // 写入期间发生了失效：删掉刚写入的旧值
+                    if (generation(sessionId) != generation) {
+                        redisCache.delete(RedisKeys.getSessionMetaKey(sessionId));
+                    }
+                } catch (Exception e) {
+                    log.warn("写入 Redis 会话元数据失败：{}", e.getMessage());
+                }
+            }
+        }
+        synchronized (local) {
+            if (generation(sessionId) == generation) {
+                local.put(sessionId, new LocalEntry(meta, now + properties.getLocalTtl().toMillis()));
+            } else {
+                meterRegistry.counter("session.meta.stale.skipped").increment();
+            }
+        }
+        return meta;
+    }
+
+    /**
+     * 失效（会话标题、状态修改或删除后调用）
+     */
+    public void evict(Long sessionId) {
+        synchronized (local) {
+            generations.incrementAndGet(stripe(sessionId));
+            local.remove(sessionId);
+        }
+        if (properties.isRedisEnabled()) {
+            try {
+                redisCache.delete(RedisKeys.getSessionMetaKey(sessionId));
+            } catch (Exception e) {
+                log.warn("删除 Redis 会话元数据失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    private long generation(Long sessionId) {
+        return generations.get(stripe(sessionId));
+    }
+
+    private static int stripe(Long sessionId) {
+        return (int) Math.floorMod(sessionId, (long) GENERATION_STRIPES);
+    }
+
+    private SessionMeta load(Long sessionId) {
+        ChatSession session = sessionMapper.selectById(sessionId);
+        if (session == null) {
+            return null;
+        }
+        return new SessionMeta(session.getId(), session.getUserId(), session.getTitle(),
+                session.getStatus(), session.getDeleted());
+    }
+
+    private void count(String source) {
+        meterRegistry.counter("session.meta.reads", "source", source).increment();
+    }
+
+    private record LocalEntry(SessionMeta meta, long expireAt) {
+    }
+}
@@ -0,0 +1,36 @@
+package top.xym.campusassistantapi.module.session.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 会话元数据缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.chat.session-cache")
+public class SessionMetaCacheProperties {
+    /**
+     * 是否开启（关闭时每次直接查库）
+     */
+    private boolean enabled = true;
+    /**
+     * 本地缓存条数上限
+     */
+    private int localMaxEntries = 10000;
+    /**
+     * 本地缓存有效期：多节点部署时其他节点的修改最多延迟这么久可见，不宜过长
+     */
+    private Duration localTtl = Duration.ofSeconds(60);
+    /**
+     * 是否使用 Redis 作为二级缓存（多节点共享，减少冷启动查库）
+     */
+    private boolean redisEnabled = false;
+    /**
+     * Redis 缓存有效期
+     */
+    private Duration redisTtl = Duration.ofMinutes(30);
+}
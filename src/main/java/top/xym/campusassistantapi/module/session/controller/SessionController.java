@@ -6,6 +6,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import top.xym.campusassistantapi.common.model.dto.CursorPageResponse;
 import top.xym.campusassistantapi.common.model.dto.PageResponse;
 import top.xym.campusassistantapi.module.session.model.dto.SessionCreateRequest;
 import top.xym.campusassistantapi.module.session.model.dto.SessionResponse;
@@ -54,6 +55,22 @@ public class SessionController {
         return Result.success("分页查询成功", sessionPage);
     }
 
+    // 游标分页获取用户会话（无限滚动，不统计总数）
+    @GetMapping("/cursor")
+    @Operation(summary = "游标分页获取用户会话", description = "按创建时间倒序返回会话，携带上次返回的游标继续翻页，翻页耗时与页数无关")
+    public Result<CursorPageResponse<SessionResponse>> getUserSessionsByCursor(
+            @RequestParam(required = false) @Schema(description = "上次返回的 nextCursor/prevCursor，首次请求不传") String cursor,
+            @RequestParam(defaultValue = "next") @Schema(description = "翻页方向：next=更早的会话，prev=更新的会话") String direction,
+            @RequestParam(defaultValue = "10") @Schema(description = "每页条数（默认10，最大50）") Integer size,
+            @RequestParam(defaultValue = "false") @Schema(description = "是否返回总数（需要额外统计）") Boolean withTotal
+    ) {
+        if (size < 1 || size > 50) {
+            return Result.error(400, "每页条数必须在1到50之间");
+        }
+        Long userId = getCurrentUserId();
+        return Result.success("分页查询成功", sessionService.getUserSessionsByCursor(userId, cursor, direction, size, withTotal));
+    }
+
     @DeleteMapping("/{sessionId}")
     @Operation(summary = "删除会话", description = "根据会话ID删除指定会话（包括关联的消息记录）")
     public Result<Void> deleteSession(
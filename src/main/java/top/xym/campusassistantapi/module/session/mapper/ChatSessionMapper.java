@@ -2,8 +2,34 @@ package top.xym.campusassistantapi.module.session.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+import top.xym.campusassistantapi.module.session.model.dto.SessionTitleUpdate;
 import top.xym.campusassistantapi.module.session.model.entity.ChatSession;
 
+import java.util.List;
+
 @Mapper
 public interface ChatSessionMapper extends BaseMapper<ChatSession> {
+
+    /**
+     * 批量更新会话标题（一条 SQL）
+     * 仅当标题仍为临时标题时才覆盖，避免覆盖用户在此期间手动修改的标题
+     */
+    @Update("""
+            <script>
+            UPDATE chat_session
+            SET title = CASE
+                <foreach collection="list" item="item">
+                    WHEN id = #{item.sessionId} AND title = #{item.provisionalTitle} THEN #{item.title}
+                </foreach>
+                ELSE title END,
+                update_time = NOW()
+            WHERE deleted = 0 AND id IN
+            <foreach collection="list" item="item" open="(" separator="," close=")">
+                #{item.sessionId}
+            </foreach>
+            </script>
+            """)
+    int updateTitlesBatch(@Param("list") List<SessionTitleUpdate> updates);
 }
@@ -0,0 +1,21 @@
+package top.xym.campusassistantapi.module.session.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 会话标题批量更新项
+ */
+@Data
+@AllArgsConstructor
+public class SessionTitleUpdate {
+
+    private Long sessionId;
+
+    /**
+     * 生成前写入的临时标题（仍为该值时才覆盖）
+     */
+    private String provisionalTitle;
+
+    private String title;
+}
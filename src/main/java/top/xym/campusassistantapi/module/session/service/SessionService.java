@@ -1,16 +1,24 @@
 package top.xym.campusassistantapi.module.session.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import top.xym.campusassistantapi.common.model.dto.CursorPageResponse;
 import top.xym.campusassistantapi.common.model.dto.PageResponse;
+import top.xym.campusassistantapi.common.utils.PageCursor;
+import top.xym.campusassistantapi.module.message.archive.ChatMessageArchive;
+import top.xym.campusassistantapi.module.message.archive.MessageArchiveService;
+import top.xym.campusassistantapi.module.message.history.ConversationHistoryAssembler;
+import top.xym.campusassistantapi.module.message.mapper.ChatMessageArchiveMapper;
 import top.xym.campusassistantapi.module.message.mapper.ChatMessageMapper;
 import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
 import top.xym.campusassistantapi.module.message.service.MessageService;
+import top.xym.campusassistantapi.module.session.cache.SessionMeta;
+import top.xym.campusassistantapi.module.session.cache.SessionMetaCache;
 import top.xym.campusassistantapi.module.session.model.dto.SessionUpdateTitleRequest;
 import top.xym.campusassistantapi.module.session.mapper.ChatSessionMapper;
 import top.xym.campusassistantapi.module.session.model.dto.SessionCreateRequest;
@@ -18,6 +26,8 @@ import top.xym.campusassistantapi.module.session.model.dto.SessionResponse;
 import top.xym.campusassistantapi.module.session.model.entity.ChatSession;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -30,7 +40,13 @@ public class SessionService {
     @Autowired
     private ChatMessageMapper messageMapper;
     @Autowired
-    private ChatClient dashScopeChatClient;
+    private ChatMessageArchiveMapper archiveMapper;
+    @Autowired
+    private SessionTitleGenerator titleGenerator;
+    @Autowired
+    private ConversationHistoryAssembler historyAssembler;
+    @Autowired
+    private SessionMetaCache sessionMetaCache;
 
     /**
      * 创建会话
@@ -85,6 +101,72 @@ public class SessionService {
     }
 
 
+    /**
+     * 游标分页获取用户会话（按创建时间倒序，next 向更早的会话翻页）
+     * 按 (create_time, id) 定位，不做 OFFSET 扫描；仅在 withTotal=true 时统计总数
+     */
+    public CursorPageResponse<SessionResponse> getUserSessionsByCursor(Long userId, String cursor, String direction,
+                                                                       int size, boolean withTotal) {
+        PageCursor at = PageCursor.decode(cursor);
+        boolean older = PageCursor.Direction.of(direction) == PageCursor.Direction.NEXT;
+        LambdaQueryWrapper<ChatSession> queryWrapper = new LambdaQueryWrapper<ChatSession>()
+                .eq(ChatSession::getUserId, userId)
+                .eq(ChatSession::getDeleted, 0);
+        if (at != null) {
+            // 展开为 OR 条件，MySQL 可直接在 (user_id, deleted, create_time) 索引上做范围扫描
+            queryWrapper.and(w -> {
+                if (older) {
+                    w.lt(ChatSession::getCreateTime, at.createTime())
+                            .or(o -> o.eq(ChatSession::getCreateTime, at.createTime()).lt(ChatSession::getId, at.id()));
+                } else {
+                    w.gt(ChatSession::getCreateTime, at.createTime())
+                            .or(o -> o.eq(ChatSession::getCreateTime, at.createTime()).gt(ChatSession::getId, at.id()));
+                }
+            });
+        }
+        if (older) {
+            queryWrapper.orderByDesc(ChatSession::getCreateTime).orderByDesc(ChatSession::getId);
+        } else {
+            queryWrapper.orderByAsc(ChatSession::getCreateTime).orderByAsc(ChatSession::getId);
+        }
+        // 多取一条判断是否还有下一页
+        queryWrapper.last("LIMIT " + (size + 1));
+        List<ChatSession> sessions = new ArrayList<>(sessionMapper.selectList(queryWrapper));
+        boolean hasMore = sessions.size() > size;
+        if (hasMore) {
+            sessions.remove(size);
+        }
+        if (!older) {
+            Collections.reverse(sessions);
+        }
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!sessions.isEmpty()) {
+            PageCursor oldest = cursorOf(sessions.get(sessions.size() - 1));
+            PageCursor newest = cursorOf(sessions.get(0));
+            nextCursor = older ? (hasMore ? oldest.encode() : null) : oldest.encode();
+            prevCursor = older ? (at != null ? newest.encode() : null) : (hasMore ? newest.encode() : null);
+        } else if (at != null) {
+            // 该方向已无数据，另一方向仍可从原游标继续
+            nextCursor = older ? null : cursor;
+            prevCursor = older ? cursor : null;
+        }
+
+        Long total = withTotal ? sessionMapper.selectCount(new LambdaQueryWrapper<ChatSession>()
+                .eq(ChatSession::getUserId, userId)
+                .eq(ChatSession::getDeleted, 0)) : null;
+        List<SessionResponse> records = sessions.stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+        return new CursorPageResponse<>(records, nextCursor, prevCursor, total);
+    }
+
+    private static PageCursor cursorOf(ChatSession session) {
+        return new PageCursor(session.getCreateTime(), session.getId());
+    }
+
+
     public SessionResponse getSession(Long sessionId, Long userId) {
         ChatSession session = sessionMapper.selectOne(
                 new LambdaQueryWrapper<ChatSession>()
@@ -98,6 +180,17 @@ public class SessionService {
         return convertToResponse(session);
     }
 
+    /**
+     * 校验会话归属（读缓存，消息发送链路使用），不存在、已删除或不属于该用户时抛出异常
+     */
+    public SessionMeta requireOwnedSession(Long sessionId, Long userId) {
+        SessionMeta meta = sessionMetaCache.get(sessionId);
+        if (meta == null || !meta.isOwnedBy(userId)) {
+            throw new RuntimeException("会话不存在");
+        }
+        return meta;
+    }
+
     // 更新会话标题
     public SessionResponse updateSessionTitle(Long sessionId, Long userId, SessionUpdateTitleRequest request) {
         ChatSession session = sessionMapper.selectOne(
@@ -112,17 +205,17 @@ public class SessionService {
         session.setTitle(request.getTitle());
         session.setUpdateTime(LocalDateTime.now());
         int rows = sessionMapper.updateById(session);
+        sessionMetaCache.evict(sessionId);
         if (rows == 0) {
             throw new RuntimeException("会话标题修改失败");
         }
         return convertToResponse(session);
     }
 
+    /**
+     * 更新会话最后一条消息（不先查询，由带 deleted=0 条件的更新判断会话是否仍存在）
+     */
     public void updateLastMessage(Long sessionId, String mergedLastMessage) {
-        ChatSession session = sessionMapper.selectById(sessionId);
-        if (session == null || session.getDeleted() == 1) {
-            throw new RuntimeException("会话不存在或已删除");
-        }
         ChatSession updateSession = new ChatSession();
         updateSession.setId(sessionId);
         updateSession.setLastMessage(mergedLastMessage);
@@ -133,7 +226,9 @@ public class SessionService {
                 .eq(ChatSession::getDeleted, 0);
         int rows = sessionMapper.update(updateSession, updateWrapper);
         if (rows == 0) {
-            throw new RuntimeException("会话最后消息更新失败");
+            // 会话已被删除：缓存中的元数据已过期
+            sessionMetaCache.evict(sessionId);
+            throw new RuntimeException("会话不存在或已删除");
         }
     }
 
@@ -153,13 +248,19 @@ public class SessionService {
         LambdaQueryWrapper<ChatMessage> messageWrapper = new LambdaQueryWrapper<ChatMessage>()
                 .eq(ChatMessage::getSessionId, sessionId);
         messageMapper.delete(messageWrapper);
+        // 归档索引一并删除（段文件只追加，对应的块不再被引用）
+        archiveMapper.delete(new LambdaQueryWrapper<ChatMessageArchive>()
+                .eq(ChatMessageArchive::getSessionId, sessionId));
 
         // 再删除会话
         sessionMapper.deleteById(sessionId);
+        historyAssembler.evict(sessionId);
+        sessionMetaCache.evict(sessionId);
     }
 
     /**
      * 根据用户第一条消息生成并更新会话标题
+     * 立即写入临时标题并返回，AI 标题由后台批量生成后写回
      */
     public SessionResponse generateSessionTitle(Long sessionId, Long userId, String userFirstMessage) {
         // 1. 校验会话归属
@@ -173,70 +274,57 @@ public class SessionService {
             throw new RuntimeException("会话不存在或已删除");
         }
 
-        // 2. 调用AI生成标题（核心逻辑）
-        String autoTitle = generateTitleByAI(userFirstMessage);
-
-        // 3. 更新会话标题
-        session.setTitle(autoTitle);
+        // 2. 写入临时标题（关键词提取）
+        String provisionalTitle = titleGenerator.generateKeywordTitle(userFirstMessage);
+        session.setTitle(provisionalTitle);
         session.setUpdateTime(LocalDateTime.now());
         int rows = sessionMapper.updateById(session);
+        sessionMetaCache.evict(sessionId);
         if (rows == 0) {
             throw new RuntimeException("会话标题生成失败");
         }
-        log.info("会话{}自动生成标题：{}", sessionId, autoTitle);
+
+        // 3. 加入后台批量生成队列
+        titleGenerator.enqueue(sessionId, provisionalTitle, userFirstMessage);
+        log.info("会话{}写入临时标题：{}，AI标题排队生成中", sessionId, provisionalTitle);
         return convertToResponse(session);
     }
 
     /**
-     * AI生成标题的核心方法（复用参考逻辑）
+     * 首轮对话结束后自动生成标题（标题为空、默认值或过短时）
+     * 只在会话的第一轮触发：自动生成的标题本身可能不足 5 个字，若每轮都按标题判断会反复重新生成
+     *
+     * @param userMessageId 本轮用户消息ID，会话中有更早的用户消息（或已归档）即不是第一轮
      */
-    private String generateTitleByAI(String userFirstMessage) {
-        try {
-            // 提示词：强调10字以内、概括性、无特殊符号
-            String prompt = """
-                任务：为用户的提问生成10字以内的概括性会话标题，仅返回标题文本。
-                要求：
-                1. 必须是概括性短语，不是消息截取或缩写
-                2. 严格≤10字，无空格、无特殊符号
-                3. 包含核心关键词
-                用户提问：%s
-                标题：
-                """.formatted(userFirstMessage);
-
-            // 调用通义千问生成标题
-            String rawTitle = dashScopeChatClient.prompt(prompt).call().content().trim();
-
-            // 兜底处理（AI返回无效时）
-            String finalTitle = rawTitle.isEmpty() || rawTitle.length() > 10
-                    ? generateKeywordTitle(userFirstMessage)
-                    : rawTitle.replaceAll("\\s+", "").replaceAll("[^\\u4e00-\\u9fa5a-zA-Z0-9]", "");
-
-            return finalTitle.isEmpty() ? "新会话-" + System.currentTimeMillis() / 1000 : finalTitle;
-        } catch (Exception e) {
-            log.error("AI生成标题失败，使用兜底逻辑", e);
-            return generateKeywordTitle(userFirstMessage);
+    public void requestAutoTitle(Long sessionId, Long userId, Long userMessageId, String userFirstMessage) {
+        SessionMeta session = requireOwnedSession(sessionId, userId);
+        if (MessageArchiveService.isArchived(session.getStatus())) {
+            return;
         }
-    }
-
-    /**
-     * 兜底：提取关键词生成标题
-     */
-    private String generateKeywordTitle(String userFirstMessage) {
-        String trimmedMsg = userFirstMessage.trim()
-                .replace("什么是", "")
-                .replace("如何", "")
-                .replace("怎么", "")
-                .replace("？", "")
-                .replace("：", "");
-        String[] keywords = trimmedMsg.split("\\s+");
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < Math.min(keywords.length, 2); i++) {
-            if (!keywords[i].isEmpty()) {
-                sb.append(keywords[i]);
-            }
-        }
-        String title = sb.toString();
-        return title.length() > 10 ? title.substring(0, 10) : (title.isEmpty() ? "新会话" : title);
+        String title = session.getTitle();
+        if (title != null && !title.trim().isEmpty() && !title.equals("新会话") && title.length() >= 5) {
+            return;
+        }
+        boolean firstTurn = !messageMapper.exists(new LambdaQueryWrapper<ChatMessage>()
+                .eq(ChatMessage::getSessionId, sessionId)
+                .eq(ChatMessage::getRole, "user")
+                .lt(ChatMessage::getId, userMessageId));
+        if (!firstTurn) {
+            return;
+        }
+        String provisionalTitle = titleGenerator.generateKeywordTitle(userFirstMessage);
+        // 归属已校验，直接按条件更新，不再查询
+        int rows = sessionMapper.update(null, new LambdaUpdateWrapper<ChatSession>()
+                .eq(ChatSession::getId, sessionId)
+                .eq(ChatSession::getUserId, userId)
+                .eq(ChatSession::getDeleted, 0)
+                .set(ChatSession::getTitle, provisionalTitle)
+                .set(ChatSession::getUpdateTime, LocalDateTime.now()));
+        sessionMetaCache.evict(sessionId);
+        if (rows == 0) {
+            throw new RuntimeException("会话不存在或已删除");
+        }
+        titleGenerator.enqueue(sessionId, provisionalTitle, userFirstMessage);
     }
 
 }
@@ -0,0 +1,210 @@
+package top.xym.campusassistantapi.module.session.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.xym.campusassistantapi.infrastructure.llm.HedgedCaller;
+import top.xym.campusassistantapi.infrastructure.llm.LlmBulkhead;
+import top.xym.campusassistantapi.module.session.cache.SessionMetaCache;
+import top.xym.campusassistantapi.module.session.mapper.ChatSessionMapper;
+import top.xym.campusassistantapi.module.session.model.dto.SessionTitleUpdate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话标题异步批量生成
+ * 交互请求只写入临时标题并入队，后台定时把多个会话合并成一次提示词交给模型，
+ * 结果用一条 SQL 批量写回
+ */
+@Slf4j
+@Component
+public class SessionTitleGenerator {
+
+    private final ChatClient dashScopeChatClient;
+    private final ChatSessionMapper sessionMapper;
+    private final LlmBulkhead llmBulkhead;
+    private final HedgedCaller hedgedCaller;
+    private final ObjectMapper objectMapper;
+    private final SessionTitleProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final SessionMetaCache sessionMetaCache;
+
+    /**
+     * 待生成队列：会话ID -> 待生成项（按入队顺序，同一会话重复入队只保留最新一次）
+     */
+    private final LinkedHashMap<Long, PendingTitle> pending = new LinkedHashMap<>();
+
+    public SessionTitleGenerator(ChatClient dashScopeChatClient,
+                                 ChatSessionMapper sessionMapper,
+                                 LlmBulkhead llmBulkhead,
+                                 HedgedCaller hedgedCaller,
+                                 ObjectMapper objectMapper,
+                                 SessionTitleProperties properties,
+                                 MeterRegistry meterRegistry,
+                                 SessionMetaCache sessionMetaCache) {
+        this.dashScopeChatClient = dashScopeChatClient;
+        this.sessionMapper = sessionMapper;
+        this.llmBulkhead = llmBulkhead;
+        this.hedgedCaller = hedgedCaller;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.sessionMetaCache = sessionMetaCache;
+        Gauge.builder("session.title.pending", this, SessionTitleGenerator::pendingSize).register(meterRegistry);
+    }
+
+    /**
+     * 加入待生成队列
+     *
+     * @param sessionId        会话ID
+     * @param provisionalTitle 已写入的临时标题
+     * @param userFirstMessage 用户第一条提问
+     */
+    public void enqueue(Long sessionId, String provisionalTitle, String userFirstMessage) {
+        String question = userFirstMessage.length() > properties.getMaxQuestionChars()
+                ? userFirstMessage.substring(0, properties.getMaxQuestionChars())
+                : userFirstMessage;
+        synchronized (pending) {
+            if (pending.size() >= properties.getMaxPending() && !pending.containsKey(sessionId)) {
+                meterRegistry.counter("session.title.dropped").increment();
+                log.warn("标题生成队列已满，会话{}保留临时标题：{}", sessionId, provisionalTitle);
+                return;
+            }
+            pending.remove(sessionId);
+            pending.put(sessionId, new PendingTitle(sessionId, provisionalTitle, question));
+        }
+    }
+
+    /**
+     * 定时批量生成
+     */
+    @Scheduled(fixedDelayString = "${campus.chat.title.flush-interval-ms:3000}")
+    public void flush() {
+        List<PendingTitle> batch;
+        while (!(batch = drain()).isEmpty()) {
+            generateBatch(batch);
+        }
+    }
+
+    /**
+     * 兜底：提取关键词生成标题（同时作为临时标题）
+     */
+    public String generateKeywordTitle(String userFirstMessage) {
+        String trimmedMsg = userFirstMessage.trim()
+                .replace("什么是", "")
+                .replace("如何", "")
+                .replace("怎么", "")
+                .replace("？", "")
+                .replace("：", "");
+        String[] keywords = trimmedMsg.split("\\s+");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(keywords.length, 2); i++) {
+            if (!keywords[i].isEmpty()) {
+                sb.append(keywords[i]);
+            }
+        }
+        String title = sb.toString();
+        return title.length() > 10 ? title.substring(0, 10) : (title.isEmpty() ? "新会话" : title);
+    }
+
+    private List<PendingTitle> drain() {
+        List<PendingTitle> batch = new ArrayList<>();
+        synchronized (pending) {
+            Iterator<PendingTitle> iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < properties.getBatchSize()) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+        }
+        return batch;
+    }
+
+    private void generateBatch(List<PendingTitle> batch) {
+        // 提示词：强调10字以内、概括性、无特殊符号，按编号返回 JSON
+        StringBuilder questions = new StringBuilder();
+        for (int i = 0; i < batch.size(); i++) {
+            questions.append(i + 1).append(". ")
+                    .append(batch.get(i).question().replaceAll("\\s+", " "))
+                    .append('\n');
+        }
+        String prompt = """
+                任务：为下列每条用户提问分别生成10字以内的概括性会话标题。
+                要求：
+                1. 必须是概括性短语，不是消息截取或缩写
+                2. 严格≤10字，无空格、无特殊符号
+                3. 包含核心关键词
+                4. 仅返回一个 JSON 对象，键为提问编号，值为标题，例如 {"1":"标题一","2":"标题二"}
+                用户提问：
+                %s
+                """.formatted(questions);
+
+        Map<String, String> titles;
+        try {
+            // 调用通义千问批量生成标题（后台调用，只受全局并发限制）
+            String raw = hedgedCaller.call("session.title",
+                    () -> llmBulkhead.call(null, () -> dashScopeChatClient.prompt(prompt).call().content()));
+            titles = parseTitles(raw);
+        } catch (Exception e) {
+            log.error("批量生成会话标题失败，{}个会话保留临时标题", batch.size(), e);
+            meterRegistry.counter("session.title.batches", "result", "failed").increment();
+            return;
+        }
+
+        List<SessionTitleUpdate> updates = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            PendingTitle item = batch.get(i);
+            String title = sanitize(titles.get(String.valueOf(i + 1)));
+            if (title != null && !title.equals(item.provisionalTitle())) {
+                updates.add(new SessionTitleUpdate(item.sessionId(), item.provisionalTitle(), title));
+            }
+        }
+        if (!updates.isEmpty()) {
+            int rows = sessionMapper.updateTitlesBatch(updates);
+            updates.forEach(update -> sessionMetaCache.evict(update.getSessionId()));
+            log.info("批量生成会话标题：提交{}个，更新{}个", batch.size(), rows);
+        }
+        meterRegistry.counter("session.title.batches", "result", "success").increment();
+        meterRegistry.counter("session.title.generated").increment(updates.size());
+    }
+
+    private Map<String, String> parseTitles(String raw) throws Exception {
+        String json = raw == null ? "" : raw.trim();
+        // 去掉模型可能包裹的 ```json 代码块
+        int start = json.indexOf('{');
+        int end = json.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            throw new IllegalStateException("模型返回内容不是 JSON：" + raw);
+        }
+        return objectMapper.readValue(json.substring(start, end + 1), new TypeReference<Map<String, String>>() {
+        });
+    }
+
+    /**
+     * 清洗模型返回的标题，无效时返回 null（保留临时标题）
+     */
+    private String sanitize(String rawTitle) {
+        if (rawTitle == null) {
+            return null;
+        }
+        String title = rawTitle.replaceAll("\\s+", "").replaceAll("[^\\u4e00-\\u9fa5a-zA-Z0-9]", "");
+        return title.isEmpty() || title.length() > 10 ? null : title;
+    }
+
+    private int pendingSize() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private record PendingTitle(Long sessionId, String provisionalTitle, String question) {
+    }
+}
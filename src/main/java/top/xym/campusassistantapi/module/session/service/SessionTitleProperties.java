@@ -0,0 +1,26 @@
+package top.xym.campusassistantapi.module.session.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 会话标题批量生成配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.chat.title")
+public class SessionTitleProperties {
+    /**
+     * 单次提示词最多包含的会话数
+     */
+    private int batchSize = 20;
+    /**
+     * 待生成队列的最大长度，超出后只保留临时标题
+     */
+    private int maxPending = 5000;
+    /**
+     * 提问内容截取长度（避免超长提问撑大批量提示词）
+     */
+    private int maxQuestionChars = 200;
+}
@@ -13,8 +13,13 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import top.xym.campusassistantapi.infrastructure.llm.LlmBulkhead;
+import top.xym.campusassistantapi.infrastructure.llm.LlmRequestCoalescer;
+import top.xym.campusassistantapi.module.study.session.BailianSessionRegistry;
+import top.xym.campusassistantapi.module.usage.service.TokenUsageRecorder;
 
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 @RestController
 @RequestMapping("/ai")
@@ -25,6 +30,26 @@ public class BailianAgentController {
      */
     private final DashScopeAgent agent;
 
+    /**
+     * 请求合并器，相同问题并发到达时只调用一次智能体
+     */
+    private final LlmRequestCoalescer requestCoalescer;
+
+    /**
+     * 并发隔离，防止突发流量耗尽上游配额与 Tomcat 线程
+     */
+    private final LlmBulkhead llmBulkhead;
+
+    /**
+     * 上游会话登记表，每个用户/聊天会话使用独立的上游会话
+     */
+    private final BailianSessionRegistry sessionRegistry;
+
+    /**
+     * Token 用量记录
+     */
+    private final TokenUsageRecorder tokenUsageRecorder;
+
     /**
      * 应用 ID，从配置文件中读取，用于标识当前使用的 DashScope 应用。
      */
@@ -35,9 +60,20 @@ public class BailianAgentController {
      * 构造方法，初始化 DashScopeAgent 实例。
      *
      * @param dashscopeAgentApi DashScopeAgentApi 实例，提供底层通信能力
+     * @param requestCoalescer  请求合并器
+     * @param llmBulkhead       并发隔离
+     * @param sessionRegistry   上游会话登记表
+     * @param tokenUsageRecorder Token 用量记录
      */
-    public BailianAgentController(DashScopeAgentApi dashscopeAgentApi) {
+    public BailianAgentController(DashScopeAgentApi dashscopeAgentApi, LlmRequestCoalescer requestCoalescer,
+                                  LlmBulkhead llmBulkhead,
+                                  BailianSessionRegistry sessionRegistry,
+                                  TokenUsageRecorder tokenUsageRecorder) {
         this.agent = new DashScopeAgent(dashscopeAgentApi);
+        this.requestCoalescer = requestCoalescer;
+        this.llmBulkhead = llmBulkhead;
+        this.sessionRegistry = sessionRegistry;
+        this.tokenUsageRecorder = tokenUsageRecorder;
     }
 
 
@@ -47,17 +83,28 @@ public class BailianAgentController {
      * 此方法会构建一个 Prompt 请求对象，发送给 DashScope Agent 并解析其响应，
      * 包括输出文本、文档引用和思考过程等信息，并记录日志。
      *
-     * @param message 用户输入的消息，默认值为“国家奖学金评选有什么条件?”
+     * @param message   用户输入的消息，默认值为“国家奖学金评选有什么条件?”
+     * @param sessionId 聊天会话ID（可选），不传时同一用户共用一个上游会话
      * @return 响应中的纯文本内容（AssistantMessage 的 text 字段）
      */
     @GetMapping("/bailian/agent/call")
-    public String call(@RequestParam(value = "message", defaultValue = "国家奖学金评选有什么条件?") String message) {
-        // 构建选项和提示词
-        DashScopeAgentOptions options = DashScopeAgentOptions.builder().withAppId(appId).build();
+    public String call(@RequestParam(value = "message", defaultValue = "国家奖学金评选有什么条件?") String message,
+                       @RequestParam(value = "sessionId", required = false) Long sessionId) {
+        // 构建选项和提示词（选项按用户缓存，携带该用户的上游会话ID）
+        String userKey = LlmBulkhead.currentUserKey();
+        String sessionKey = BailianSessionRegistry.key("bailian.call", userKey, sessionId);
+        DashScopeAgentOptions options = sessionRegistry.options(sessionKey, appId, UnaryOperator.identity());
         Prompt prompt = new Prompt(message, options);
 
-        // 执行调用
-        ChatResponse response = agent.call(prompt);
+        // 执行调用（同一会话重复提交的相同问题共享一次调用）
+        // 不做对冲：调用带上游会话ID，重复发送就是在该会话中多进行一轮
+        String flightKey = (sessionKey == null ? "" : sessionKey + ":") + message;
+        Long userId = TokenUsageRecorder.currentUserId();
+        ChatResponse response = requestCoalescer.call("bailian.call", flightKey, () -> {
+            ChatResponse upstream = llmBulkhead.call(userKey, () -> agent.call(prompt));
+            tokenUsageRecorder.record(userId, upstream);
+            return upstream;
+        });
 
         // 处理空响应情况
         if (response == null) {
@@ -78,6 +125,9 @@ public class BailianAgentController {
         List<DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput.DashScopeAgentResponseOutputDocReference> docReferences = output.docReferences();
         List<DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput.DashScopeAgentResponseOutputThoughts> thoughts = output.thoughts();
 
+        // 记录上游返回的会话ID，下一轮在同一上游会话中继续
+        sessionRegistry.update(sessionKey, output.sessionId());
+
         // 记录主内容到日志
         log.info("内容:\n{}\n\n", content);
 
@@ -3,18 +3,25 @@ package top.xym.campusassistantapi.module.study.controller;
 import com.alibaba.cloud.ai.dashscope.agent.DashScopeAgent;
 import com.alibaba.cloud.ai.dashscope.agent.DashScopeAgentOptions;
 import com.alibaba.cloud.ai.dashscope.api.DashScopeAgentApi;
-import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import reactor.core.publisher.Flux;
+import top.xym.campusassistantapi.infrastructure.llm.LlmBulkhead;
+import top.xym.campusassistantapi.infrastructure.llm.LlmRequestCoalescer;
+import top.xym.campusassistantapi.infrastructure.sse.SseStreams;
+import top.xym.campusassistantapi.module.study.session.BailianSessionRegistry;
+import top.xym.campusassistantapi.module.usage.service.TokenUsageRecorder;
 
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * 控制器类，用于处理百炼平台智能体的流式请求。
@@ -30,6 +37,31 @@ public class BailianAgentStreamController {
      */
     private final DashScopeAgent agent;
 
+    /**
+     * 请求合并器，相同问题的并发流式请求共享一次上游调用
+     */
+    private final LlmRequestCoalescer requestCoalescer;
+
+    /**
+     * 并发隔离，防止突发流量耗尽上游配额与 Tomcat 线程
+     */
+    private final LlmBulkhead llmBulkhead;
+
+    /**
+     * 上游会话登记表，每个用户/聊天会话使用独立的上游会话
+     */
+    private final BailianSessionRegistry sessionRegistry;
+
+    /**
+     * Token 用量记录
+     */
+    private final TokenUsageRecorder tokenUsageRecorder;
+
+    /**
+     * 结构化 SSE 输出
+     */
+    private final SseStreams sseStreams;
+
     /**
      * 应用 ID，从配置文件中读取。
      */
@@ -40,12 +72,23 @@ public class BailianAgentStreamController {
      * 构造方法，初始化 DashScopeAgent 实例并设置相关选项。
      *
      * @param dashscopeAgentApi DashScopeAgentApi 实例，用于与 DashScope 接口通信
+     * @param requestCoalescer  请求合并器
+     * @param llmBulkhead       并发隔离
+     * @param sessionRegistry   上游会话登记表
+     * @param sseStreams        结构化 SSE 输出
+     * @param tokenUsageRecorder Token 用量记录
      */
-    public BailianAgentStreamController(DashScopeAgentApi dashscopeAgentApi) {
-        // 初始化 agent，并启用增量输出和思考过程显示功能
+    public BailianAgentStreamController(DashScopeAgentApi dashscopeAgentApi, LlmRequestCoalescer requestCoalescer,
+                                        LlmBulkhead llmBulkhead, BailianSessionRegistry sessionRegistry,
+                                        SseStreams sseStreams, TokenUsageRecorder tokenUsageRecorder) {
+        this.requestCoalescer = requestCoalescer;
+        this.llmBulkhead = llmBulkhead;
+        this.sessionRegistry = sessionRegistry;
+        this.sseStreams = sseStreams;
+        this.tokenUsageRecorder = tokenUsageRecorder;
+        // 初始化 agent，并启用增量输出和思考过程显示功能（上游会话ID按用户在每次调用的选项中指定）
         this.agent = new DashScopeAgent(dashscopeAgentApi,
                 DashScopeAgentOptions.builder()
-                        .withSessionId("currentSessionId")
                         .withIncrementalOutput(true)
                         .withHasThoughts(true)
                         .build());
@@ -53,41 +96,87 @@ public class BailianAgentStreamController {
 
     /**
      * 处理流式聊天请求，接收用户消息并返回模型逐步生成的内容。
+     * 保持原有输出格式：每个片段一个不带事件名的纯文本 data 帧，不含引用文档与思考过程
      *
-     * @param message 用户输入的消息，默认值为“你好，请问你的知识库文档主要是关于什么内容的?”
-     * @return 返回一个 Flux 流，其中每一项是模型逐步生成的文本内容
+     * @param message   用户输入的消息，默认值为“你好，请问你的知识库文档主要是关于什么内容的?”
+     * @param sessionId 聊天会话ID（可选），不传时同一用户共用一个上游会话
+     * @return SSE 响应体
      */
     @GetMapping(value = "/bailian/agent/stream", produces = "text/event-stream;charset=UTF-8")
-    public Flux<String> stream(@RequestParam(value = "message", defaultValue = "你好，请问你的知识库文档主要是关于什么内容的?") String message,
-                               HttpServletResponse response) {
-        response.setCharacterEncoding("UTF-8");
-        // 构建选项和提示词
-        DashScopeAgentOptions options = DashScopeAgentOptions.builder().withAppId(appId).build();
-        Prompt prompt = new Prompt(message, options);
-
-        // 调用 agent 的流式接口，并对响应进行解析和日志记录
-        return agent.stream(prompt).mapNotNull(responseObj  -> {
-            if (responseObj  == null) {
-                log.error("聊天响应为空");
-                return "聊天响应为空";
-            } else {
-                responseObj .getResult();
+    public ResponseEntity<ResponseBodyEmitter> stream(@RequestParam(value = "message", defaultValue = "你好，请问你的知识库文档主要是关于什么内容的?") String message,
+                                                      @RequestParam(value = "sessionId", required = false) Long sessionId) {
+        return sseStreams.stream(outputs(message, sessionId), SseStreams.FrameStyle.TEXT, (writer, output) -> {
+            String content = output.text();
+            if (content != null && !content.isEmpty()) {
+                writer.text(content);
             }
+        });
+    }
 
-            // 提取助手回复的主要内容
-            AssistantMessage appOutput = responseObj .getResult().getOutput();
-            String content = appOutput.getText();
-
-            // 获取引用文档及思考过程信息（可用于调试或展示）
-            DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput output = (DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput) appOutput.getMetadata().get("output");
-            List<DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput.DashScopeAgentResponseOutputDocReference> docReferences = output.docReferences();
-            List<DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput.DashScopeAgentResponseOutputThoughts> thoughts = output.thoughts();
+    /**
+     * 结构化流式聊天（v2）：以带事件名的 SSE 帧返回，前端需按事件名 addEventListener
+     * 事件：content（回答片段）、reference（引用文档）、thought（思考过程）、end、error，
+     * data 均为 {"type":"类型大写","content":...}
+     *
+     * @param message   用户输入的消息
+     * @param sessionId 聊天会话ID（可选），不传时同一用户共用一个上游会话
+     * @return SSE 响应体，按到达顺序写出各类事件帧
+     */
+    @GetMapping(value = "/bailian/agent/v2/stream", produces = "text/event-stream;charset=UTF-8")
+    public ResponseEntity<ResponseBodyEmitter> streamV2(@RequestParam(value = "message", defaultValue = "你好，请问你的知识库文档主要是关于什么内容的?") String message,
+                                                        @RequestParam(value = "sessionId", required = false) Long sessionId) {
+        // 引用文档与思考过程在多个片段中可能重复出现，每个只下发一次
+        Set<Object> emitted = new HashSet<>();
+        return sseStreams.stream(outputs(message, sessionId), SseStreams.FrameStyle.NAMED, (writer, output) -> {
+            String content = output.text();
+            if (content != null && !content.isEmpty()) {
+                writer.content(null, content);
+            }
+            if (output.docReferences() != null) {
+                for (DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput.DashScopeAgentResponseOutputDocReference docReference : output.docReferences()) {
+                    if (emitted.add(docReference)) {
+                        writer.reference(docReference);
+                    }
+                }
+            }
+            if (output.thoughts() != null) {
+                for (DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput.DashScopeAgentResponseOutputThoughts thought : output.thoughts()) {
+                    if (emitted.add(thought)) {
+                        writer.thought(thought);
+                    }
+                }
+            }
+        });
+    }
 
-            // 打印生成的内容到日志
-            log.info("内容:\n{}\n\n", content);
+    /**
+     * 调用智能体的流式接口，返回上游的详细输出（正文、引用文档、思考过程）
+     */
+    private Flux<DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput> outputs(String message, Long sessionId) {
+        // 构建选项和提示词（选项按用户缓存，携带该用户的上游会话ID）
+        String userKey = LlmBulkhead.currentUserKey();
+        Long userId = TokenUsageRecorder.currentUserId();
+        String sessionKey = BailianSessionRegistry.key("bailian.stream", userKey, sessionId);
+        DashScopeAgentOptions options = sessionRegistry.options(sessionKey, appId,
+                builder -> builder.withIncrementalOutput(true).withHasThoughts(true));
+        Prompt prompt = new Prompt(message, options);
 
-            // 输出助手回复的主要内容
-            return content;
-        });
+        // 调用 agent 的流式接口（同一会话重复提交的相同问题共享同一上游流）
+        String flightKey = (sessionKey == null ? "" : sessionKey + ":") + message;
+        return requestCoalescer.stream("bailian.stream", flightKey,
+                () -> llmBulkhead.stream(userKey, () -> tokenUsageRecorder.recordOnFinish(userId, agent.stream(prompt))).mapNotNull(responseObj -> {
+                    if (responseObj == null || responseObj.getResult() == null) {
+                        log.error("聊天响应为空");
+                        return null;
+                    }
+                    // 提取助手回复及元数据中的详细输出结构（包括文档引用和推理步骤）
+                    AssistantMessage appOutput = responseObj.getResult().getOutput();
+                    DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput output = (DashScopeAgentApi.DashScopeAgentResponse.DashScopeAgentResponseOutput) appOutput.getMetadata().get("output");
+                    if (output != null) {
+                        // 记录上游返回的会话ID，下一轮在同一上游会话中继续
+                        sessionRegistry.update(sessionKey, output.sessionId());
+                    }
+                    return output;
+                }));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package top.xym.campusassistantapi.module.study.session;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 百炼智能体上游会话配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.bailian.session")
+public class BailianSessionProperties {
+    /**
+     * 同时保留的上游会话数上限，超出后淘汰最久未使用的会话
+     */
+    private int maxSessions = 10000;
+    /**
+     * 会话空闲多久后丢弃（下次提问开启新的上游会话）
+     */
+    private Duration idleTtl = Duration.ofMinutes(30);
+    /**
+     * 单个上游会话的最大轮数，超过后开启新会话，避免上游上下文无限增长拖慢每次调用
+     */
+    private int maxTurns = 20;
+}
@@ -0,0 +1,159 @@
+package top.xym.campusassistantapi.module.study.session;
+
+import com.alibaba.cloud.ai.dashscope.agent.DashScopeAgentOptions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * 百炼智能体上游会话登记表
+ * - 每个用户（可细分到聊天会话）对应一个上游 session_id，互不共享上下文
+ * - 选项对象按会话缓存，只有上游 session_id 变化时才重建
+ * - 数量有上限（LRU 淘汰），空闲超时或轮数超限后开启新的上游会话
+ * 未登录请求不登记，每次都是无状态调用
+ */
+@Slf4j
+@Component
+public class BailianSessionRegistry {
+
+    private final BailianSessionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * accessOrder=true 的 LinkedHashMap 即 LRU，所有访问在 synchronized 中进行
+     */
+    private final LinkedHashMap<String, Entry> sessions = new LinkedHashMap<>(256, 0.75f, true);
+
+    public BailianSessionRegistry(BailianSessionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("bailian.sessions.active", this, BailianSessionRegistry::size).register(meterRegistry);
+    }
+
+    /**
+     * 会话登记键
+     *
+     * @param scope         调用场景（同步/流式各自维护上游会话）
+     * @param userKey       用户隔离键，为 null 表示未登录
+     * @param chatSessionId 聊天会话ID，可为空（按用户共用一个上游会话）
+     * @return 登记键，未登录返回 null
+     */
+    public static String key(String scope, String userKey, Long chatSessionId) {
+        if (userKey == null) {
+            return null;
+        }
+        return scope + ":" + userKey + ":" + (chatSessionId == null ? "default" : chatSessionId);
+    }
+
+    /**
+     * 获取本次调用使用的选项（携带该会话当前的上游 session_id）
+     *
+     * @param key       登记键，为 null 时返回无状态选项
+     * @param appId     百炼应用ID
+     * @param customize 选项定制（如开启增量输出），仅在重建选项时执行
+     */
+    public DashScopeAgentOptions options(String key, String appId,
+                                         UnaryOperator<DashScopeAgentOptions.Builder> customize) {
+        if (key == null) {
+            return customize.apply(DashScopeAgentOptions.builder().withAppId(appId)).build();
+        }
+        long now = System.currentTimeMillis();
+        synchronized (sessions) {
+            Entry entry = sessions.get(key);
+            if (entry != null && (now - entry.lastAccess > properties.getIdleTtl().toMillis()
+                    || entry.turns >= properties.getMaxTurns())) {
+                meterRegistry.counter("bailian.sessions.rotated",
+                        "reason", entry.turns >= properties.getMaxTurns() ? "max_turns" : "idle").increment();
+                sessions.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(customize);
+                sessions.put(key, entry);
+                evictOverflow();
+            }
+            entry.lastAccess = now;
+            entry.turns++;
+            if (entry.options == null) {
+                DashScopeAgentOptions.Builder builder = DashScopeAgentOptions.builder().withAppId(appId);
+                if (entry.upstreamSessionId != null) {
+                    builder.withSessionId(entry.upstreamSessionId);
+                }
+                entry.options = entry.customize.apply(builder).build();
+            }
+            return entry.options;
+        }
+    }
+
+    /**
+     * 记录上游返回的 session_id，后续调用在同一上游会话中继续
+     */
+    public void update(String key, String upstreamSessionId) {
+        if (key == null || upstreamSessionId == null || upstreamSessionId.isBlank()) {
+            return;
+        }
+        synchronized (sessions) {
+            Entry entry = sessions.get(key);
+            if (entry != null && !upstreamSessionId.equals(entry.upstreamSessionId)) {
+                entry.upstreamSessionId = upstreamSessionId;
+                entry.options = null;
+            }
+        }
+    }
+
+    /**
+     * 定时清理空闲会话
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdle() {
+        long deadline = System.currentTimeMillis() - properties.getIdleTtl().toMillis();
+        int removed = 0;
+        synchronized (sessions) {
+            Iterator<Entry> iterator = sessions.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().lastAccess < deadline) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            meterRegistry.counter("bailian.sessions.evicted", "reason", "idle").increment(removed);
+            log.debug("清理空闲百炼会话 {} 个", removed);
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> iterator = sessions.entrySet().iterator();
+        while (sessions.size() > properties.getMaxSessions() && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            meterRegistry.counter("bailian.sessions.evicted", "reason", "capacity").increment();
+        }
+    }
+
+    private int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    private static final class Entry {
+        private final UnaryOperator<DashScopeAgentOptions.Builder> customize;
+        private String upstreamSessionId;
+        private DashScopeAgentOptions options;
+        private long lastAccess;
+        private int turns;
+
+        private Entry(UnaryOperator<DashScopeAgentOptions.Builder> customize) {
+            this.customize = customize;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package top.xym.campusassistantapi.module.usage.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import top.xym.campusassistantapi.module.usage.model.dto.SessionUsageResponse;
+import top.xym.campusassistantapi.module.usage.model.dto.UserUsageResponse;
+import top.xym.campusassistantapi.module.usage.service.TokenUsageService;
+import top.xym.starter.common.result.Result;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static top.xym.campusassistantapi.common.utils.SecurityUtils.getCurrentUserId;
+
+@RestController
+@RequestMapping("/api/v1/usage")
+@Tag(name = "用量统计", description = "大模型Token用量查询接口")
+@RequiredArgsConstructor
+public class TokenUsageController {
+
+    private final TokenUsageService tokenUsageService;
+
+    @GetMapping("/me")
+    @Operation(summary = "我的用量", description = "按模型汇总当前用户在日期范围内的Token用量（默认最近7天）")
+    public Result<List<UserUsageResponse>> getMyUsage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Schema(description = "开始日期") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Schema(description = "结束日期") LocalDate to
+    ) {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(6) : from;
+        return Result.success("查询成功", tokenUsageService.getUserUsage(getCurrentUserId(), start, end));
+    }
+
+    @GetMapping("/top-users")
+    @Operation(summary = "用量最高的用户", description = "仅管理员可用")
+    public Result<List<UserUsageResponse>> getTopUsers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Schema(description = "开始日期") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Schema(description = "结束日期") LocalDate to,
+            @RequestParam(defaultValue = "20") @Schema(description = "返回条数") int limit
+    ) {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(6) : from;
+        return Result.success("查询成功", tokenUsageService.getTopUsers(getCurrentUserId(), start, end, limit));
+    }
+
+    @GetMapping("/top-sessions")
+    @Operation(summary = "消耗最高的会话", description = "仅管理员可用")
+    public Result<List<SessionUsageResponse>> getTopSessions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Schema(description = "开始日期") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Schema(description = "结束日期") LocalDate to,
+            @RequestParam(defaultValue = "20") @Schema(description = "返回条数") int limit
+    ) {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(6) : from;
+        return Result.success("查询成功", tokenUsageService.getTopSessions(getCurrentUserId(), start, end, limit));
+    }
+}
@@ -0,0 +1,92 @@
+package top.xym.campusassistantapi.module.usage.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import top.xym.campusassistantapi.module.usage.model.dto.SessionUsageResponse;
+import top.xym.campusassistantapi.module.usage.model.dto.UserUsageResponse;
+import top.xym.campusassistantapi.module.usage.model.entity.LlmTokenUsage;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface LlmTokenUsageMapper extends BaseMapper<LlmTokenUsage> {
+
+    /**
+     * 批量累加用量（一条 SQL，已存在的 日期/用户/模型 行直接累加）
+     */
+    @Insert("""
+            <script>
+            INSERT INTO llm_token_usage (usage_date, user_id, model_name, prompt_tokens, completion_tokens, request_count, update_time)
+            VALUES
+            <foreach collection="list" item="item" separator=",">
+                (#{item.usageDate}, #{item.userId}, #{item.modelName}, #{item.promptTokens}, #{item.completionTokens}, #{item.requestCount}, NOW())
+            </foreach>
+            ON DUPLICATE KEY UPDATE
+                prompt_tokens = prompt_tokens + VALUES(prompt_tokens),
+                completion_tokens = completion_tokens + VALUES(completion_tokens),
+                request_count = request_count + VALUES(request_count),
+                update_time = NOW()
+            </script>
+            """)
+    int upsertBatch(@Param("list") List<LlmTokenUsage> usages);
+
+    /**
+     * 指定用户按模型汇总
+     */
+    @Select("""
+            SELECT user_id, model_name,
+                   SUM(prompt_tokens) AS prompt_tokens,
+                   SUM(completion_tokens) AS completion_tokens,
+                   SUM(prompt_tokens + completion_tokens) AS total_tokens,
+                   SUM(request_count) AS request_count
+            FROM llm_token_usage
+            WHERE user_id = #{userId} AND usage_date BETWEEN #{from} AND #{to}
+            GROUP BY user_id, model_name
+            ORDER BY total_tokens DESC
+            """)
+    List<UserUsageResponse> selectUserUsage(@Param("userId") Long userId,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to);
+
+    /**
+     * 用量最高的用户
+     */
+    @Select("""
+            SELECT user_id,
+                   SUM(prompt_tokens) AS prompt_tokens,
+                   SUM(completion_tokens) AS completion_tokens,
+                   SUM(prompt_tokens + completion_tokens) AS total_tokens,
+                   SUM(request_count) AS request_count
+            FROM llm_token_usage
+            WHERE usage_date BETWEEN #{from} AND #{to}
+            GROUP BY user_id
+            ORDER BY total_tokens DESC
+            LIMIT #{limit}
+            """)
+    List<UserUsageResponse> selectTopUsers(@Param("from") LocalDate from,
+                                           @Param("to") LocalDate to,
+                                           @Param("limit") int limit);
+
+    /**
+     * 消耗最高的会话（按助手消息的 tokens 汇总）
+     */
+    @Select("""
+            SELECT session_id, MAX(user_id) AS user_id,
+                   SUM(tokens) AS total_tokens,
+                   COUNT(*) AS message_count
+            FROM chat_message
+            WHERE role = 'assistant' AND deleted = 0 AND tokens IS NOT NULL
+              AND create_time >= #{from} AND create_time < #{to}
+            GROUP BY session_id
+            ORDER BY total_tokens DESC
+            LIMIT #{limit}
+            """)
+    List<SessionUsageResponse> selectTopSessions(@Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to,
+                                                 @Param("limit") int limit);
+}
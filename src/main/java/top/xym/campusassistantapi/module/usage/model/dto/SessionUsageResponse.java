@@ -0,0 +1,24 @@
+package top.xym.campusassistantapi.module.usage.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 会话 Token 消耗汇总
+ */
+@Data
+@Schema(description = "会话Token消耗汇总")
+public class SessionUsageResponse {
+
+    @Schema(description = "会话ID", example = "2001")
+    private Long sessionId;
+
+    @Schema(description = "会话所属用户ID", example = "3001")
+    private Long userId;
+
+    @Schema(description = "总Token数", example = "8600")
+    private Long totalTokens;
+
+    @Schema(description = "助手回答条数", example = "12")
+    private Long messageCount;
+}
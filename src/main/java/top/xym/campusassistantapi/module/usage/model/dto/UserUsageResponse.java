@@ -0,0 +1,30 @@
+package top.xym.campusassistantapi.module.usage.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 用户 Token 用量汇总
+ */
+@Data
+@Schema(description = "用户Token用量汇总")
+public class UserUsageResponse {
+
+    @Schema(description = "用户ID", example = "3001")
+    private Long userId;
+
+    @Schema(description = "模型名称（按模型汇总时有值）", example = "qwen-plus")
+    private String modelName;
+
+    @Schema(description = "输入Token数", example = "12000")
+    private Long promptTokens;
+
+    @Schema(description = "输出Token数", example = "36000")
+    private Long completionTokens;
+
+    @Schema(description = "总Token数", example = "48000")
+    private Long totalTokens;
+
+    @Schema(description = "调用次数", example = "120")
+    private Long requestCount;
+}
@@ -0,0 +1,36 @@
+package top.xym.campusassistantapi.module.usage.model.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("llm_token_usage")
+public class LlmTokenUsage {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    @TableField("usage_date")
+    private LocalDate usageDate;
+
+    @TableField("user_id")
+    private Long userId;
+
+    @TableField("model_name")
+    private String modelName;
+
+    @TableField("prompt_tokens")
+    private Long promptTokens;
+
+    @TableField("completion_tokens")
+    private Long completionTokens;
+
+    @TableField("request_count")
+    private Long requestCount;
+
+    @TableField("update_time")
+    private LocalDateTime updateTime;
+}
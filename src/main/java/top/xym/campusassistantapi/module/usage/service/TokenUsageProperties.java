@@ -0,0 +1,33 @@
+package top.xym.campusassistantapi.module.usage.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Token 用量统计配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "campus.ai.usage")
+public class TokenUsageProperties {
+    /**
+     * 每批写入的最大行数
+     */
+    private int flushBatchSize = 200;
+    /**
+     * 查询的最大时间跨度（天）
+     */
+    private int maxQueryDays = 93;
+    /**
+     * 排行榜最多返回条数
+     */
+    private int maxTopN = 100;
+    /**
+     * 允许查看全站排行的用户ID
+     */
+    private Set<Long> adminUserIds = new HashSet<>();
+}
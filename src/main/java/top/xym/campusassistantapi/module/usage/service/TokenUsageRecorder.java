@@ -0,0 +1,216 @@
+package top.xym.campusassistantapi.module.usage.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import top.xym.campusassistantapi.common.utils.SecurityUtils;
+import top.xym.campusassistantapi.module.message.history.TokenEstimator;
+import top.xym.campusassistantapi.module.usage.mapper.LlmTokenUsageMapper;
+import top.xym.campusassistantapi.module.usage.model.entity.LlmTokenUsage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token 用量内存聚合
+ * - 按 日期/用户/模型 聚合，计数使用分段计数器（LongAdder），高并发下记录无锁竞争
+ * - 各调用入口（会话问答、问答服务、百炼智能体、校园智能体）在真正调用上游处记录，请求合并共享的调用只记一次
+ * - 定时批量累加写入数据库（INSERT ... ON DUPLICATE KEY UPDATE），写入失败的增量回补到内存下次重试
+ */
+@Slf4j
+@Component
+public class TokenUsageRecorder {
+
+    /**
+     * 匿名或后台调用记到 0 号用户
+     */
+    private static final long ANONYMOUS_USER = 0L;
+
+    private final LlmTokenUsageMapper usageMapper;
+    private final TokenUsageProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<UsageKey, UsageCounter> counters = new ConcurrentHashMap<>();
+
+    public TokenUsageRecorder(LlmTokenUsageMapper usageMapper,
+                              TokenUsageProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.usageMapper = usageMapper;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("llm.tokens.pending.keys", counters, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * 记录一次调用的用量
+     *
+     * @param userId           用户ID（可为 null）
+     * @param modelName        模型名称
+     * @param promptTokens     输入 Token 数
+     * @param completionTokens 输出 Token 数
+     */
+    public void record(Long userId, String modelName, long promptTokens, long completionTokens) {
+        String model = modelName == null || modelName.isBlank() ? "unknown" : modelName;
+        UsageKey key = new UsageKey(LocalDate.now(), userId == null ? ANONYMOUS_USER : userId, model);
+        counters.computeIfAbsent(key, k -> new UsageCounter()).add(promptTokens, completionTokens, 1);
+        meterRegistry.counter("llm.tokens", "model", model, "type", "prompt").increment(promptTokens);
+        meterRegistry.counter("llm.tokens", "model", model, "type", "completion").increment(completionTokens);
+    }
+
+    /**
+     * 记录一次非流式调用的用量，模型未返回用量时按回答字符数估算输出 Token（输入记 0）
+     *
+     * @param userId   用户ID（可为 null）
+     * @param response 模型响应（可为 null，此时不记录）
+     */
+    public void record(Long userId, ChatResponse response) {
+        if (response == null) {
+            return;
+        }
+        StreamUsage usage = new StreamUsage();
+        usage.capture(response);
+        usage.recordTo(this, userId);
+    }
+
+    /**
+     * 流式调用结束（完成、出错或被取消）时记录一次用量
+     * 取片段中最后一次返回的用量与模型名；模型未返回用量时按已输出片段估算输出 Token（输入记 0）
+     * 须包在真正调用上游的位置（请求合并的领头方），共享同一上游流的请求只记一次
+     *
+     * @param userId 用户ID（可为 null）
+     */
+    public Flux<ChatResponse> recordOnFinish(Long userId, Flux<ChatResponse> stream) {
+        return Flux.defer(() -> {
+            StreamUsage usage = new StreamUsage();
+            return stream.doOnNext(usage::capture)
+                    .doFinally(signal -> usage.recordTo(this, userId));
+        });
+    }
+
+    /**
+     * 当前认证用户ID，匿名请求返回 null
+     */
+    public static Long currentUserId() {
+        Authentication authentication = SecurityUtils.getCurrentAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof Long userId ? userId : null;
+    }
+
+    /**
+     * 定时把增量批量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${campus.ai.usage.flush-interval-ms:10000}")
+    public void flush() {
+        LocalDate today = LocalDate.now();
+        List<LlmTokenUsage> batch = new ArrayList<>();
+        Iterator<Map.Entry<UsageKey, UsageCounter>> iterator = counters.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UsageKey, UsageCounter> entry = iterator.next();
+            UsageKey key = entry.getKey();
+            UsageCounter counter = entry.getValue();
+            if (key.date().isBefore(today)) {
+                // 过去日期的行不会再有新增量：移出后再取值，之后的记录会落到新的计数器
+                iterator.remove();
+            }
+            long requests = counter.requests.sumThenReset();
+            long prompt = counter.prompt.sumThenReset();
+            long completion = counter.completion.sumThenReset();
+            if (requests == 0 && prompt == 0 && completion == 0) {
+                continue;
+            }
+            LlmTokenUsage usage = new LlmTokenUsage();
+            usage.setUsageDate(key.date());
+            usage.setUserId(key.userId());
+            usage.setModelName(key.model());
+            usage.setPromptTokens(prompt);
+            usage.setCompletionTokens(completion);
+            usage.setRequestCount(requests);
+            batch.add(usage);
+            if (batch.size() >= properties.getFlushBatchSize()) {
+                write(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(List<LlmTokenUsage> batch) {
+        try {
+            usageMapper.upsertBatch(batch);
+        } catch (Exception e) {
+            log.error("Token 用量写入失败，{}行增量回补到内存", batch.size(), e);
+            for (LlmTokenUsage usage : batch) {
+                UsageKey key = new UsageKey(usage.getUsageDate(), usage.getUserId(), usage.getModelName());
+                counters.computeIfAbsent(key, k -> new UsageCounter())
+                        .add(usage.getPromptTokens(), usage.getCompletionTokens(), usage.getRequestCount());
+            }
+        }
+    }
+
+    /**
+     * 单次调用的用量累积（片段按顺序到达，无需同步）
+     */
+    private static final class StreamUsage {
+        private Usage reported;
+        private String model;
+        private long estimatedCompletion;
+
+        void capture(ChatResponse response) {
+            if (response.getMetadata() != null) {
+                Usage usage = response.getMetadata().getUsage();
+                if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+                    reported = usage;
+                }
+                String responseModel = response.getMetadata().getModel();
+                if (responseModel != null && !responseModel.isBlank()) {
+                    model = responseModel;
+                }
+            }
+            if (response.getResult() != null && response.getResult().getOutput() != null) {
+                estimatedCompletion += TokenEstimator.estimate(response.getResult().getOutput().getText());
+            }
+        }
+
+        void recordTo(TokenUsageRecorder recorder, Long userId) {
+            if (reported != null) {
+                recorder.record(userId, model,
+                        reported.getPromptTokens() == null ? 0 : reported.getPromptTokens(),
+                        reported.getCompletionTokens() == null ? 0 : reported.getCompletionTokens());
+            } else {
+                recorder.record(userId, model, 0, estimatedCompletion);
+            }
+        }
+    }
+
+    private record UsageKey(LocalDate date, long userId, String model) {
+    }
+
+    private static final class UsageCounter {
+        private final LongAdder prompt = new LongAdder();
+        private final LongAdder completion = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+
+        void add(long promptTokens, long completionTokens, long requestCount) {
+            prompt.add(promptTokens);
+            completion.add(completionTokens);
+            requests.add(requestCount);
+        }
+    }
+}
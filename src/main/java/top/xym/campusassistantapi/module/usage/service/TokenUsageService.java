@@ -0,0 +1,69 @@
+package top.xym.campusassistantapi.module.usage.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import top.xym.campusassistantapi.common.exception.ServerException;
+import top.xym.campusassistantapi.common.result.ResultCode;
+import top.xym.campusassistantapi.module.usage.mapper.LlmTokenUsageMapper;
+import top.xym.campusassistantapi.module.usage.model.dto.SessionUsageResponse;
+import top.xym.campusassistantapi.module.usage.model.dto.UserUsageResponse;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Token 用量查询
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenUsageService {
+
+    private final LlmTokenUsageMapper usageMapper;
+    private final TokenUsageProperties properties;
+
+    /**
+     * 当前用户按模型汇总的用量
+     */
+    public List<UserUsageResponse> getUserUsage(Long userId, LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        return usageMapper.selectUserUsage(userId, from, to);
+    }
+
+    /**
+     * 用量最高的用户（仅管理员）
+     */
+    public List<UserUsageResponse> getTopUsers(Long operatorId, LocalDate from, LocalDate to, int limit) {
+        checkAdmin(operatorId);
+        validateRange(from, to);
+        return usageMapper.selectTopUsers(from, to, clampLimit(limit));
+    }
+
+    /**
+     * 消耗最高的会话（仅管理员）
+     */
+    public List<SessionUsageResponse> getTopSessions(Long operatorId, LocalDate from, LocalDate to, int limit) {
+        checkAdmin(operatorId);
+        validateRange(from, to);
+        return usageMapper.selectTopSessions(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), clampLimit(limit));
+    }
+
+    private void checkAdmin(Long operatorId) {
+        if (operatorId == null || !properties.getAdminUserIds().contains(operatorId)) {
+            throw new ServerException(ResultCode.FORBIDDEN);
+        }
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ServerException(ResultCode.PARAM_ERROR.getCode(), "开始日期不能晚于结束日期");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > properties.getMaxQueryDays()) {
+            throw new ServerException(ResultCode.PARAM_ERROR.getCode(), "查询跨度不能超过" + properties.getMaxQueryDays() + "天");
+        }
+    }
+
+    private int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, properties.getMaxTopN()));
+    }
+}
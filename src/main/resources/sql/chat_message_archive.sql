@@ -0,0 +1,23 @@
+-- 冷会话消息归档索引：每行指向段文件中的一个压缩块
+CREATE TABLE IF NOT EXISTS `chat_message_archive`
+(
+    `id`               BIGINT   NOT NULL AUTO_INCREMENT COMMENT '主键',
+    `session_id`       BIGINT   NOT NULL COMMENT '会话ID',
+    `segment_no`       INT      NOT NULL COMMENT '段文件编号',
+    `segment_offset`   BIGINT   NOT NULL COMMENT '块在段文件中的偏移',
+    `block_length`     INT      NOT NULL COMMENT '块长度（压缩后，含块头）',
+    `message_count`    INT      NOT NULL COMMENT '块内消息数',
+    `first_message_id` BIGINT   NOT NULL COMMENT '块内第一条消息ID',
+    `last_message_id`  BIGINT   NOT NULL COMMENT '块内最后一条消息ID',
+    `raw_bytes`        INT      NOT NULL COMMENT '压缩前字节数',
+    `create_time`      DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+    PRIMARY KEY (`id`),
+    KEY `idx_session` (`session_id`, `id`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT ='聊天消息归档索引';
+
+-- 冷会话扫描按会话分组取最新消息时间与处理中消息数：在游标分页索引（cursor_pagination_index.sql）末尾追加 status，
+-- 扫描只读这一个索引即可完成，chat_message 上不再另建一个前缀相同的索引
+ALTER TABLE `chat_message`
+    DROP INDEX `idx_chat_message_session_deleted_time_id`,
+    ADD INDEX `idx_chat_message_session_deleted_time_id` (`session_id`, `deleted`, `create_time`, `id`, `status`);
@@ -0,0 +1,8 @@
+-- 游标分页：按 (create_time, id) 定位时走索引范围扫描，不再依赖 OFFSET
+-- InnoDB 二级索引末尾自带主键 id，chat_session 的索引同样可用于 (create_time, id) 排序
+
+-- 会话消息：session_id + deleted 等值过滤后按 create_time, id 有序
+CREATE INDEX `idx_chat_message_session_deleted_time_id` ON `chat_message` (`session_id`, `deleted`, `create_time`, `id`);
+
+-- 用户会话列表：user_id + deleted 等值过滤后按 create_time 有序
+CREATE INDEX `idx_chat_session_user_deleted_time` ON `chat_session` (`user_id`, `deleted`, `create_time`);
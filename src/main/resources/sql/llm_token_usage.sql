@@ -0,0 +1,19 @@
+-- 大模型 Token 用量按 用户/模型/天 聚合
+CREATE TABLE IF NOT EXISTS `llm_token_usage`
+(
+    `id`                BIGINT      NOT NULL AUTO_INCREMENT COMMENT '主键',
+    `usage_date`        DATE        NOT NULL COMMENT '统计日期',
+    `user_id`           BIGINT      NOT NULL COMMENT '用户ID（0 表示匿名/后台调用）',
+    `model_name`        VARCHAR(64) NOT NULL COMMENT '模型名称',
+    `prompt_tokens`     BIGINT      NOT NULL DEFAULT 0 COMMENT '输入 Token 数',
+    `completion_tokens` BIGINT      NOT NULL DEFAULT 0 COMMENT '输出 Token 数',
+    `request_count`     BIGINT      NOT NULL DEFAULT 0 COMMENT '调用次数',
+    `update_time`       DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_date_user_model` (`usage_date`, `user_id`, `model_name`),
+    KEY `idx_user_date` (`user_id`, `usage_date`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT ='大模型 Token 用量日统计';
+
+-- 会话成本查询（按会话汇总助手消息的 tokens）
+CREATE INDEX `idx_chat_message_create_time_session` ON `chat_message` (`create_time`, `session_id`);
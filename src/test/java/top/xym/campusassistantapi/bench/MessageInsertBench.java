@@ -0,0 +1,131 @@
+package top.xym.campusassistantapi.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * 发送消息落库基准：对比用户消息 + 助手占位消息的两种写入方式
+ * - before：两次单行 INSERT，各自自动提交（两次往返、两次 redo 刷盘）
+ * - after：一条多行 INSERT 回填两个自增ID（一次往返、一次提交）
+ * 需要本地 MySQL 已建好 chat_message 表，连接参数通过系统属性传入：
+ * -Dbench.url=jdbc:mysql://localhost:3306/campus_assistant -Dbench.user=root -Dbench.password=...
+ * 写入的数据 session_id 为负数，结束后自动清理
+ */
+public class MessageInsertBench {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 2_000;
+    private static final long BENCH_SESSION_ID = -20250901L;
+
+    private static final String SINGLE_SQL = "INSERT INTO chat_message (session_id, user_id, role, content, model_name, status, create_time, update_time, deleted) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String PAIR_SQL = SINGLE_SQL + ", (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("bench.url", "jdbc:mysql://localhost:3306/campus_assistant");
+        String user = System.getProperty("bench.user", "root");
+        String password = System.getProperty("bench.password", "");
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            connection.setAutoCommit(true);
+            try {
+                run(connection, WARMUP_ROUNDS, MessageInsertBench::twoInserts);
+                run(connection, WARMUP_ROUNDS, MessageInsertBench::pairInsert);
+
+                long[] before = run(connection, MEASURE_ROUNDS, MessageInsertBench::twoInserts);
+                long[] after = run(connection, MEASURE_ROUNDS, MessageInsertBench::pairInsert);
+                System.out.printf("轮次：%d%n", MEASURE_ROUNDS);
+                print("before（两次自动提交）", before);
+                print("after （一条多行插入）", after);
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("DELETE FROM chat_message WHERE session_id = " + BENCH_SESSION_ID);
+                }
+            }
+        }
+    }
+
+    private static void twoInserts(Connection connection) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        long userMessageId;
+        long assistantMessageId;
+        try (PreparedStatement statement = connection.prepareStatement(SINGLE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bind(statement, 1, "user", "图书馆周末几点开门？", 1, now);
+            statement.executeUpdate();
+            userMessageId = firstKey(statement);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(SINGLE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bind(statement, 1, "assistant", "", 0, now);
+            statement.executeUpdate();
+            assistantMessageId = firstKey(statement);
+        }
+        check(userMessageId, assistantMessageId);
+    }
+
+    private static void pairInsert(Connection connection) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        try (PreparedStatement statement = connection.prepareStatement(PAIR_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bind(statement, 1, "user", "图书馆周末几点开门？", 1, now);
+            bind(statement, 9, "assistant", "", 0, now.plusNanos(1_000));
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                keys.next();
+                long userMessageId = keys.getLong(1);
+                keys.next();
+                check(userMessageId, keys.getLong(1));
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, int offset, String role, String content, int status,
+                             LocalDateTime time) throws Exception {
+        statement.setLong(offset, BENCH_SESSION_ID);
+        statement.setLong(offset + 1, 1L);
+        statement.setString(offset + 2, role);
+        statement.setString(offset + 3, content);
+        statement.setString(offset + 4, "qwen-plus");
+        statement.setInt(offset + 5, status);
+        statement.setTimestamp(offset + 6, Timestamp.valueOf(time));
+        statement.setTimestamp(offset + 7, Timestamp.valueOf(time));
+    }
+
+    private static long firstKey(PreparedStatement statement) throws Exception {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            keys.next();
+            return keys.getLong(1);
+        }
+    }
+
+    private static void check(long userMessageId, long assistantMessageId) {
+        if (assistantMessageId <= userMessageId) {
+            throw new IllegalStateException("助手消息ID应大于用户消息ID：" + userMessageId + " / " + assistantMessageId);
+        }
+    }
+
+    private static long[] run(Connection connection, int rounds, Task task) throws Exception {
+        long[] nanos = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            task.run(connection);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static void print(String name, long[] sorted) {
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1_000.0;
+        System.out.printf("%s: 平均 %8.1f µs  p50 %8.1f µs  p99 %8.1f µs%n", name, mean,
+                sorted[sorted.length / 2] / 1_000.0, sorted[(int) (sorted.length * 0.99)] / 1_000.0);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run(Connection connection) throws Exception;
+    }
+}
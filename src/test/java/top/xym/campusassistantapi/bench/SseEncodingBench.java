@@ -0,0 +1,71 @@
+package top.xym.campusassistantapi.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import top.xym.campusassistantapi.infrastructure.sse.SseFrameWriter;
+import top.xym.campusassistantapi.module.chat.dto.QaStreamResponse;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SSE 编码基准：对比每个流式片段的内存分配与耗时
+ * - before：拼接前缀 -> 构造 QaStreamResponse -> Jackson 序列化为字符串 -> 拼接 data: 前缀 -> 编码为字节
+ * - after：{@link SseFrameWriter} 直接把片段转义编码进复用缓冲区
+ * 直接运行 main 方法即可（不依赖 Spring 容器）
+ */
+public class SseEncodingBench {
+
+    private static final int WARMUP_TOKENS = 200_000;
+    private static final int MEASURE_TOKENS = 1_000_000;
+    private static final String PREFIX = "[图片解析]";
+    private static final String[] TOKENS = {"同学", "你好，", "图书馆", "的开放", "时间是", "早上8点", "至晚上", "10点。", "\"注意\"", "Spring Boot "};
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        OutputStream sink = OutputStream.nullOutputStream();
+
+        before(objectMapper, sink, WARMUP_TOKENS);
+        after(objectMapper, sink, WARMUP_TOKENS);
+
+        Result before = measure(() -> before(objectMapper, sink, MEASURE_TOKENS));
+        Result after = measure(() -> after(objectMapper, sink, MEASURE_TOKENS));
+        System.out.printf("片段数：%d%n", MEASURE_TOKENS);
+        System.out.printf("before: %8.1f B/片段  %6.1f ns/片段%n", before.bytes / (double) MEASURE_TOKENS, before.nanos / (double) MEASURE_TOKENS);
+        System.out.printf("after : %8.1f B/片段  %6.1f ns/片段%n", after.bytes / (double) MEASURE_TOKENS, after.nanos / (double) MEASURE_TOKENS);
+    }
+
+    private static void before(ObjectMapper objectMapper, OutputStream sink, int tokens) throws Exception {
+        for (int i = 0; i < tokens; i++) {
+            QaStreamResponse response = QaStreamResponse.content(PREFIX + TOKENS[i % TOKENS.length]);
+            String frame = "data:" + objectMapper.writeValueAsString(response) + "\n\n";
+            sink.write(frame.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void after(ObjectMapper objectMapper, OutputStream sink, int tokens) throws Exception {
+        SseFrameWriter writer = new SseFrameWriter(sink, objectMapper);
+        for (int i = 0; i < tokens; i++) {
+            writer.content(PREFIX, TOKENS[i % TOKENS.length]);
+        }
+        writer.end();
+    }
+
+    private static Result measure(Task task) throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        task.run();
+        long nanos = System.nanoTime() - start;
+        return new Result(threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore, nanos);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private record Result(long bytes, long nanos) {
+    }
+}
@@ -0,0 +1,56 @@
+package top.xym.campusassistantapi.common.utils;
+
+import org.junit.jupiter.api.Test;
+import top.xym.campusassistantapi.common.exception.ServerException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void roundTrip() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2025, 9, 1, 8, 30, 15, 123_000_000), 9_007_199_254_740_993L);
+
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void roundTripWithWholeSecondsAndNanos() {
+        PageCursor seconds = new PageCursor(LocalDateTime.of(2025, 1, 1, 0, 0), 1L);
+        PageCursor nanos = new PageCursor(LocalDateTime.of(2025, 1, 1, 0, 0, 0, 1), 2L);
+
+        assertEquals(seconds, PageCursor.decode(seconds.encode()));
+        assertEquals(nanos, PageCursor.decode(nanos.encode()));
+    }
+
+    @Test
+    void encodedFormIsUrlSafe() {
+        String encoded = new PageCursor(LocalDateTime.of(2025, 12, 31, 23, 59, 59), 123L).encode();
+
+        assertFalse(encoded.matches(".*[+/=].*"));
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(" "));
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThrows(ServerException.class, () -> PageCursor.decode("not-a-cursor"));
+        assertThrows(ServerException.class, () -> PageCursor.decode("!!!"));
+    }
+
+    @Test
+    void directionDefaultsToNext() {
+        assertEquals(PageCursor.Direction.PREV, PageCursor.Direction.of("PREV"));
+        assertEquals(PageCursor.Direction.NEXT, PageCursor.Direction.of(null));
+        assertEquals(PageCursor.Direction.NEXT, PageCursor.Direction.of("other"));
+    }
+}
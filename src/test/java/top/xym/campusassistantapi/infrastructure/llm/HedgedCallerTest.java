@@ -0,0 +1,158 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgedCallerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HedgedCaller caller;
+
+    @AfterEach
+    void shutdown() {
+        if (caller != null) {
+            caller.shutdown();
+        }
+    }
+
+    @Test
+    void disabledCallsUpstreamOnce() {
+        LlmHedgingProperties properties = properties();
+        properties.setEnabled(false);
+        caller = new HedgedCaller(properties, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("ok", caller.call("qa", () -> {
+            calls.incrementAndGet();
+            return "ok";
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() {
+        caller = new HedgedCaller(properties(), meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("ok", caller.call("qa", () -> {
+            calls.incrementAndGet();
+            return "ok";
+        }));
+        assertEquals(1, calls.get());
+        assertEquals(0, count("hedged"));
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndHedgeWins() {
+        caller = new HedgedCaller(properties(), meterRegistry);
+        CountDownLatch releasePrimary = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = caller.call("qa", () -> {
+            if (calls.incrementAndGet() == 1) {
+                await(releasePrimary);
+                return "primary";
+            }
+            return "hedge";
+        });
+        releasePrimary.countDown();
+
+        assertEquals("hedge", result);
+        assertEquals(1, count("hedged"));
+        assertEquals(1, count("hedge_won"));
+    }
+
+    @Test
+    void bothFailingReportsPrimaryError() {
+        caller = new HedgedCaller(properties(), meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> caller.call("qa", () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(150);
+                throw new IllegalStateException("primary");
+            }
+            throw new IllegalStateException("hedge");
+        }));
+        assertEquals("primary", error.getMessage());
+    }
+
+    @Test
+    void exhaustedPoolSkipsHedgeInsteadOfRunningItOnCallerThread() throws Exception {
+        LlmHedgingProperties properties = properties();
+        properties.setMaxThreads(2);
+        // 第一次调用预算不足不对冲，第二次调用可以对冲
+        properties.setBudgetRatio(0.5);
+        caller = new HedgedCaller(properties, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch occupied = new CountDownLatch(1);
+
+        // 占用一个线程
+        CompletableFuture<String> other = CompletableFuture.supplyAsync(() -> caller.call("other", () -> {
+            occupied.countDown();
+            await(release);
+            return "other";
+        }));
+        assertTrue(occupied.await(5, TimeUnit.SECONDS));
+        // 等它过了对冲等待时间（预算不足，不对冲）
+        sleep(200);
+
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> primaryDone = CompletableFuture.supplyAsync(() -> caller.call("qa", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "primary";
+        }));
+        // 对冲被拒绝后调用方只等待首个请求；若在调用方线程同步执行对冲，这里会一直阻塞
+        sleep(200);
+        release.countDown();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals("primary", primaryDone.join()));
+        assertEquals("other", other.join());
+        assertEquals(1, calls.get());
+        assertEquals(1, meterRegistry.counter("llm.hedge.requests", "scope", "other", "result", "budget_exhausted").count());
+        assertEquals(1, count("pool_exhausted"));
+        assertEquals(0, count("hedged"));
+    }
+
+    private static LlmHedgingProperties properties() {
+        LlmHedgingProperties properties = new LlmHedgingProperties();
+        properties.setEnabled(true);
+        properties.setMinDelay(Duration.ofMillis(50));
+        properties.setMaxDelay(Duration.ofMillis(50));
+        properties.setBudgetRatio(1.0);
+        return properties;
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("llm.hedge.requests", "scope", "qa", "result", result).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmBulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void userLimitRejectsImmediately() {
+        LlmBulkhead bulkhead = new LlmBulkhead(properties(4, 1, 0), meterRegistry);
+
+        try (LlmBulkhead.Permit ignored = bulkhead.acquire("1")) {
+            LlmOverloadedException e = assertThrows(LlmOverloadedException.class, () -> bulkhead.acquire("1"));
+            assertTrue(e.getRetryAfterSeconds() >= 1);
+            // 其他用户不受影响
+            bulkhead.acquire("2").close();
+        }
+        assertEquals(1.0, rejections("user"));
+        // 释放后同一用户可再次获取
+        bulkhead.acquire("1").close();
+    }
+
+    @Test
+    void fullQueueRejectsWithoutWaiting() {
+        LlmBulkhead bulkhead = new LlmBulkhead(properties(1, 2, 0), meterRegistry);
+
+        try (LlmBulkhead.Permit ignored = bulkhead.acquire("1")) {
+            assertThrows(LlmOverloadedException.class, () -> bulkhead.acquire("2"));
+        }
+        assertEquals(1.0, rejections("queue_full"));
+        // 被拒绝时已释放用户计数
+        bulkhead.acquire("2").close();
+    }
+
+    @Test
+    void queuedCallerGetsReleasedPermit() throws Exception {
+        LlmBulkheadProperties properties = properties(1, 2, 1);
+        properties.setMaxWait(Duration.ofSeconds(5));
+        LlmBulkhead bulkhead = new LlmBulkhead(properties, meterRegistry);
+
+        LlmBulkhead.Permit first = bulkhead.acquire("1");
+        CompletableFuture<LlmBulkhead.Permit> second = CompletableFuture.supplyAsync(() -> bulkhead.acquire("2"));
+        // 等第二个调用进入排队
+        while (meterRegistry.get("llm.bulkhead.queue.depth").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+        first.close();
+
+        LlmBulkhead.Permit permit = second.get(3, TimeUnit.SECONDS);
+        assertNotNull(permit);
+        permit.close();
+        assertEquals(0.0, meterRegistry.get("llm.bulkhead.active").gauge().value());
+    }
+
+    @Test
+    void waitTimeoutRejects() {
+        LlmBulkheadProperties properties = properties(1, 2, 1);
+        properties.setMaxWait(Duration.ofMillis(50));
+        LlmBulkhead bulkhead = new LlmBulkhead(properties, meterRegistry);
+
+        try (LlmBulkhead.Permit ignored = bulkhead.acquire("1")) {
+            assertThrows(LlmOverloadedException.class, () -> bulkhead.acquire("2"));
+        }
+        assertEquals(1.0, rejections("timeout"));
+        assertEquals(0.0, meterRegistry.get("llm.bulkhead.queue.depth").gauge().value());
+    }
+
+    @Test
+    void streamAcquiresBeforeSubscribeAndReleasesOnCompletion() {
+        LlmBulkhead bulkhead = new LlmBulkhead(properties(4, 1, 0), meterRegistry);
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        Flux<String> stream = bulkhead.stream("1", upstream::asFlux);
+        // 尚未订阅时许可已被占用，第二个流在调用时即被拒绝
+        assertThrows(LlmOverloadedException.class, () -> bulkhead.stream("1", Flux::empty));
+
+        stream.subscribe();
+        upstream.tryEmitNext("a");
+        upstream.tryEmitComplete();
+        assertEquals(0.0, meterRegistry.get("llm.bulkhead.active").gauge().value());
+        bulkhead.acquire("1").close();
+    }
+
+    @Test
+    void streamReleasesOnCancel() {
+        LlmBulkhead bulkhead = new LlmBulkhead(properties(4, 1, 0), meterRegistry);
+
+        bulkhead.stream("1", Flux::never).subscribe().dispose();
+
+        assertEquals(0.0, meterRegistry.get("llm.bulkhead.active").gauge().value());
+        bulkhead.acquire("1").close();
+    }
+
+    @Test
+    void streamReleasesWhenUpstreamThrows() {
+        LlmBulkhead bulkhead = new LlmBulkhead(properties(4, 1, 0), meterRegistry);
+
+        assertThrows(IllegalStateException.class, () -> bulkhead.<String>stream("1", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        bulkhead.acquire("1").close();
+    }
+
+    @Test
+    void permitCloseIsIdempotent() {
+        LlmBulkhead bulkhead = new LlmBulkhead(properties(1, 1, 0), meterRegistry);
+
+        LlmBulkhead.Permit permit = bulkhead.acquire("1");
+        permit.close();
+        permit.close();
+
+        // 重复关闭不会多释放许可：仍只能同时持有一个
+        try (LlmBulkhead.Permit ignored = bulkhead.acquire("2")) {
+            assertThrows(LlmOverloadedException.class, () -> bulkhead.acquire("3"));
+        }
+    }
+
+    @Test
+    void disabledNeverRejects() {
+        LlmBulkheadProperties properties = properties(1, 1, 0);
+        properties.setEnabled(false);
+        LlmBulkhead bulkhead = new LlmBulkhead(properties, meterRegistry);
+
+        try (LlmBulkhead.Permit a = bulkhead.acquire("1"); LlmBulkhead.Permit b = bulkhead.acquire("1")) {
+            assertEquals("ok", bulkhead.call("1", () -> "ok"));
+        }
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("llm.bulkhead.rejections").tag("reason", reason).counter().count();
+    }
+
+    private static LlmBulkheadProperties properties(int maxConcurrent, int perUser, int queueDepth) {
+        LlmBulkheadProperties properties = new LlmBulkheadProperties();
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.setMaxConcurrentPerUser(perUser);
+        properties.setMaxQueueDepth(queueDepth);
+        return properties;
+    }
+}
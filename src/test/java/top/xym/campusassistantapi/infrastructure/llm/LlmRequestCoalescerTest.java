@@ -0,0 +1,153 @@
+package top.xym.campusassistantapi.infrastructure.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmRequestCoalescerTest {
+
+    private final LlmRequestCoalescer coalescer = new LlmRequestCoalescer(new SimpleMeterRegistry());
+
+    @Test
+    void concurrentCallsShareOneUpstreamCall() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> coalescer.call("qa", "k", () -> {
+            calls.incrementAndGet();
+            entered.countDown();
+            await(release);
+            return "answer";
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> coalescer.call("qa", "k", () -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        // 等 follower 挂到 leader 的 future 上
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("answer", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("answer", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void leaderErrorReleasesFollowers() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> coalescer.call("qa", "k", () -> {
+            entered.countDown();
+            await(release);
+            throw new StackOverflowError("boom");
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Throwable> follower = CompletableFuture.supplyAsync(() -> {
+            try {
+                coalescer.call("qa", "k", () -> "other");
+                return null;
+            } catch (Throwable e) {
+                return e;
+            }
+        });
+        Thread.sleep(100);
+        release.countDown();
+
+        assertTrue(follower.get(5, TimeUnit.SECONDS) instanceof StackOverflowError);
+        assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void streamSubscribersShareOneSubscriptionAndReplay() {
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        AtomicInteger sourceSubscriptions = new AtomicInteger();
+
+        Flux<String> first = coalescer.stream("qa", "k", () -> {
+            upstreamCalls.incrementAndGet();
+            return sink.asFlux().doOnSubscribe(s -> sourceSubscriptions.incrementAndGet());
+        });
+        List<String> firstSeen = new ArrayList<>();
+        first.subscribe(firstSeen::add);
+        sink.tryEmitNext("a");
+
+        Flux<String> second = coalescer.stream("qa", "k", () -> Flux.just("other"));
+        List<String> secondSeen = new ArrayList<>();
+        second.subscribe(secondSeen::add);
+        sink.tryEmitNext("b");
+        sink.tryEmitComplete();
+
+        assertEquals(List.of("a", "b"), firstSeen);
+        assertEquals(List.of("a", "b"), secondSeen);
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, sourceSubscriptions.get());
+        // 上游结束后再订阅回放缓存，不重新连接
+        assertEquals(List.of("a", "b"), first.collectList().block());
+        assertEquals(1, sourceSubscriptions.get());
+    }
+
+    @Test
+    void subscribingAfterEveryoneCancelledRejoinsInsteadOfReconnecting() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        List<AtomicInteger> subscriptionsPerSource = new ArrayList<>();
+
+        Flux<String> shared = coalescer.stream("qa", "k", () -> {
+            upstreamCalls.incrementAndGet();
+            AtomicInteger subscriptions = new AtomicInteger();
+            subscriptionsPerSource.add(subscriptions);
+            return Flux.<String>never().doOnSubscribe(s -> subscriptions.incrementAndGet());
+        });
+        Disposable only = shared.subscribe();
+        only.dispose();
+
+        // 已拿到 shared 的跟随者在全部取消后才订阅
+        Disposable late = shared.subscribe();
+        late.dispose();
+
+        assertEquals(2, upstreamCalls.get(), "重新获取许可的组装");
+        assertEquals(2, subscriptionsPerSource.size());
+        subscriptionsPerSource.forEach(count -> assertEquals(1, count.get()));
+    }
+
+    @Test
+    void rejoinSurfacesOverload() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Flux<String> shared = coalescer.stream("qa", "k", () -> {
+            if (upstreamCalls.incrementAndGet() > 1) {
+                throw new IllegalStateException("overloaded");
+            }
+            return Flux.never();
+        });
+        shared.subscribe().dispose();
+
+        IllegalStateException error = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(IllegalStateException.class, shared::blockFirst));
+        assertEquals("overloaded", error.getMessage());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
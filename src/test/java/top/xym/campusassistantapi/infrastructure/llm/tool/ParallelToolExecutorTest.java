@@ -0,0 +1,164 @@
+package top.xym.campusassistantapi.infrastructure.llm.tool;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.cloud.ai.graph.RunnableConfig;
+import com.alibaba.cloud.ai.graph.agent.tools.ToolContextConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelToolExecutorTest {
+
+    private final ToolExecutionProperties properties = new ToolExecutionProperties();
+    private final ParallelToolExecutor executor = new ParallelToolExecutor(properties, new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void toolsOfOneTurnRunConcurrently() {
+        // 两个工具互相等待对方开始，顺序执行会卡住
+        CountDownLatch started = new CountDownLatch(2);
+        FakeTool first = new FakeTool("first", args -> {
+            started.countDown();
+            await(started);
+            return "a";
+        });
+        FakeTool second = new FakeTool("second", args -> {
+            started.countDown();
+            await(started);
+            return "b";
+        });
+        List<ToolCallback> tools = executor.wrap(List.of(first, second));
+        ToolContext context = context("thread-1", toolCall("1", "first", "{}"), toolCall("2", "second", "{}"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals("a", tools.get(0).call("{}", context));
+            assertEquals("b", tools.get(1).call("{}", context));
+        });
+        assertEquals(1, first.calls.get());
+        assertEquals(1, second.calls.get());
+    }
+
+    @Test
+    void prefetchedToolReceivesToolContext() {
+        FakeTool first = new FakeTool("first", args -> "a");
+        FakeTool second = new FakeTool("second", args -> "b");
+        List<ToolCallback> tools = executor.wrap(List.of(first, second));
+        ToolContext context = context("thread-1", toolCall("1", "first", "{}"), toolCall("2", "second", "{}"));
+
+        tools.get(0).call("{}", context);
+        tools.get(1).call("{}", context);
+
+        assertSame(context, first.contexts.get("{}"));
+        assertSame(context, second.contexts.get("{}"));
+    }
+
+    @Test
+    void sameToolAndArgumentsAreNotSharedAcrossTurns() {
+        // 两个会话同时调用同名同参的工具，各自只能拿到本轮的结果
+        AtomicInteger sequence = new AtomicInteger();
+        FakeTool lookup = new FakeTool("lookup", args -> "r" + sequence.incrementAndGet());
+        FakeTool other = new FakeTool("other", args -> "o");
+        List<ToolCallback> tools = executor.wrap(List.of(lookup, other));
+        ToolContext turnA = context("thread-a", toolCall("a1", "other", "{}"), toolCall("a2", "lookup", "{\"q\":1}"));
+        ToolContext turnB = context("thread-b", toolCall("b1", "other", "{}"), toolCall("b2", "lookup", "{\"q\":1}"));
+
+        tools.get(1).call("{}", turnA);
+        tools.get(1).call("{}", turnB);
+        String resultB = tools.get(0).call("{\"q\":1}", turnB);
+        String resultA = tools.get(0).call("{\"q\":1}", turnA);
+
+        assertEquals(2, lookup.calls.get());
+        assertSame(turnA, lookup.contextsByResult.get(resultA));
+        assertSame(turnB, lookup.contextsByResult.get(resultB));
+    }
+
+    @Test
+    void withoutAgentContextCallsDirectly() {
+        FakeTool tool = new FakeTool("first", args -> "a");
+        ToolCallback wrapped = executor.wrap(List.of(tool)).get(0);
+
+        assertEquals("a", wrapped.call("{}"));
+        assertEquals(1, tool.calls.get());
+    }
+
+    private static AssistantMessage.ToolCall toolCall(String id, String name, String arguments) {
+        return new AssistantMessage.ToolCall(id, "function", name, arguments);
+    }
+
+    private static ToolContext context(String threadId, AssistantMessage.ToolCall... toolCalls) {
+        List<Message> messages = List.of(
+                new UserMessage("问题"),
+                AssistantMessage.builder().content("").toolCalls(List.of(toolCalls)).build());
+        OverAllState state = new OverAllState(Map.of("messages", messages));
+        RunnableConfig config = RunnableConfig.builder().threadId(threadId).build();
+        return new ToolContext(Map.of(
+                ToolContextConstants.AGENT_STATE_CONTEXT_KEY, state,
+                ToolContextConstants.AGENT_CONFIG_CONTEXT_KEY, config));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(3, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class FakeTool implements ToolCallback {
+
+        private final ToolDefinition definition;
+        private final Function<String, String> body;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Map<String, ToolContext> contexts = new ConcurrentHashMap<>();
+        private final Map<String, ToolContext> contextsByResult = new ConcurrentHashMap<>();
+
+        private FakeTool(String name, Function<String, String> body) {
+            this.definition = ToolDefinition.builder().name(name).description(name).inputSchema("{}").build();
+            this.body = body;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return definition;
+        }
+
+        @Override
+        public String call(String toolInput) {
+            calls.incrementAndGet();
+            return body.apply(toolInput);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            calls.incrementAndGet();
+            contexts.put(toolInput, toolContext);
+            String result = body.apply(toolInput);
+            contextsByResult.put(result, toolContext);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package top.xym.campusassistantapi.infrastructure.sse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SseFrameWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void contentIsJsonEscapedAndUtf8Encoded() throws IOException {
+        List<String> frames = new ArrayList<>();
+        SseFrameWriter writer = new SseFrameWriter(collect(frames, true), objectMapper, false);
+
+        writer.content("[图片解析]", "\"引号\"\\ 换行\n制表\t😀\u0001");
+
+        String json = frames.get(0).substring("data:".length(), frames.get(0).length() - 2);
+        Map<?, ?> parsed = objectMapper.readValue(json, Map.class);
+        assertEquals("CONTENT", parsed.get("type"));
+        assertEquals("[图片解析]\"引号\"\\ 换行\n制表\t😀\u0001", parsed.get("content"));
+    }
+
+    @Test
+    void objectFramesAreSerializedByJackson() throws IOException {
+        List<String> frames = new ArrayList<>();
+        SseFrameWriter writer = new SseFrameWriter(collect(frames, true), objectMapper, true);
+
+        writer.reference(Map.of("title", "校历"));
+        writer.end();
+
+        assertEquals("event: reference\ndata:{\"type\":\"REFERENCE\",\"content\":{\"title\":\"校历\"}}\n\n", frames.get(0));
+        assertEquals("event: end\ndata:{\"type\":\"END\",\"content\":\"\"}\n\n", frames.get(1));
+    }
+
+    @Test
+    void textFramesEncodeEachLine() throws IOException {
+        List<String> frames = new ArrayList<>();
+        SseFrameWriter writer = new SseFrameWriter(collect(frames, true), objectMapper, true);
+
+        writer.text("第一行\n\"raw\" 😀");
+
+        assertEquals("data:第一行\ndata:\"raw\" 😀\n\n", frames.get(0));
+    }
+
+    @Test
+    void bufferIsReusedOnlyWhenTheSinkIsDoneWithIt() throws IOException {
+        List<byte[]> buffers = new ArrayList<>();
+        boolean[] consumed = {true};
+        SseFrameWriter writer = new SseFrameWriter((frame, length) -> {
+            buffers.add(frame);
+            return consumed[0];
+        }, objectMapper, false);
+
+        writer.content(null, "a");
+        writer.content(null, "b");
+        consumed[0] = false;
+        writer.content(null, "c");
+        writer.content(null, "d");
+
+        assertSame(buffers.get(0), buffers.get(1));
+        assertSame(buffers.get(1), buffers.get(2));
+        // 第三帧的缓冲区仍被引用，第四帧写入新的缓冲区
+        assertNotSame(buffers.get(2), buffers.get(3));
+    }
+
+    private static SseFrameWriter.FrameSink collect(List<String> frames, boolean consumed) {
+        return (frame, length) -> {
+            frames.add(new String(frame, 0, length, StandardCharsets.UTF_8));
+            return consumed;
+        };
+    }
+}
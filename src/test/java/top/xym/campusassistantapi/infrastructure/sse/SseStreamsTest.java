@@ -0,0 +1,86 @@
+package top.xym.campusassistantapi.infrastructure.sse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class SseStreamsTest {
+
+    private static final String EXPECTED = """
+            event: content
+            data:{"type":"CONTENT","content":"图书馆"}
+
+            event: content
+            data:{"type":"CONTENT","content":"8:00 开门"}
+
+            event: end
+            data:{"type":"END","content":""}
+
+            """;
+
+    private final SseStreams sseStreams = new SseStreams(new ObjectMapper());
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new TestController())
+            .setMessageConverters(new SseFrameHttpMessageConverter(), new StringHttpMessageConverter())
+            .build();
+
+    @Test
+    void framesEmittedBeforeResponseInitializationAreNotOverwritten() throws Exception {
+        // Flux.just 在控制器返回前同步发出全部元素，emitter 暂存这些帧
+        assertEquals(EXPECTED, body("/sync"));
+    }
+
+    @Test
+    void framesEmittedAfterInitializationAreWrittenDirectly() throws Exception {
+        assertEquals(EXPECTED, body("/async"));
+    }
+
+    @Test
+    void textFramesSplitLinesIntoDataLines() throws Exception {
+        assertEquals("data:第一行\ndata:second\n\n", body("/text"));
+    }
+
+    private String body(String path) throws Exception {
+        MvcResult result = mockMvc.perform(get(path)).andExpect(request().asyncStarted()).andReturn();
+        result.getAsyncResult(5000);
+        return mockMvc.perform(asyncDispatch(result)).andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    @RestController
+    class TestController {
+
+        @GetMapping("/sync")
+        ResponseEntity<ResponseBodyEmitter> sync() {
+            return sseStreams.stream(Flux.just("图书馆", "8:00 开门"), (writer, item) -> writer.content(null, item));
+        }
+
+        @GetMapping("/async")
+        ResponseEntity<ResponseBodyEmitter> async() {
+            Flux<String> delayed = Flux.just("图书馆", "8:00 开门")
+                    .delaySubscription(Duration.ofMillis(100))
+                    .publishOn(Schedulers.boundedElastic());
+            return sseStreams.stream(delayed, (writer, item) -> writer.content(null, item));
+        }
+
+        @GetMapping("/text")
+        ResponseEntity<ResponseBodyEmitter> text() {
+            return sseStreams.stream(Flux.just("第一行\nsecond"), SseStreams.FrameStyle.TEXT, SseFrameWriter::text);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package top.xym.campusassistantapi.module.agent.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgentMessageCodecTest {
+
+    @Test
+    void plainRoundTripKeepsRolesAndText() {
+        List<Message> messages = List.of(
+                new UserMessage("查一下我明天的课"),
+                new AssistantMessage("明天上午 8:00 有高等数学，地点教三 201。"));
+
+        byte[] data = AgentMessageCodec.encode(messages, Integer.MAX_VALUE);
+        List<Message> decoded = AgentMessageCodec.decode(data);
+
+        assertEquals(0, data[0], "低于阈值不压缩");
+        assertRoundTrip(messages, decoded);
+    }
+
+    @Test
+    void compressedRoundTrip() {
+        List<Message> messages = List.of(
+                new UserMessage("食堂营业时间".repeat(100)),
+                new AssistantMessage("一食堂 6:30 - 21:00。".repeat(100)),
+                new UserMessage(""));
+
+        byte[] data = AgentMessageCodec.encode(messages, 16);
+        List<Message> decoded = AgentMessageCodec.decode(data);
+
+        assertEquals(1, data[0], "超过阈值压缩");
+        assertTrue(data.length < 1000);
+        assertRoundTrip(messages, decoded);
+    }
+
+    @Test
+    void onlyUserAndAssistantTextIsKept() {
+        List<Message> decoded = AgentMessageCodec.decode(AgentMessageCodec.encode(List.of(
+                new SystemMessage("系统提示"),
+                new UserMessage("你好"),
+                new AssistantMessage("你好！")), 512));
+
+        assertEquals(2, decoded.size());
+        assertInstanceOf(UserMessage.class, decoded.get(0));
+    }
+
+    @Test
+    void emptyStateDecodesToEmptyList() {
+        assertTrue(AgentMessageCodec.decode(null).isEmpty());
+        assertTrue(AgentMessageCodec.decode(new byte[0]).isEmpty());
+        assertTrue(AgentMessageCodec.decode(AgentMessageCodec.encode(List.of(), 512)).isEmpty());
+    }
+
+    private static void assertRoundTrip(List<Message> expected, List<Message> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+            assertEquals(expected.get(i).getText(), actual.get(i).getText());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package top.xym.campusassistantapi.module.chat.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExifOrientationTest {
+
+    @Test
+    void readsOrientationInBothByteOrders() {
+        for (int orientation = 1; orientation <= 8; orientation++) {
+            assertEquals(orientation, ExifOrientation.read(jpegWithOrientation(orientation, ByteOrder.LITTLE_ENDIAN)));
+            assertEquals(orientation, ExifOrientation.read(jpegWithOrientation(orientation, ByteOrder.BIG_ENDIAN)));
+        }
+    }
+
+    @Test
+    void outOfRangeValueFallsBackToNormal() {
+        assertEquals(1, ExifOrientation.read(jpegWithOrientation(9, ByteOrder.BIG_ENDIAN)));
+    }
+
+    @Test
+    void missingOrBrokenMetadataFallsBackToNormal() {
+        assertEquals(1, ExifOrientation.read(new byte[0]));
+        assertEquals(1, ExifOrientation.read(new byte[]{(byte) 0x89, 'P', 'N', 'G'}));
+        // 只有 SOI 与 SOS，没有 APP1
+        assertEquals(1, ExifOrientation.read(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDA, 0, 2}));
+
+        byte[] truncated = jpegWithOrientation(6, ByteOrder.LITTLE_ENDIAN);
+        byte[] cut = Arrays.copyOf(truncated, truncated.length - 12);
+        assertEquals(1, ExifOrientation.read(cut));
+    }
+
+    @Test
+    void skipsOtherApplicationSegments() {
+        byte[] exif = jpegWithOrientation(3, ByteOrder.BIG_ENDIAN);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(0xD8);
+        // APP0（JFIF）在 APP1 之前
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xE0, 0, 7, 'J', 'F', 'I', 'F', 0});
+        out.write(exif, 2, exif.length - 2);
+
+        assertEquals(3, ExifOrientation.read(out.toByteArray()));
+    }
+
+    /**
+     * SOI + APP1(Exif, 单个 IFD 含 0x0112) + SOS
+     */
+    private static byte[] jpegWithOrientation(int orientation, ByteOrder order) {
+        ByteBuffer tiff = ByteBuffer.allocate(8 + 2 + 12 + 4).order(order);
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.putShort((short) 42);
+        tiff.putInt(8);
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        tiff.putInt(0);
+
+        int length = 2 + 6 + tiff.capacity();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1,
+                (byte) (length >> 8), (byte) length, 'E', 'x', 'i', 'f', 0, 0});
+        out.writeBytes(tiff.array());
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xDA, 0, 2});
+        return out.toByteArray();
+    }
+}
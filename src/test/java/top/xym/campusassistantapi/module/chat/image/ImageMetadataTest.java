@@ -0,0 +1,139 @@
+package top.xym.campusassistantapi.module.chat.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageMetadataTest {
+
+    @Test
+    void stripsExifXmpAndCommentsFromJpegButKeepsColorSegments() throws IOException {
+        byte[] plain = encode("jpeg");
+        byte[] icc = segment(0xE2, "ICC_PROFILE\0profile");
+        byte[] tagged = insertAfterSoi(plain,
+                segment(0xE1, "Exif\0\0GPS 31.2304N 121.4737E"),
+                segment(0xE1, "http://ns.adobe.com/xap/1.0/\0<x:xmpmeta/>"),
+                segment(0xED, "Photoshop 3.0\0iptc"),
+                segment(0xFE, "comment"),
+                icc);
+
+        byte[] stripped = ImageMetadata.strip(tagged);
+
+        assertNotNull(stripped);
+        assertFalse(contains(stripped, "GPS"));
+        assertFalse(contains(stripped, "xmpmeta"));
+        assertFalse(contains(stripped, "iptc"));
+        assertFalse(contains(stripped, "comment"));
+        assertTrue(contains(stripped, "ICC_PROFILE"));
+        assertArrayEquals(insertAfterSoi(plain, icc), stripped);
+    }
+
+    @Test
+    void strippedJpegStillDecodes() throws IOException {
+        byte[] tagged = insertAfterSoi(encode("jpeg"), segment(0xE1, "Exif\0\0GPS"));
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(ImageMetadata.strip(tagged)));
+
+        assertEquals(32, decoded.getWidth());
+        assertEquals(24, decoded.getHeight());
+    }
+
+    @Test
+    void jpegWithoutMetadataIsReturnedAsIs() throws IOException {
+        byte[] plain = encode("jpeg");
+
+        assertSame(plain, ImageMetadata.strip(plain));
+    }
+
+    @Test
+    void stripsTextChunksFromPng() throws IOException {
+        byte[] plain = encode("png");
+        byte[] tagged = insertBeforeIend(plain, chunk("tEXt", "Author\0someone"), chunk("iTXt", "XML:com.adobe.xmp\0\0\0\0\0<x:xmpmeta/>"));
+
+        byte[] stripped = ImageMetadata.strip(tagged);
+
+        assertArrayEquals(plain, stripped);
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(stripped)));
+    }
+
+    @Test
+    void unsupportedOrCorruptInputIsLeftToReencoding() throws IOException {
+        assertNull(ImageMetadata.strip(encode("bmp")));
+        byte[] truncated = Arrays.copyOf(insertAfterSoi(encode("jpeg"), segment(0xE1, "Exif\0\0data")), 10);
+        assertNull(ImageMetadata.strip(truncated));
+    }
+
+    static byte[] encode(String format) throws IOException {
+        BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(3, 4, 0x336699);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    static byte[] segment(int marker, String payload) {
+        byte[] body = payload.getBytes(StandardCharsets.ISO_8859_1);
+        int length = body.length + 2;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) marker, (byte) (length >> 8), (byte) length});
+        out.writeBytes(body);
+        return out.toByteArray();
+    }
+
+    static byte[] insertAfterSoi(byte[] jpeg, byte[]... segments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        for (byte[] segment : segments) {
+            out.writeBytes(segment);
+        }
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    static boolean contains(byte[] data, String text) {
+        return new String(data, StandardCharsets.ISO_8859_1).contains(text);
+    }
+
+    private static byte[] chunk(String type, String payload) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] body = payload.getBytes(StandardCharsets.ISO_8859_1);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(body);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) (body.length >>> 24), (byte) (body.length >>> 16), (byte) (body.length >>> 8), (byte) body.length});
+        out.writeBytes(typeBytes);
+        out.writeBytes(body);
+        long value = crc.getValue();
+        out.writeBytes(new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+        return out.toByteArray();
+    }
+
+    private static byte[] insertBeforeIend(byte[] png, byte[]... chunks) {
+        // IEND 块固定 12 字节，位于末尾
+        int iend = png.length - 12;
+        assertEquals("IEND", new String(png, iend + 4, 4, StandardCharsets.US_ASCII));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(png, 0, iend);
+        for (byte[] chunk : chunks) {
+            out.writeBytes(chunk);
+        }
+        out.write(png, iend, 12);
+        return out.toByteArray();
+    }
+}
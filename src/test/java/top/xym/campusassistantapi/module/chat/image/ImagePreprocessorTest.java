@@ -0,0 +1,44 @@
+package top.xym.campusassistantapi.module.chat.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImagePreprocessorTest {
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(new ImageProcessingProperties());
+
+    @Test
+    void smallPhotoKeepsPixelsButLosesGpsMetadata() throws IOException {
+        byte[] plain = ImageMetadataTest.encode("jpeg");
+        byte[] tagged = ImageMetadataTest.insertAfterSoi(plain, ImageMetadataTest.segment(0xE1, "Exif\0\0GPS 31.2304N 121.4737E"));
+
+        ImagePreprocessor.ProcessedImage image = preprocessor.process(tagged, "image/jpeg", ".jpg");
+
+        assertTrue(image.processed());
+        assertFalse(ImageMetadataTest.contains(image.data(), "GPS"));
+        assertEquals("image/jpeg", image.contentType());
+    }
+
+    @Test
+    void smallPhotoWithoutMetadataIsUntouched() throws IOException {
+        byte[] plain = ImageMetadataTest.encode("jpeg");
+
+        ImagePreprocessor.ProcessedImage image = preprocessor.process(plain, "image/jpeg", ".jpg");
+
+        assertFalse(image.processed());
+        assertSame(plain, image.data());
+    }
+
+    @Test
+    void undecodableInputIsUntouched() throws IOException {
+        byte[] data = "not an image".getBytes();
+
+        assertSame(data, preprocessor.process(data, "image/heic", ".heic").data());
+    }
+}
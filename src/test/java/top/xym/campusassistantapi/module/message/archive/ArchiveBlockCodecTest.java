@@ -0,0 +1,105 @@
+package top.xym.campusassistantapi.module.message.archive;
+
+import org.junit.jupiter.api.Test;
+import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveBlockCodecTest {
+
+    @Test
+    void roundTripKeepsAllFields() {
+        ChatMessage user = message(101L, "user", "图书馆几点开门？", 1);
+        ChatMessage assistant = message(102L, "assistant", "工作日 8:00 - 22:00。".repeat(50), 1);
+        assistant.setModelName("qwen-plus");
+        assistant.setTokens(321);
+        assistant.setHasThinking(1);
+        assistant.setThinkingContent("先查开放时间");
+        assistant.setWebSearch(0);
+
+        ArchiveBlockCodec.Encoded encoded = ArchiveBlockCodec.encode(List.of(user, assistant));
+        List<ChatMessage> decoded = ArchiveBlockCodec.decode(ByteBuffer.wrap(encoded.block()), 7L);
+
+        assertEquals(2, decoded.size());
+        assertMessage(user, decoded.get(0));
+        assertMessage(assistant, decoded.get(1));
+        assertTrue(encoded.block().length < encoded.rawBytes(), "重复内容应被压缩");
+    }
+
+    @Test
+    void nullableFieldsStayNull() {
+        ChatMessage sparse = new ChatMessage();
+        sparse.setId(1L);
+        sparse.setRole("user");
+
+        ChatMessage decoded = ArchiveBlockCodec.decode(
+                ByteBuffer.wrap(ArchiveBlockCodec.encode(List.of(sparse)).block()), 7L).get(0);
+
+        assertEquals(1L, decoded.getId());
+        assertNull(decoded.getUserId());
+        assertNull(decoded.getContent());
+        assertNull(decoded.getTokens());
+        assertNull(decoded.getCreateTime());
+    }
+
+    @Test
+    void decodesFromSliceAtNonZeroOffset() {
+        byte[] block = ArchiveBlockCodec.encode(List.of(message(5L, "user", "你好", 1))).block();
+        ByteBuffer segment = ByteBuffer.allocate(block.length + 64);
+        segment.position(64);
+        segment.put(block);
+
+        List<ChatMessage> decoded = ArchiveBlockCodec.decode(segment.slice(64, block.length), 7L);
+
+        assertEquals("你好", decoded.get(0).getContent());
+    }
+
+    @Test
+    void rejectsCorruptedBlock() {
+        byte[] block = ArchiveBlockCodec.encode(List.of(message(5L, "user", "你好", 1))).block();
+        byte[] badMagic = block.clone();
+        badMagic[0] ^= 0x7F;
+        // 头部最后 4 字节是 CRC32
+        byte[] badCrc = block.clone();
+        badCrc[ArchiveBlockCodec.HEADER_BYTES - 1] ^= 0x01;
+
+        assertThrows(IllegalStateException.class, () -> ArchiveBlockCodec.decode(ByteBuffer.wrap(badMagic), 7L));
+        assertThrows(IllegalStateException.class, () -> ArchiveBlockCodec.decode(ByteBuffer.wrap(badCrc), 7L));
+    }
+
+    private static ChatMessage message(Long id, String role, String content, Integer status) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setUserId(42L);
+        message.setRole(role);
+        message.setContent(content);
+        message.setStatus(status);
+        message.setCreateTime(LocalDateTime.of(2025, 9, 1, 8, 30, 15, 123_456_789));
+        message.setUpdateTime(LocalDateTime.of(2025, 9, 1, 8, 30, 16));
+        return message;
+    }
+
+    private static void assertMessage(ChatMessage expected, ChatMessage actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(7L, actual.getSessionId());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getRole(), actual.getRole());
+        assertEquals(expected.getContent(), actual.getContent());
+        assertEquals(expected.getModelName(), actual.getModelName());
+        assertEquals(expected.getTokens(), actual.getTokens());
+        assertEquals(expected.getHasThinking(), actual.getHasThinking());
+        assertEquals(expected.getThinkingContent(), actual.getThinkingContent());
+        assertEquals(expected.getWebSearch(), actual.getWebSearch());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getCreateTime(), actual.getCreateTime());
+        assertEquals(expected.getUpdateTime(), actual.getUpdateTime());
+        assertEquals(0, actual.getDeleted());
+    }
+}
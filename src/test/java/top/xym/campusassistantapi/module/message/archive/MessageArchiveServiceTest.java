@@ -0,0 +1,133 @@
+package top.xym.campusassistantapi.module.message.archive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.xym.campusassistantapi.module.message.mapper.ChatMessageArchiveMapper;
+import top.xym.campusassistantapi.module.message.model.entity.ChatMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageArchiveServiceTest {
+
+    private static final long SESSION_ID = 7L;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ChatMessageArchive> index = new ArrayList<>();
+    private ArchiveSegmentStore segmentStore;
+    private MessageArchiveService service;
+
+    @BeforeEach
+    void setUp() {
+        MessageArchiveProperties properties = new MessageArchiveProperties();
+        properties.setDirectory(directory.toString());
+        segmentStore = new ArchiveSegmentStore(properties);
+        // 读取路径只用到归档索引的 selectList
+        ChatMessageArchiveMapper archiveMapper = (ChatMessageArchiveMapper) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ChatMessageArchiveMapper.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("selectList")) {
+                        return List.copyOf(index);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        service = new MessageArchiveService(null, null, archiveMapper, segmentStore, null, null, properties, meterRegistry);
+        // 三个块：消息 1-4、5-8、9-12
+        for (long first = 1; first <= 9; first += 4) {
+            archiveBlock(first, 4);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        segmentStore.close();
+    }
+
+    @Test
+    void pageReadsOnlyBlocksCoveringTheRange() {
+        MessageArchiveService.ArchivedPage page = service.pageArchived(SESSION_ID, 5, 2);
+
+        assertEquals(12, page.total());
+        assertEquals(List.of(6L, 7L), ids(page.messages()));
+        assertEquals(1, decodedBlocks());
+    }
+
+    @Test
+    void pageSpanningBlocksAndPastTheEnd() {
+        assertEquals(List.of(4L, 5L, 6L), ids(service.pageArchived(SESSION_ID, 3, 3).messages()));
+        assertEquals(List.of(11L, 12L), ids(service.pageArchived(SESSION_ID, 10, 5).messages()));
+        assertEquals(List.of(), service.pageArchived(SESSION_ID, 12, 5).messages());
+    }
+
+    @Test
+    void olderStopsOnceLimitIsFilled() {
+        List<ChatMessage> older = service.olderArchived(SESSION_ID, 7L, message -> message.getId() < 7, 3);
+
+        assertEquals(List.of(6L, 5L, 4L), ids(older));
+        // 9-12 的块整块跳过，5-8 与 1-4 两块被解压
+        assertEquals(2, decodedBlocks());
+    }
+
+    @Test
+    void newerSkipsBlocksBeforeTheCursor() {
+        List<ChatMessage> newer = service.newerArchived(SESSION_ID, 9L, message -> message.getId() > 9, 10);
+
+        assertEquals(List.of(10L, 11L, 12L), ids(newer));
+        assertEquals(1, decodedBlocks());
+    }
+
+    @Test
+    void decodedBlocksAreCached() {
+        service.pageArchived(SESSION_ID, 0, 12);
+        service.olderArchived(SESSION_ID, null, message -> true, 12);
+
+        assertEquals(3, decodedBlocks());
+        assertEquals(3, meterRegistry.counter("chat.archive.block.cache", "result", "hit").count());
+    }
+
+    private void archiveBlock(long firstId, int count) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (long id = firstId; id < firstId + count; id++) {
+            ChatMessage message = new ChatMessage();
+            message.setId(id);
+            message.setRole(id % 2 == 1 ? "user" : "assistant");
+            message.setContent("消息" + id);
+            message.setStatus(1);
+            message.setCreateTime(LocalDateTime.of(2024, 3, 1, 8, 0).plusMinutes(id));
+            messages.add(message);
+        }
+        ArchiveBlockCodec.Encoded encoded = ArchiveBlockCodec.encode(messages);
+        ArchiveSegmentStore.Pointer pointer = segmentStore.append(encoded.block());
+        ChatMessageArchive archive = new ChatMessageArchive();
+        archive.setId((long) index.size() + 1);
+        archive.setSessionId(SESSION_ID);
+        archive.setSegmentNo(pointer.segmentNo());
+        archive.setSegmentOffset(pointer.offset());
+        archive.setBlockLength(pointer.length());
+        archive.setMessageCount(count);
+        archive.setFirstMessageId(firstId);
+        archive.setLastMessageId(firstId + count - 1);
+        archive.setRawBytes(encoded.rawBytes());
+        index.add(archive);
+    }
+
+    private double decodedBlocks() {
+        return meterRegistry.counter("chat.archive.block.cache", "result", "miss").count();
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).toList();
+    }
+}
@@ -0,0 +1,78 @@
+package top.xym.campusassistantapi.module.message.content;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedTextTest {
+
+    @AfterEach
+    void restoreDefaults() {
+        CompressedText.configure(true, 2048);
+    }
+
+    @Test
+    void shortContentIsStoredAsIs() {
+        String content = "图书馆几点开门？";
+
+        assertSame(content, CompressedText.encode(content));
+        assertEquals(content, CompressedText.decode(content));
+    }
+
+    @Test
+    void longContentRoundTripsCompressed() {
+        CompressedText.configure(true, 64);
+        String content = "校园一卡通可以在食堂、图书馆和超市使用。".repeat(40);
+
+        String stored = CompressedText.encode(content);
+
+        assertTrue(CompressedText.isEncoded(stored));
+        assertTrue(stored.length() < content.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(content, CompressedText.decode(stored));
+    }
+
+    @Test
+    void contentStartingWithMarkerIsEscaped() {
+        String content = CompressedText.MARKER + "1not-base64";
+
+        String stored = CompressedText.encode(content);
+
+        assertEquals("" + CompressedText.MARKER + CompressedText.VERSION_PLAIN + content, stored);
+        assertEquals(content, CompressedText.decode(stored));
+        assertEquals(String.valueOf(CompressedText.MARKER),
+                CompressedText.decode(CompressedText.encode(String.valueOf(CompressedText.MARKER))));
+    }
+
+    @Test
+    void disabledStillDecodesExistingContent() {
+        CompressedText.configure(true, 64);
+        String content = "a".repeat(1000);
+        String stored = CompressedText.encode(content);
+
+        CompressedText.configure(false, 64);
+
+        assertSame(content, CompressedText.encode(content));
+        assertEquals(content, CompressedText.decode(stored));
+    }
+
+    @Test
+    void nullAndEmptyPassThrough() {
+        assertNull(CompressedText.encode(null));
+        assertNull(CompressedText.decode(null));
+        assertEquals("", CompressedText.decode(CompressedText.encode("")));
+        assertFalse(CompressedText.isEncoded(""));
+    }
+
+    @Test
+    void unknownVersionIsRejected() {
+        assertThrows(IllegalStateException.class, () -> CompressedText.decode(CompressedText.MARKER + "9abc"));
+    }
+}
@@ -0,0 +1,174 @@
+package top.xym.campusassistantapi.module.message.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayStreamTest {
+
+    @Test
+    void followFromStartReplaysThenFollowsLive() {
+        ReplayStream stream = new ReplayStream(1L, 10L, 16);
+        stream.append("a");
+        stream.append("b");
+        List<StreamChunk> received = new CopyOnWriteArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        stream.follow(0).subscribe(received::add, error -> {
+        }, () -> completed.set(true));
+        stream.append("c");
+        stream.complete();
+
+        assertEquals(List.of(new StreamChunk(1, "a"), new StreamChunk(2, "b"), new StreamChunk(3, "c")), received);
+        assertTrue(completed.get());
+    }
+
+    @Test
+    void resumeSkipsChunksAlreadyReceived() {
+        ReplayStream stream = new ReplayStream(1L, 10L, 16);
+        stream.append("a");
+        stream.append("b");
+        stream.append("c");
+        stream.complete();
+
+        List<StreamChunk> resumed = stream.follow(2).collectList().block();
+
+        assertEquals(List.of(new StreamChunk(3, "c")), resumed);
+    }
+
+    @Test
+    void checkpointOutsideWindowFails() {
+        ReplayStream stream = new ReplayStream(1L, 10L, 2);
+        stream.append("a");
+        stream.append("b");
+        stream.append("c");
+        stream.complete();
+
+        // 环形缓冲区只保留 2、3
+        assertEquals(List.of(new StreamChunk(2, "b"), new StreamChunk(3, "c")),
+                stream.follow(1).collectList().block());
+        assertThrows(RuntimeException.class, () -> stream.follow(0).collectList().block());
+    }
+
+    @Test
+    void errorReachesLateSubscriberAfterReplay() {
+        ReplayStream stream = new ReplayStream(1L, 10L, 16);
+        stream.append("a");
+        stream.error(new IllegalStateException("boom"));
+        List<StreamChunk> received = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        stream.follow(0).subscribe(received::add, error::set);
+
+        assertEquals(List.of(new StreamChunk(1, "a")), received);
+        assertTrue(error.get() instanceof IllegalStateException);
+    }
+
+    @Test
+    void terminateCallbacksRunOnceAfterTermination() {
+        ReplayStream stream = new ReplayStream(1L, 10L, 16);
+        List<String> calls = new CopyOnWriteArrayList<>();
+        stream.onTerminate(() -> calls.add("before"));
+
+        stream.complete();
+        stream.complete();
+        stream.onTerminate(() -> calls.add("after"));
+
+        assertEquals(List.of("before", "after"), calls);
+        assertTrue(stream.isTerminated());
+    }
+
+    @Test
+    void registryKeepsTerminatedStreamForRetention() throws InterruptedException {
+        StreamReplayProperties properties = new StreamReplayProperties();
+        properties.setRetention(Duration.ofMillis(50));
+        StreamReplayRegistry registry = new StreamReplayRegistry(properties, new SimpleMeterRegistry());
+        ReplayStream stream = registry.open(1L, 10L);
+        stream.append("a");
+        stream.complete();
+
+        // 结束后仍可在保留期内断线重连
+        assertNotNull(registry.get(1L));
+        long deadline = System.currentTimeMillis() + 3000;
+        while (registry.get(1L) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(registry.get(1L));
+    }
+
+    @Test
+    void disposedFollowerStopsReceiving() {
+        ReplayStream stream = new ReplayStream(1L, 10L, 16);
+        List<StreamChunk> received = new CopyOnWriteArrayList<>();
+        Disposable subscription = stream.follow(0).subscribe(received::add);
+
+        stream.append("a");
+        subscription.dispose();
+        stream.append("b");
+
+        assertEquals(List.of(new StreamChunk(1, "a")), received);
+    }
+
+    @Test
+    void abandonedStreamCancelsUpstream() throws InterruptedException {
+        ReplayStream stream = new ReplayStream(1L, 10L, 16, Duration.ofMillis(50));
+        Disposable upstream = Disposables.single();
+        Disposable subscription = stream.follow(0).subscribe();
+        stream.attachUpstream(upstream);
+
+        subscription.dispose();
+
+        awaitTerminated(stream);
+        assertTrue(stream.isCancelled());
+        assertTrue(upstream.isDisposed());
+    }
+
+    @Test
+    void reconnectWithinGraceKeepsGenerating() throws InterruptedException {
+        ReplayStream stream = new ReplayStream(1L, 10L, 16, Duration.ofMillis(100));
+        Disposable upstream = Disposables.single();
+        stream.attachUpstream(upstream);
+        stream.follow(0).subscribe().dispose();
+
+        // 宽限期内重连
+        stream.follow(0).subscribe();
+        Thread.sleep(250);
+
+        assertFalse(stream.isTerminated());
+        assertFalse(upstream.isDisposed());
+    }
+
+    @Test
+    void upstreamAttachedAfterCancelIsDisposed() throws InterruptedException {
+        ReplayStream stream = new ReplayStream(1L, 10L, 16, Duration.ofMillis(20));
+        // 绑定上游前就无人订阅：首次 attach 启动宽限期
+        stream.attachUpstream(Disposables.single());
+        awaitTerminated(stream);
+        Disposable late = Disposables.single();
+
+        stream.attachUpstream(late);
+
+        assertTrue(late.isDisposed());
+    }
+
+    private static void awaitTerminated(ReplayStream stream) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!stream.isTerminated() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
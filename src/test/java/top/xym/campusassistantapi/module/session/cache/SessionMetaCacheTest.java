@@ -0,0 +1,156 @@
+package top.xym.campusassistantapi.module.session.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import top.xym.campusassistantapi.module.session.mapper.ChatSessionMapper;
+import top.xym.campusassistantapi.module.session.model.entity.ChatSession;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SessionMetaCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionMetaCacheProperties properties = new SessionMetaCacheProperties();
+    private final Map<Long, ChatSession> sessions = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    /**
+     * 查库时执行的钩子，用于模拟加载期间的并发失效
+     */
+    private Consumer<Long> onLoad = id -> {
+    };
+
+    @Test
+    void repeatedReadsHitLocalCache() {
+        SessionMetaCache cache = cache();
+        session(1L, 10L, "标题");
+
+        assertEquals("标题", cache.get(1L).getTitle());
+        assertEquals("标题", cache.get(1L).getTitle());
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, reads("local"));
+    }
+
+    @Test
+    void evictReloadsFromDatabase() {
+        SessionMetaCache cache = cache();
+        session(1L, 10L, "旧标题");
+        cache.get(1L);
+
+        session(1L, 10L, "新标题");
+        cache.evict(1L);
+
+        assertEquals("新标题", cache.get(1L).getTitle());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void missingSessionIsNotCached() {
+        SessionMetaCache cache = cache();
+
+        assertNull(cache.get(1L));
+        session(1L, 10L, "标题");
+
+        assertEquals("标题", cache.get(1L).getTitle());
+    }
+
+    @Test
+    void loadRacingEvictionIsNotCached() {
+        SessionMetaCache cache = cache();
+        session(1L, 10L, "旧标题");
+        // 查库读到旧数据后、写回缓存前会话被修改并失效
+        onLoad = id -> {
+            session(1L, 10L, "新标题");
+            cache.evict(id);
+        };
+
+        assertEquals("旧标题", cache.get(1L).getTitle());
+        onLoad = id -> {
+        };
+
+        assertEquals("新标题", cache.get(1L).getTitle());
+        assertEquals(1.0, meterRegistry.get("session.meta.stale.skipped").counter().count());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsDropped() {
+        properties.setLocalMaxEntries(2);
+        SessionMetaCache cache = cache();
+        session(1L, 10L, "a");
+        session(2L, 10L, "b");
+        session(3L, 10L, "c");
+
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(1L);
+        cache.get(3L);
+        loads.set(0);
+
+        cache.get(1L);
+        cache.get(2L);
+        // 会话 2 最久未访问，已被淘汰
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void disabledAlwaysLoads() {
+        properties.setEnabled(false);
+        SessionMetaCache cache = cache();
+        session(1L, 10L, "标题");
+
+        cache.get(1L);
+        cache.get(1L);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void ownershipExcludesDeletedSessions() {
+        SessionMetaCache cache = cache();
+        session(1L, 10L, "标题");
+        sessions.get(1L).setDeleted(1);
+
+        SessionMeta meta = cache.get(1L);
+
+        assertFalse(meta.isOwnedBy(10L));
+    }
+
+    private SessionMetaCache cache() {
+        ChatSessionMapper mapper = (ChatSessionMapper) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ChatSessionMapper.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("selectById")) {
+                        loads.incrementAndGet();
+                        Long id = (Long) args[0];
+                        ChatSession session = sessions.get(id);
+                        onLoad.accept(id);
+                        return session;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        // 默认不启用 Redis，RedisCache 不会被访问
+        return new SessionMetaCache(mapper, null, properties, meterRegistry);
+    }
+
+    private void session(Long id, Long userId, String title) {
+        ChatSession session = new ChatSession();
+        session.setId(id);
+        session.setUserId(userId);
+        session.setTitle(title);
+        session.setStatus(1);
+        session.setDeleted(0);
+        sessions.put(id, session);
+    }
+
+    private double reads(String source) {
+        return meterRegistry.get("session.meta.reads").tag("source", source).counter().count();
+    }
+}
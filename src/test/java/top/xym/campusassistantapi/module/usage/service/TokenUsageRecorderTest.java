@@ -0,0 +1,70 @@
+package top.xym.campusassistantapi.module.usage.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import top.xym.campusassistantapi.module.message.history.TokenEstimator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenUsageRecorderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // 只验证内存聚合与指标，不触发写库
+    private final TokenUsageRecorder recorder = new TokenUsageRecorder(null, new TokenUsageProperties(), meterRegistry);
+
+    @Test
+    void callResponseRecordsReportedUsage() {
+        recorder.record(7L, response("答案", "qwen-plus", new DefaultUsage(30, 12)));
+
+        assertEquals(30, tokens("qwen-plus", "prompt"));
+        assertEquals(12, tokens("qwen-plus", "completion"));
+    }
+
+    @Test
+    void streamRecordsLastReportedUsageOnce() {
+        Flux<ChatResponse> stream = Flux.just(
+                response("你", "qwen-plus", new DefaultUsage(30, 1)),
+                response("好", "qwen-plus", new DefaultUsage(30, 2)),
+                response("", "qwen-plus", new DefaultUsage(30, 3)));
+
+        recorder.recordOnFinish(7L, stream).blockLast();
+
+        assertEquals(30, tokens("qwen-plus", "prompt"));
+        assertEquals(3, tokens("qwen-plus", "completion"));
+    }
+
+    @Test
+    void cancelledStreamRecordsEstimatedOutput() {
+        Sinks.Many<ChatResponse> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        var subscription = recorder.recordOnFinish(7L, upstream.asFlux()).subscribe();
+        upstream.tryEmitNext(response("校园卡补办", null, null));
+        subscription.dispose();
+
+        assertEquals(0, tokens("unknown", "prompt"));
+        assertEquals(TokenEstimator.estimate("校园卡补办"), tokens("unknown", "completion"));
+    }
+
+    private double tokens(String model, String type) {
+        return meterRegistry.counter("llm.tokens", "model", model, "type", type).count();
+    }
+
+    private static ChatResponse response(String text, String model, DefaultUsage usage) {
+        ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+        if (model != null) {
+            metadata.model(model);
+        }
+        if (usage != null) {
+            metadata.usage(usage);
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build());
+    }
+}